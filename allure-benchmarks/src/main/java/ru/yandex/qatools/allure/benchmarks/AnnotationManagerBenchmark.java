@@ -0,0 +1,80 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.annotations.Description;
+import ru.yandex.qatools.allure.annotations.Features;
+import ru.yandex.qatools.allure.annotations.Issue;
+import ru.yandex.qatools.allure.annotations.Severity;
+import ru.yandex.qatools.allure.annotations.Stories;
+import ru.yandex.qatools.allure.annotations.Title;
+import ru.yandex.qatools.allure.events.TestCaseStartedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteStartedEvent;
+import ru.yandex.qatools.allure.model.SeverityLevel;
+import ru.yandex.qatools.allure.utils.AnnotationManager;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AnnotationManager#update} of test case and test suite started events, the way
+ * adaptors call it for each test: manager is taken for the test method and its class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AnnotationManagerBenchmark {
+
+    private Method method;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        method = AnnotatedTest.class.getMethod("annotatedTest");
+    }
+
+    @Benchmark
+    public TestCaseStartedEvent updateTestCase() {
+        TestCaseStartedEvent event = new TestCaseStartedEvent("suite", "annotatedTest");
+        AnnotationManager.forMethod(method, AnnotatedTest.class).update(event);
+        return event;
+    }
+
+    @Benchmark
+    public TestSuiteStartedEvent updateTestSuite() {
+        TestSuiteStartedEvent event = new TestSuiteStartedEvent("suite", AnnotatedTest.class.getName());
+        new AnnotationManager(AnnotatedTest.class.getAnnotations()).update(event);
+        return event;
+    }
+
+    /**
+     * Test class with all Allure annotations adaptors read.
+     */
+    @Title("Annotated test class")
+    @Description("Test class with all Allure annotations")
+    @Features("Benchmarks")
+    @Stories("Annotations")
+    public static class AnnotatedTest {
+
+        @Title("Annotated test")
+        @Description("Test with all Allure annotations")
+        @Features({"Benchmarks", "Annotations"})
+        @Stories({"Test case labels", "Test case title"})
+        @Severity(SeverityLevel.CRITICAL)
+        @Issue("ALLURE-1")
+        public void annotatedTest() {
+            //test body, should be empty
+        }
+    }
+}
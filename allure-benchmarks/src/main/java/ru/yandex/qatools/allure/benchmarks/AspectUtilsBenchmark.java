@@ -0,0 +1,44 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.aspects.AllureAspectUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Step and attachment names and titles built by {@link AllureAspectUtils} for each
+ * annotated method call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AspectUtilsBenchmark {
+
+    private final Object[] parameters = {"login", 42, new String[]{"first", "second"}};
+
+    @Benchmark
+    public String getTitle() {
+        return AllureAspectUtils.getTitle("{method} as {0} with {1} and {2}", "openPage", this, parameters);
+    }
+
+    @Benchmark
+    public String getTitleWithoutPlaceholders() {
+        return AllureAspectUtils.getTitle("Open main page", "openPage", this, parameters);
+    }
+
+    @Benchmark
+    public String getName() {
+        return AllureAspectUtils.getName("openPage", parameters);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.Allure;
+import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
+import ru.yandex.qatools.allure.events.MakeAttachmentEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MakeAttachmentEvent} with specified MIME type and with type detected from the
+ * content. Attachments are added to the root step, it's cleared every
+ * {@link #ATTACHMENTS_PER_STEP} attachments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AttachmentBenchmark {
+
+    private static final int ATTACHMENTS_PER_STEP = 1000;
+
+    private final Allure allure = Allure.LIFECYCLE;
+
+    @Param({"1024", "16384"})
+    public int size;
+
+    private byte[] content;
+
+    private int attachmentsCount;
+
+    /**
+     * @param resultsDirectory is set up before the content is created
+     */
+    @Setup(Level.Trial)
+    public void setUp(ResultsDirectory resultsDirectory) {
+        byte[] line = "2015-01-01 00:00:00.000 INFO  [main] benchmark log line\n".getBytes(StandardCharsets.UTF_8);
+        content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = line[i % line.length];
+        }
+    }
+
+    @Benchmark
+    public void withMimeType() {
+        allure.fire(new MakeAttachmentEvent(content, "log", "text/plain"));
+        nextAttachment();
+    }
+
+    @Benchmark
+    public void withoutMimeType() {
+        allure.fire(new MakeAttachmentEvent(content, "log", null));
+        nextAttachment();
+    }
+
+    private void nextAttachment() {
+        if (++attachmentsCount % ATTACHMENTS_PER_STEP == 0) {
+            allure.fire(new ClearStepStorageEvent());
+        }
+    }
+}
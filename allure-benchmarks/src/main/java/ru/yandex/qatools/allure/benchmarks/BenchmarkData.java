@@ -0,0 +1,79 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Failure;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+/**
+ * Test suites for benchmarks. Generated data doesn't depend on random values, so numbers
+ * are comparable between runs.
+ */
+public final class BenchmarkData {
+
+    private static final long START = 1420070400000L;
+
+    BenchmarkData() {
+        throw new IllegalStateException("Don't instance BenchmarkData");
+    }
+
+    /**
+     * Create test suite with given count of test cases. Each test case has labels, two steps
+     * and an attachment, every tenth test case is failed.
+     *
+     * @param testCasesCount count of test cases
+     * @return created test suite
+     */
+    public static TestSuiteResult createTestSuite(int testCasesCount) {
+        TestSuiteResult testSuite = new TestSuiteResult()
+                .withName("ru.yandex.qatools.allure.benchmarks.BenchmarkSuite")
+                .withTitle("Benchmark suite")
+                .withStart(START)
+                .withStop(START + testCasesCount)
+                .withLabels(AllureModelUtils.createProgrammingLanguageLabel());
+        for (int i = 0; i < testCasesCount; i++) {
+            testSuite.getTestCases().add(createTestCase(i));
+        }
+        return testSuite;
+    }
+
+    private static TestCaseResult createTestCase(int index) {
+        long start = START + index;
+        TestCaseResult testCase = new TestCaseResult()
+                .withName("testCase" + index)
+                .withTitle("Test case number " + index)
+                .withStart(start)
+                .withStop(start + 1)
+                .withStatus(index % 10 == 0 ? Status.FAILED : Status.PASSED)
+                .withLabels(
+                        AllureModelUtils.createFeatureLabel("feature" + index % 7),
+                        AllureModelUtils.createStoryLabel("story" + index % 13)
+                )
+                .withSteps(
+                        createStep("open page " + index, start),
+                        createStep("check result " + index, start)
+                )
+                .withAttachments(new Attachment()
+                        .withTitle("log")
+                        .withSource(index + "-attachment.txt")
+                        .withType("text/plain"));
+        if (testCase.getStatus() == Status.FAILED) {
+            testCase.setFailure(new Failure()
+                    .withMessage("expected: <true> but was: <false>")
+                    .withStackTrace("java.lang.AssertionError: expected: <true> but was: <false>\n"
+                            + "\tat ru.yandex.qatools.allure.benchmarks.BenchmarkSuite.testCase(BenchmarkSuite.java:42)"));
+        }
+        return testCase;
+    }
+
+    private static Step createStep(String name, long start) {
+        return new Step()
+                .withName(name)
+                .withStatus(Status.PASSED)
+                .withStart(start)
+                .withStop(start + 1);
+    }
+}
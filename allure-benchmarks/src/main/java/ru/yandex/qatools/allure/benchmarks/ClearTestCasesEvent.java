@@ -0,0 +1,30 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import ru.yandex.qatools.allure.events.TestSuiteEvent;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+/**
+ * Removes finished test cases from the suite, so suites of long running
+ * benchmarks don't grow.
+ */
+public class ClearTestCasesEvent implements TestSuiteEvent {
+
+    private final String uid;
+
+    /**
+     * @param uid of the suite to clear
+     */
+    public ClearTestCasesEvent(String uid) {
+        this.uid = uid;
+    }
+
+    @Override
+    public String getUid() {
+        return uid;
+    }
+
+    @Override
+    public void process(TestSuiteResult testSuite) {
+        testSuite.getTestCases().clear();
+    }
+}
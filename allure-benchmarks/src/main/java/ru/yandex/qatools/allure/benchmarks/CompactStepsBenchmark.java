@@ -0,0 +1,13 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * {@link StepsBenchmark} with compact steps enabled, compare allocation per step of both
+ * using <code>-prof gc</code>.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isCompactStepsEnabled()
+ */
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Dallure.steps.compact.enabled=true"})
+public class CompactStepsBenchmark extends StepsBenchmark {
+}
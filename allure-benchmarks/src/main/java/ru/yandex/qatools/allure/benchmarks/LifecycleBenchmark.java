@@ -0,0 +1,79 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.Allure;
+import ru.yandex.qatools.allure.events.TestCaseFinishedEvent;
+import ru.yandex.qatools.allure.events.TestCaseStartedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteStartedEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Allure#fire} for test case and test suite events. Each thread runs its own suite,
+ * finished test cases are removed from the suite every {@link #TEST_CASES_PER_SUITE} test cases.
+ * Finished suites are written to the results directory, it's cleaned between iterations.
+ *
+ * @see StepsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LifecycleBenchmark {
+
+    private static final int TEST_CASES_PER_SUITE = 1000;
+
+    private final Allure allure = Allure.LIFECYCLE;
+
+    private String suiteUid;
+
+    private int testCasesCount;
+
+    private int suitesCount;
+
+    /**
+     * @param resultsDirectory is set up before the suite is started
+     */
+    @Setup(Level.Trial)
+    public void setUp(ResultsDirectory resultsDirectory) {
+        suiteUid = Thread.currentThread().getName() + "-suite";
+        allure.fire(new TestSuiteStartedEvent(suiteUid, "LifecycleBenchmark"));
+    }
+
+    @Benchmark
+    public void testCase() {
+        allure.fire(new TestCaseStartedEvent(suiteUid, "testCase"));
+        allure.fire(new TestCaseFinishedEvent());
+        if (++testCasesCount % TEST_CASES_PER_SUITE == 0) {
+            allure.fire(new ClearTestCasesEvent(suiteUid));
+        }
+    }
+
+    @Benchmark
+    public void testSuite() {
+        String uid = suiteUid + "-" + suitesCount++;
+        allure.fire(new TestSuiteStartedEvent(uid, "testSuite"));
+        allure.fire(new TestCaseStartedEvent(uid, "testCase"));
+        allure.fire(new TestCaseFinishedEvent());
+        allure.fire(new TestSuiteFinishedEvent(uid));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        allure.fire(new TestSuiteFinishedEvent(suiteUid));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.qatools.allure.commons.AllureFileUtils;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateBinaryTestSuiteFileName;
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuiteFileName;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeBinaryTestSuiteResult;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeTestSuiteResult;
+
+/**
+ * Reading a whole results directory by the report generator, for both XML and binary results
+ * formats. The corpus is written once per trial: test suite files of {@link #TEST_CASES_PER_SUITE}
+ * test cases until the directory reaches {@link #corpusSizeMb}. One operation reads every file
+ * of the corpus one by one, so the heap holds one suite at a time. Divide the corpus size by
+ * the operation time to get parse throughput.
+ *
+ * @see TestSuiteResultBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ResultsCorpusBenchmark {
+
+    private static final int TEST_CASES_PER_SUITE = 1000;
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Only 64 MB by default, 1 GB corpus is run with <code>-p corpusSizeMb=1024</code>.
+     */
+    @Param({"64"})
+    public int corpusSizeMb;
+
+    @Param({"xml", "binary"})
+    public String format;
+
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("allure-benchmarks").toFile();
+        TestSuiteResult testSuite = BenchmarkData.createTestSuite(TEST_CASES_PER_SUITE);
+        long size = 0;
+        while (size < corpusSizeMb * MB) {
+            File file;
+            if (isBinary()) {
+                file = new File(directory, generateBinaryTestSuiteFileName());
+                writeBinaryTestSuiteResult(testSuite, file);
+            } else {
+                file = new File(directory, generateTestSuiteFileName());
+                writeTestSuiteResult(testSuite, file);
+            }
+            size += file.length();
+        }
+    }
+
+    @Benchmark
+    public void readCorpus(Blackhole blackhole) throws IOException {
+        if (isBinary()) {
+            for (File file : AllureFileUtils.listBinaryTestSuiteFiles(directory)) {
+                blackhole.consume(AllureFileUtils.readBinaryTestSuite(file));
+            }
+        } else {
+            for (File file : AllureFileUtils.listTestSuiteFiles(directory)) {
+                blackhole.consume(AllureFileUtils.unmarshal(file));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private boolean isBinary() {
+        return "binary".equals(format);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.qatools.allure.utils.AllureResultsUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Temp results directory shared by all threads of the benchmark. It's cleaned before
+ * each iteration, so written results don't pile up, and removed after the trial.
+ */
+@State(Scope.Benchmark)
+public class ResultsDirectory {
+
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("allure-benchmarks").toFile();
+        AllureResultsUtils.setResultsDirectory(directory);
+    }
+
+    @Setup(Level.Iteration)
+    public void clean() throws IOException {
+        FileUtils.cleanDirectory(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+        FileUtils.deleteQuietly(directory);
+    }
+}
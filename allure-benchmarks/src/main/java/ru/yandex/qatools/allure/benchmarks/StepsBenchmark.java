@@ -0,0 +1,215 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.Allure;
+import ru.yandex.qatools.allure.AllureContext;
+import ru.yandex.qatools.allure.events.StepEvent;
+import ru.yandex.qatools.allure.events.StepFinishedEvent;
+import ru.yandex.qatools.allure.events.StepStartedEvent;
+import ru.yandex.qatools.allure.events.TestCaseFinishedEvent;
+import ru.yandex.qatools.allure.events.TestCaseStartedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteStartedEvent;
+import ru.yandex.qatools.allure.model.Step;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Allure#fire} for step events. Each thread runs its own test case, which is finished
+ * and started again every {@link #STEPS_PER_TEST_CASE} operations, so converting the steps
+ * at the end of test case is included. Shared root variants run one test case in all threads:
+ * its context is attached to each thread, so steps of all threads are added to the same root
+ * step, the way steps of pooled threads are. Run with <code>-prof gc</code> to see allocation
+ * per step.
+ *
+ * @see CompactStepsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class StepsBenchmark {
+
+    private static final int STEPS_PER_TEST_CASE = 1000;
+
+    private static final Allure ALLURE = Allure.LIFECYCLE;
+
+    @Param({"1", "8"})
+    public int depth;
+
+    @Benchmark
+    public void steps(ThreadTestCase testCase) {
+        fireSteps();
+        testCase.nextStep();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void steps8Threads(ThreadTestCase testCase) {
+        steps(testCase);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void steps64Threads(ThreadTestCase testCase) {
+        steps(testCase);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void sharedRootSteps8Threads(SharedTestCaseWorker worker) {
+        fireSteps();
+        worker.nextStep();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void sharedRootSteps64Threads(SharedTestCaseWorker worker) {
+        fireSteps();
+        worker.nextStep();
+    }
+
+    /**
+     * Steps started and finished the way the steps aspect does it.
+     */
+    @Benchmark
+    public void startFinishSteps(ThreadTestCase testCase) {
+        for (int i = 0; i < depth; i++) {
+            ALLURE.startStep("step", null);
+        }
+        for (int i = 0; i < depth; i++) {
+            ALLURE.finishStep(null);
+        }
+        testCase.nextStep();
+    }
+
+    private void fireSteps() {
+        for (int i = 0; i < depth; i++) {
+            ALLURE.fire(new StepStartedEvent("step"));
+        }
+        for (int i = 0; i < depth; i++) {
+            ALLURE.fire(new StepFinishedEvent());
+        }
+    }
+
+    /**
+     * Test case of one thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadTestCase {
+
+        private String suiteUid;
+
+        private int stepsCount;
+
+        /**
+         * @param resultsDirectory is set up before the suite is started
+         */
+        @Setup(Level.Trial)
+        public void setUp(ResultsDirectory resultsDirectory) {
+            suiteUid = Thread.currentThread().getName() + "-suite";
+            ALLURE.fire(new TestSuiteStartedEvent(suiteUid, StepsBenchmark.class.getSimpleName()));
+            ALLURE.fire(new TestCaseStartedEvent(suiteUid, "testCase"));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            ALLURE.fire(new TestCaseFinishedEvent());
+            ALLURE.fire(new TestSuiteFinishedEvent(suiteUid));
+        }
+
+        private void nextStep() {
+            if (++stepsCount % STEPS_PER_TEST_CASE == 0) {
+                ALLURE.fire(new TestCaseFinishedEvent());
+                ALLURE.fire(new ClearTestCasesEvent(suiteUid));
+                ALLURE.fire(new TestCaseStartedEvent(suiteUid, "testCase"));
+            }
+        }
+    }
+
+    /**
+     * Test case shared by all threads. It's started by the thread which sets up the state, the
+     * other threads get it by attaching the captured context.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedTestCase {
+
+        private final String suiteUid = "shared-suite";
+
+        private AllureContext context;
+
+        /**
+         * @param resultsDirectory is set up before the suite is started
+         */
+        @Setup(Level.Trial)
+        public void setUp(ResultsDirectory resultsDirectory) {
+            ALLURE.fire(new TestSuiteStartedEvent(suiteUid, StepsBenchmark.class.getSimpleName()));
+            ALLURE.fire(new TestCaseStartedEvent(suiteUid, "testCase"));
+            context = ALLURE.captureContext();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            try (AllureContext.Scope ignored = context.attach()) {
+                ALLURE.fire(new TestCaseFinishedEvent());
+            }
+            ALLURE.fire(new TestSuiteFinishedEvent(suiteUid));
+        }
+    }
+
+    /**
+     * Thread with the shared test case attached. Each thread removes finished steps from the
+     * shared root step every {@link #STEPS_PER_TEST_CASE} operations, so the root doesn't grow.
+     */
+    @State(Scope.Thread)
+    public static class SharedTestCaseWorker {
+
+        private AllureContext.Scope scope;
+
+        private int stepsCount;
+
+        @Setup(Level.Trial)
+        public void setUp(SharedTestCase testCase) {
+            scope = testCase.context.attach();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            scope.close();
+        }
+
+        private void nextStep() {
+            if (++stepsCount % STEPS_PER_TEST_CASE == 0) {
+                ALLURE.fire(new ClearStepsEvent());
+            }
+        }
+    }
+
+    /**
+     * Removes finished steps of the current step.
+     */
+    private static class ClearStepsEvent implements StepEvent {
+
+        @Override
+        public void process(Step step) {
+            synchronized (step) {
+                step.getSteps().clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.commons.AllureFileUtils;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeBinaryTestSuiteResult;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeTestSuiteResult;
+
+/**
+ * Writing test suite results by the adaptor and reading them by the report generator,
+ * for both XML and binary results formats. Written file is overwritten by each operation.
+ * Divide size of the read file by the read time to get parse throughput.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getResultsFormat()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TestSuiteResultBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int testCasesCount;
+
+    @Param({"xml", "binary"})
+    public String format;
+
+    private TestSuiteResult testSuite;
+
+    private File directory;
+
+    private File written;
+
+    private File read;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        testSuite = BenchmarkData.createTestSuite(testCasesCount);
+        directory = Files.createTempDirectory("allure-benchmarks").toFile();
+        String extension = isBinary() ? "alrb" : "xml";
+        written = new File(directory, "written-testsuite." + extension);
+        read = new File(directory, "read-testsuite." + extension);
+        write(read);
+    }
+
+    @Benchmark
+    public File writeTestSuite() {
+        write(written);
+        return written;
+    }
+
+    @Benchmark
+    public TestSuiteResult readTestSuite() throws IOException {
+        return isBinary() ? AllureFileUtils.readBinaryTestSuite(read) : AllureFileUtils.unmarshal(read);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private void write(File file) {
+        if (isBinary()) {
+            writeBinaryTestSuiteResult(testSuite, file);
+        } else {
+            writeTestSuiteResult(testSuite, file);
+        }
+    }
+
+    private boolean isBinary() {
+        return "binary".equals(format);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.qatools.allure.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.qatools.allure.config.UidGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UidGenerator} compared with {@link UUID#randomUUID()}, which uses the shared
+ * {@link java.security.SecureRandom} for each id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class UidBenchmark {
+
+    @Benchmark
+    public String generateUid() {
+        return UidGenerator.generateUid();
+    }
+
+    @Benchmark
+    public String generateShortUid() {
+        return UidGenerator.generateShortUid();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateUid8Threads() {
+        return UidGenerator.generateUid();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomUuid8Threads() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -5,8 +5,10 @@ import org.apache.commons.io.filefilter.CanReadFileFilter;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.RegexFileFilter;
 import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.model.TestCaseResult;
 import ru.yandex.qatools.allure.model.TestSuiteResult;
 
+import javax.xml.bind.DataBindingException;
 import javax.xml.bind.JAXB;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -55,10 +57,121 @@ public final class AllureFileUtils {
     }
 
     /**
-     * Find and unmarshal all test suite files in given directories.
+     * Unmarshal test cases fragment (sequence of test case elements written by the adaptor
+     * for unfinished suite) from given file. Fragment is wrapped into test suite named
+     * as fragment file, suite start and stop are calculated from test cases.
+     */
+    public static TestSuiteResult unmarshalTestCasesFragment(File fragment) throws IOException {
+        String header = String.format(
+                "<ns2:test-suite xmlns:ns2=\"urn:model.allure.qatools.yandex.ru\" start=\"0\" stop=\"0\">" +
+                        "<name>%s</name><test-cases>", fragment.getName());
+        String footer = "</test-cases></ns2:test-suite>";
+        try (InputStream stream = new SequenceInputStream(
+                new ByteArrayInputStream(header.getBytes(StandardCharsets.UTF_8)),
+                new SequenceInputStream(
+                        new FileInputStream(fragment),
+                        new ByteArrayInputStream(footer.getBytes(StandardCharsets.UTF_8))
+                ))) {
+            TestSuiteResult testSuite = unmarshal(stream);
+            long start = Long.MAX_VALUE;
+            long stop = 0;
+            for (TestCaseResult testCase : testSuite.getTestCases()) {
+                start = Math.min(start, testCase.getStart());
+                stop = Math.max(stop, testCase.getStop());
+            }
+            testSuite.setStart(start == Long.MAX_VALUE ? 0 : start);
+            testSuite.setStop(stop);
+            return testSuite;
+        } catch (DataBindingException e) {
+            throw new IOException("Could not unmarshal test cases fragment " + fragment, e);
+        }
+    }
+
+    /**
+     * Read binary test suite file, see {@link ResultsCodec}. Each record is read by its length
+     * first and decoded from the read bytes only, so a record can't be decoded past its end.
+     * Incomplete record at the end of the file (left by killed process) is ignored.
+     *
+     * @throws IOException if the file is not a binary results file, has a corrupted record
+     *                     or can't be read.
+     */
+    public static TestSuiteResult readBinaryTestSuite(File testSuite) throws IOException {
+        long fileLength = testSuite.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(testSuite)))) {
+            ResultsCodec.readHeader(in);
+            TestSuiteResult result = null;
+            byte[] buffer = new byte[0];
+            while (true) {
+                int length;
+                byte type;
+                try {
+                    length = in.readInt();
+                    type = in.readByte();
+                } catch (EOFException ignored) { // NOSONAR
+                    break;
+                }
+                if (length < 0 || length > fileLength) {
+                    throw new IOException("Corrupted record length " + length + " in binary results file " + testSuite);
+                }
+                boolean known = type == ResultsCodec.TEST_SUITE_RECORD && result == null
+                        || type == ResultsCodec.TEST_CASE_RECORD && result != null;
+                if (!known) {
+                    if (in.skipBytes(length) < length) {
+                        break;
+                    }
+                    continue;
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                try {
+                    in.readFully(buffer, 0, length);
+                } catch (EOFException ignored) { // NOSONAR
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+                try {
+                    if (type == ResultsCodec.TEST_SUITE_RECORD) {
+                        result = ResultsCodec.readTestSuite(record);
+                    } else {
+                        result.getTestCases().add(ResultsCodec.readTestCase(record));
+                    }
+                } catch (EOFException | RuntimeException e) {
+                    throw new IOException("Corrupted record in binary results file " + testSuite, e);
+                }
+            }
+            if (result == null) {
+                throw new IOException("Could not find test suite in binary results file " + testSuite);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns true if given file is binary test suite file, false otherwise.
+     *
+     * @see AllureConfig#binaryTestSuiteFileRegex
+     */
+    public static boolean isBinaryTestSuiteFile(File file) {
+        return file.getName().matches(AllureConfig.getInstance().getBinaryTestSuiteFileRegex());
+    }
+
+    /**
+     * Returns true if given file is test cases fragment, false otherwise.
+     *
+     * @see AllureConfig#testCasesFragmentFileRegex
+     */
+    public static boolean isTestCasesFragmentFile(File file) {
+        return file.getName().matches(AllureConfig.getInstance().getTestCasesFragmentFileRegex());
+    }
+
+    /**
+     * Find and unmarshal all test suite files in given directories. Binary test suite
+     * files are read too.
      *
      * @throws IOException if any occurs.
      * @see #unmarshal(File)
+     * @see #readBinaryTestSuite(File)
      */
     public static List<TestSuiteResult> unmarshalSuites(File... directories) throws IOException {
         List<TestSuiteResult> results = new ArrayList<>();
@@ -68,6 +181,9 @@ public final class AllureFileUtils {
         for (File file : files) {
             results.add(unmarshal(file));
         }
+        for (File file : listBinaryTestSuiteFiles(directories)) {
+            results.add(readBinaryTestSuite(file));
+        }
         return results;
     }
 
@@ -79,7 +195,33 @@ public final class AllureFileUtils {
      */
     public static List<File> listTestSuiteFiles(File... directories) {
         return listFilesByRegex(
-                AllureConfig.newInstance().getTestSuiteFileRegex(),
+                AllureConfig.getInstance().getTestSuiteFileRegex(),
+                directories
+        );
+    }
+
+    /**
+     * Returns list of files matches {@link AllureConfig#binaryTestSuiteFileRegex} in specified directories
+     *
+     * @param directories to find
+     * @return list of binary testSuite files in specified directories
+     */
+    public static List<File> listBinaryTestSuiteFiles(File... directories) {
+        return listFilesByRegex(
+                AllureConfig.getInstance().getBinaryTestSuiteFileRegex(),
+                directories
+        );
+    }
+
+    /**
+     * Returns list of files matches {@link AllureConfig#testCasesFragmentFileRegex} in specified directories
+     *
+     * @param directories to find
+     * @return list of test cases fragment files in specified directories
+     */
+    public static List<File> listTestCasesFragmentFiles(File... directories) {
+        return listFilesByRegex(
+                AllureConfig.getInstance().getTestCasesFragmentFileRegex(),
                 directories
         );
     }
@@ -92,11 +234,39 @@ public final class AllureFileUtils {
      */
     public static List<File> listAttachmentFiles(File... directories) {
         return listFilesByRegex(
-                AllureConfig.newInstance().getAttachmentFileRegex(),
+                AllureConfig.getInstance().getAttachmentFileRegex(),
                 directories
         );
     }
 
+    /**
+     * Returns true if given attachment file is compressed by the adaptor: its name ends with
+     * {@link AllureConfig#compressedAttachmentFileSuffix} and the rest of the name is an attachment
+     * name with extension.
+     */
+    public static boolean isCompressedAttachmentFile(File file) {
+        String suffix = AllureConfig.getInstance().getCompressedAttachmentFileSuffix();
+        String name = file.getName();
+        if (suffix.isEmpty() || !name.endsWith(suffix)) {
+            return false;
+        }
+        String source = name.substring(0, name.length() - suffix.length());
+        int extension = source.lastIndexOf('.');
+        return extension > source.lastIndexOf(AllureConfig.getInstance().getAttachmentFileSuffix())
+                && source.matches(AllureConfig.getInstance().getAttachmentFileRegex());
+    }
+
+    /**
+     * Returns attachment source for given attachment file: name of the file without
+     * {@link AllureConfig#compressedAttachmentFileSuffix} if the file is compressed.
+     */
+    public static String getAttachmentSource(File file) {
+        String name = file.getName();
+        return isCompressedAttachmentFile(file)
+                ? name.substring(0, name.length() - AllureConfig.getInstance().getCompressedAttachmentFileSuffix().length())
+                : name;
+    }
+
     /**
      * Returns list of files matches specified regex in specified directories
      *
@@ -0,0 +1,342 @@
+package ru.yandex.qatools.allure.commons;
+
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Description;
+import ru.yandex.qatools.allure.model.DescriptionType;
+import ru.yandex.qatools.allure.model.Failure;
+import ru.yandex.qatools.allure.model.Label;
+import ru.yandex.qatools.allure.model.Parameter;
+import ru.yandex.qatools.allure.model.ParameterKind;
+import ru.yandex.qatools.allure.model.SeverityLevel;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of Allure model used by the event journal and by binary results
+ * files. Strings are written as length-prefixed UTF-8, lists as count-prefixed sequences,
+ * enums by name.
+ * <p/>
+ * Binary results file starts with a header (magic bytes and format version) followed by records.
+ * Each record is the payload length (int), the record type ({@link #TEST_SUITE_RECORD}
+ * or {@link #TEST_CASE_RECORD}) and the payload. The first record is the test suite without
+ * test cases, the rest are its test cases. Records of unknown types are skipped.
+ * <p/>
+ * Read methods validate decoded lengths, counts and enum names and throw {@link IOException}
+ * for corrupted data. Strings are read in chunks, so a corrupted length can't make the reader
+ * allocate more than twice the bytes actually left in the input.
+ *
+ * @see AllureFileUtils#readBinaryTestSuite(java.io.File)
+ */
+public final class ResultsCodec {
+
+    public static final byte TEST_SUITE_RECORD = 1;
+
+    public static final byte TEST_CASE_RECORD = 2;
+
+    private static final int NULL = -1;
+
+    private static final int STRING_CHUNK_SIZE = 8192;
+
+    private static final byte[] MAGIC = {'A', 'L', 'R', 'B'};
+
+    private static final byte VERSION = 1;
+
+    ResultsCodec() {
+        throw new IllegalStateException("Don't instance ResultsCodec");
+    }
+
+    /**
+     * Write binary results file header.
+     */
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Read and check binary results file header.
+     *
+     * @throws IOException if the header is not valid or its version is not supported
+     */
+    public static void readHeader(DataInput in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary results file");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary results format version " + version);
+        }
+    }
+
+    /**
+     * Write test suite without test cases.
+     */
+    public static void writeTestSuite(DataOutput out, TestSuiteResult testSuite) throws IOException {
+        writeString(out, testSuite.getName());
+        writeString(out, testSuite.getTitle());
+        writeString(out, testSuite.getVersion());
+        out.writeLong(testSuite.getStart());
+        out.writeLong(testSuite.getStop());
+        writeDescription(out, testSuite.getDescription());
+        writeLabels(out, testSuite.getLabels());
+    }
+
+    public static TestSuiteResult readTestSuite(DataInput in) throws IOException {
+        TestSuiteResult testSuite = new TestSuiteResult()
+                .withName(readString(in))
+                .withTitle(readString(in))
+                .withVersion(readString(in))
+                .withStart(in.readLong())
+                .withStop(in.readLong())
+                .withDescription(readDescription(in));
+        readLabels(in, testSuite.getLabels());
+        return testSuite;
+    }
+
+    /**
+     * Write test case with all its steps and attachments.
+     */
+    public static void writeTestCase(DataOutput out, TestCaseResult testCase) throws IOException {
+        writeString(out, testCase.getName());
+        writeString(out, testCase.getTitle());
+        writeEnum(out, testCase.getStatus());
+        writeEnum(out, testCase.getSeverity());
+        out.writeLong(testCase.getStart());
+        out.writeLong(testCase.getStop());
+        writeDescription(out, testCase.getDescription());
+        writeFailure(out, testCase.getFailure());
+        writeLabels(out, testCase.getLabels());
+        writeParameters(out, testCase.getParameters());
+        writeAttachments(out, testCase.getAttachments());
+        writeSteps(out, testCase.getSteps());
+    }
+
+    public static TestCaseResult readTestCase(DataInput in) throws IOException {
+        TestCaseResult testCase = new TestCaseResult()
+                .withName(readString(in))
+                .withTitle(readString(in))
+                .withStatus(readEnum(in, Status.class))
+                .withSeverity(readEnum(in, SeverityLevel.class))
+                .withStart(in.readLong())
+                .withStop(in.readLong())
+                .withDescription(readDescription(in))
+                .withFailure(readFailure(in));
+        readLabels(in, testCase.getLabels());
+        readParameters(in, testCase.getParameters());
+        readAttachments(in, testCase.getAttachments());
+        readSteps(in, testCase.getSteps());
+        return testCase;
+    }
+
+    /**
+     * Write step with its attachments. Sub steps are written only if withSteps is true.
+     */
+    public static void writeStep(DataOutput out, Step step, boolean withSteps) throws IOException {
+        writeString(out, step.getName());
+        writeString(out, step.getTitle());
+        writeEnum(out, step.getStatus());
+        out.writeLong(step.getStart());
+        out.writeLong(step.getStop());
+        out.writeInt(step.getRepeat() == null ? NULL : step.getRepeat());
+        out.writeLong(step.getDuration() == null ? NULL : step.getDuration());
+        writeAttachments(out, step.getAttachments());
+        if (withSteps) {
+            writeSteps(out, step.getSteps());
+        } else {
+            out.writeInt(0);
+        }
+    }
+
+    public static Step readStep(DataInput in) throws IOException {
+        Step step = new Step()
+                .withName(readString(in))
+                .withTitle(readString(in))
+                .withStatus(readEnum(in, Status.class))
+                .withStart(in.readLong())
+                .withStop(in.readLong());
+        int repeat = in.readInt();
+        if (repeat != NULL) {
+            step.setRepeat(repeat);
+        }
+        long duration = in.readLong();
+        if (duration != NULL) {
+            step.setDuration(duration);
+        }
+        readAttachments(in, step.getAttachments());
+        readSteps(in, step.getSteps());
+        return step;
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupted string length " + length);
+        }
+        byte[] bytes = new byte[Math.min(length, STRING_CHUNK_SIZE)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+            }
+            in.readFully(bytes, read, bytes.length - read);
+            read = bytes.length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read count of the next list elements. Too big count isn't checked here, reading the elements
+     * fails at the end of the input.
+     */
+    private static int readCount(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupted elements count " + count);
+        }
+        return count;
+    }
+
+    private static void writeSteps(DataOutput out, List<Step> steps) throws IOException {
+        out.writeInt(steps.size());
+        for (Step step : steps) {
+            writeStep(out, step, true);
+        }
+    }
+
+    private static void readSteps(DataInput in, List<Step> steps) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            steps.add(readStep(in));
+        }
+    }
+
+    private static void writeAttachments(DataOutput out, List<Attachment> attachments) throws IOException {
+        out.writeInt(attachments.size());
+        for (Attachment attachment : attachments) {
+            writeString(out, attachment.getTitle());
+            writeString(out, attachment.getSource());
+            writeString(out, attachment.getType());
+            out.writeInt(attachment.getSize() == null ? NULL : attachment.getSize());
+        }
+    }
+
+    private static void readAttachments(DataInput in, List<Attachment> attachments) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            Attachment attachment = new Attachment()
+                    .withTitle(readString(in))
+                    .withSource(readString(in))
+                    .withType(readString(in));
+            int size = in.readInt();
+            attachments.add(size == NULL ? attachment : attachment.withSize(size));
+        }
+    }
+
+    private static void writeLabels(DataOutput out, List<Label> labels) throws IOException {
+        out.writeInt(labels.size());
+        for (Label label : labels) {
+            writeString(out, label.getName());
+            writeString(out, label.getValue());
+        }
+    }
+
+    private static void readLabels(DataInput in, List<Label> labels) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            labels.add(new Label().withName(readString(in)).withValue(readString(in)));
+        }
+    }
+
+    private static void writeParameters(DataOutput out, List<Parameter> parameters) throws IOException {
+        out.writeInt(parameters.size());
+        for (Parameter parameter : parameters) {
+            writeString(out, parameter.getName());
+            writeString(out, parameter.getValue());
+            writeEnum(out, parameter.getKind());
+        }
+    }
+
+    private static void readParameters(DataInput in, List<Parameter> parameters) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            parameters.add(new Parameter()
+                    .withName(readString(in))
+                    .withValue(readString(in))
+                    .withKind(readEnum(in, ParameterKind.class)));
+        }
+    }
+
+    private static void writeDescription(DataOutput out, Description description) throws IOException {
+        out.writeBoolean(description != null);
+        if (description != null) {
+            writeString(out, description.getValue());
+            writeEnum(out, description.getType());
+        }
+    }
+
+    private static Description readDescription(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new Description()
+                .withValue(readString(in))
+                .withType(readEnum(in, DescriptionType.class));
+    }
+
+    private static void writeFailure(DataOutput out, Failure failure) throws IOException {
+        out.writeBoolean(failure != null);
+        if (failure != null) {
+            writeString(out, failure.getMessage());
+            writeString(out, failure.getStackTrace());
+        }
+    }
+
+    private static Failure readFailure(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new Failure()
+                .withMessage(readString(in))
+                .withStackTrace(readString(in));
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    private static <T extends Enum<T>> T readEnum(DataInput in, Class<T> type) throws IOException {
+        String name = readString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + name, e);
+        }
+    }
+}
@@ -14,10 +14,14 @@ import java.util.List;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.getAttachmentSource;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.isCompressedAttachmentFile;
 import static ru.yandex.qatools.allure.commons.AllureFileUtils.listAttachmentFiles;
 import static ru.yandex.qatools.allure.commons.AllureFileUtils.listTestSuiteFiles;
 import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuiteFileName;
@@ -67,6 +71,16 @@ public class AllureFileUtilsTest {
         assertThat(listAttachmentFiles(directory).size(), equalTo(attachmentFiles.length));
     }
 
+    @Test
+    public void shouldDetectCompressedAttachmentFiles() {
+        assertTrue(isCompressedAttachmentFile(new File("a-attachment.txt.gz")));
+        assertThat(getAttachmentSource(new File("a-attachment.txt.gz")), equalTo("a-attachment.txt"));
+
+        assertFalse(isCompressedAttachmentFile(new File("a-attachment.gz")));
+        assertThat(getAttachmentSource(new File("a-attachment.gz")), equalTo("a-attachment.gz"));
+        assertFalse(isCompressedAttachmentFile(new File("a-attachment.txt")));
+    }
+
     @Test
     public void shouldUnmarshalSuiteFiles() throws Exception {
         TestSuiteResult first = new TestSuiteResult().withName("first");
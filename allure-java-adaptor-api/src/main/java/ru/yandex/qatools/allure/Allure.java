@@ -6,6 +6,7 @@ import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
 import ru.yandex.qatools.allure.events.ClearTestStorageEvent;
 import ru.yandex.qatools.allure.events.RemoveAttachmentsEvent;
 import ru.yandex.qatools.allure.events.StepEvent;
+import ru.yandex.qatools.allure.events.StepFailureEvent;
 import ru.yandex.qatools.allure.events.StepFinishedEvent;
 import ru.yandex.qatools.allure.events.StepStartedEvent;
 import ru.yandex.qatools.allure.events.TestCaseEvent;
@@ -15,15 +16,34 @@ import ru.yandex.qatools.allure.events.TestSuiteEvent;
 import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
 import ru.yandex.qatools.allure.experimental.LifecycleListener;
 import ru.yandex.qatools.allure.experimental.ListenersNotifier;
+import ru.yandex.qatools.allure.journal.EventJournal;
+import ru.yandex.qatools.allure.journal.EventJournalRecovery;
+import ru.yandex.qatools.allure.model.Failure;
 import ru.yandex.qatools.allure.model.Status;
 import ru.yandex.qatools.allure.model.Step;
 import ru.yandex.qatools.allure.model.TestCaseResult;
 import ru.yandex.qatools.allure.model.TestSuiteResult;
+import ru.yandex.qatools.allure.storages.StackTraceStorage;
+import ru.yandex.qatools.allure.storages.StepArena;
+import ru.yandex.qatools.allure.storages.StepArenaStorage;
 import ru.yandex.qatools.allure.storages.StepStorage;
 import ru.yandex.qatools.allure.storages.TestCaseStorage;
+import ru.yandex.qatools.allure.storages.TestCaseSuiteStorage;
+import ru.yandex.qatools.allure.storages.TestCasesFragmentStorage;
 import ru.yandex.qatools.allure.storages.TestSuiteStorage;
 import ru.yandex.qatools.allure.utils.AllureShutdownHook;
-
+import ru.yandex.qatools.allure.utils.AsyncTestSuiteResultWriter;
+import ru.yandex.qatools.allure.utils.AttachmentsBudget;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
+import ru.yandex.qatools.allure.utils.TestCasesFragment;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.getResultsDirectory;
 import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeTestSuiteResult;
 
 /**
@@ -36,36 +56,81 @@ public class Allure {
 
     public static final Allure LIFECYCLE = new Allure();
 
-    private static final Object TEST_SUITE_ADD_CHILD_LOCK = new Object();
-
     private final StepStorage stepStorage = new StepStorage();
 
     private final TestCaseStorage testCaseStorage = new TestCaseStorage();
 
     private final TestSuiteStorage testSuiteStorage = new TestSuiteStorage();
 
+    private final TestCaseSuiteStorage testCaseSuiteStorage = new TestCaseSuiteStorage();
+
+    private final TestCasesFragmentStorage testCasesFragmentStorage = new TestCasesFragmentStorage();
+
+    private final StackTraceStorage stackTraceStorage = new StackTraceStorage();
+
+    private final boolean testCasesFragmentsEnabled = AllureConfig.getInstance().isTestCasesFragmentsEnabled();
+
     private final ListenersNotifier notifier = new ListenersNotifier();
 
+    private final AsyncTestSuiteResultWriter resultsWriter = createResultsWriter();
+
+    private final EventJournal journal = createJournal();
+
+    private final StepArenaStorage stepArenaStorage;
+
     /**
      * Package private. Use Allure.LIFECYCLE singleton
      */
     Allure() {
+        this(AllureConfig.getInstance().isCompactStepsEnabled());
+    }
+
+    /**
+     * Package private. Use Allure.LIFECYCLE singleton
+     *
+     * @param compactSteps record steps of testCase threads to compact step arenas,
+     *                     see {@link StepArena}. Ignored if the journal is enabled.
+     */
+    Allure(boolean compactSteps) {
+        stepArenaStorage = createStepArenaStorage(compactSteps);
         Runtime.getRuntime().addShutdownHook(new Thread(
-                new AllureShutdownHook(testSuiteStorage.getStartedSuites())
+                new AllureShutdownHook(testSuiteStorage.getStartedSuites(), resultsWriter, notifier, journal)
         ));
     }
 
     /**
      * Process StepStartedEvent. New step will be created and added to
-     * stepStorage.
+     * stepStorage. If compact steps are enabled the step is recorded to the
+     * step arena of the testCase thread instead, see {@link StepArena}. Arena
+     * is flushed to the stepStorage when its top level step is finished or it
+     * reaches {@link StepArena#FLUSH_THRESHOLD}, so the step tree limits are applied
+     * while recording and steps of child threads keep their order.
      *
      * @param event to process
+     * @see StepStorage#createStep()
      */
     public void fire(StepStartedEvent event) {
-        Step step = new Step();
+        StepArena arena = getStepArena();
+        if (arena != null) {
+            flushStepArenaIfFull(arena);
+            if (event.getClass() == StepStartedEvent.class) {
+                arena.start(event.getName(), event.getTitle());
+            } else {
+                arena.start(null, null);
+                event.process(arena.getDetail());
+            }
+            notifier.fire(event);
+            return;
+        }
+
+        Step step = stepStorage.createStep();
         event.process(step);
         stepStorage.put(step);
 
+        if (journal != null && StepStorage.isRecorded(step)) {
+            journal.stepStarted(testCaseSuiteStorage.get(), step);
+        }
+
         notifier.fire(event);
     }
 
@@ -76,8 +141,23 @@ public class Allure {
      * @param event to process
      */
     public void fire(StepEvent event) {
+        StepArena arena = getStepArena();
+        if (arena != null && arena.hasOpenStep()) {
+            event.process(arena.getDetail());
+            notifier.fire(event);
+            return;
+        }
+        flushStepArena();
+
         Step step = stepStorage.getLast();
         event.process(step);
+        if (event instanceof StepFailureEvent) {
+            StepStorage.setFailure(step, ((StepFailureEvent) event).getThrowable());
+        }
+
+        if (journal != null && StepStorage.isRecorded(step)) {
+            journal.stepChanged(testCaseSuiteStorage.get(), step);
+        }
 
         notifier.fire(event);
     }
@@ -89,27 +169,56 @@ public class Allure {
      * @param event to process
      */
     public void fire(StepFinishedEvent event) {
-        Step step = stepStorage.adopt();
+        StepArena arena = getStepArena();
+        if (arena != null && arena.hasOpenStep()) {
+            if (event.getClass() == StepFinishedEvent.class) {
+                arena.finish(event.getTitle());
+            } else {
+                event.process(arena.getDetail());
+                arena.close();
+            }
+            flushStepArenaIfClosed(arena);
+            notifier.fire(event);
+            return;
+        }
+        flushStepArena();
+
+        Step step = stepStorage.getLast();
         event.process(step);
+        stepStorage.adopt();
+
+        if (journal != null && StepStorage.isRecorded(step)) {
+            journal.stepFinished(testCaseSuiteStorage.get(), step);
+        }
 
         notifier.fire(event);
     }
 
     /**
      * Process TestCaseStartedEvent. New testCase will be created and added
-     * to suite as child.
+     * to suite as child. Attachments budget of the testCase is started, see
+     * {@link AttachmentsBudget}. If compact steps are enabled new step arena
+     * is created for the current thread.
      *
      * @param event to process
      */
     public void fire(TestCaseStartedEvent event) {
         //init root step in parent thread if needed
         stepStorage.get();
+        if (stepArenaStorage != null) {
+            flushStepArena();
+            stepArenaStorage.set(new StepArena());
+        }
 
         TestCaseResult testCase = testCaseStorage.get();
         event.process(testCase);
+        testCaseSuiteStorage.set(event.getSuiteUid());
+        AttachmentsBudget.startTestCase();
 
-        synchronized (TEST_SUITE_ADD_CHILD_LOCK) {
-            testSuiteStorage.get(event.getSuiteUid()).getTestCases().add(testCase);
+        testSuiteStorage.get(event.getSuiteUid()).getTestCases().add(testCase);
+
+        if (journal != null) {
+            journal.testCaseStarted(event.getSuiteUid(), testCase);
         }
 
         notifier.fire(event);
@@ -117,7 +226,10 @@ public class Allure {
 
     /**
      * Process TestCaseEvent. You can change current testCase context
-     * using this method.
+     * using this method. Stack trace of the testCase failure is interned
+     * within the suite, see {@link StackTraceStorage}, unless test cases fragments
+     * are enabled: finished test cases are moved out of memory then, so interned
+     * stack traces would outlive them until the suite is finished.
      *
      * @param event to process
      */
@@ -125,14 +237,27 @@ public class Allure {
         TestCaseResult testCase = testCaseStorage.get();
         event.process(testCase);
 
+        Failure failure = testCase.getFailure();
+        if (failure != null && !testCasesFragmentsEnabled) {
+            failure.setStackTrace(stackTraceStorage.intern(testCaseSuiteStorage.get(), failure.getStackTrace()));
+        }
+
+        if (journal != null) {
+            journal.testCaseChanged(testCaseSuiteStorage.get(), testCase);
+        }
+
         notifier.fire(event);
     }
 
     /**
-     * Process TestCaseFinishedEvent. Add steps and attachments from
-     * top step from stepStorage to current testCase, then remove testCase
+     * Process TestCaseFinishedEvent. Steps recorded to the step arena are
+     * converted and summaries of not recorded steps are finished, then steps and attachments from
+     * top step from stepStorage are added to current testCase, then remove testCase
      * and step from stores. Also remove attachments matches removeAttachments
-     * config.
+     * config. Staged attachments left in the testCase are written to the
+     * results directory. If test cases fragments are enabled testCase will be moved from
+     * its suite to the suite test cases fragment. Root step is released, so
+     * child threads don't retain steps of the finished testCase.
      *
      * @param event to process
      */
@@ -140,17 +265,33 @@ public class Allure {
         TestCaseResult testCase = testCaseStorage.get();
         event.process(testCase);
 
-        Step root = stepStorage.pollLast();
+        flushStepArena();
+        stepStorage.summarize();
+        Step root = stepStorage.getLast();
 
         if (Status.PASSED.equals(testCase.getStatus())) {
-            new RemoveAttachmentsEvent(AllureConfig.newInstance().getRemoveAttachments()).process(root);
+            new RemoveAttachmentsEvent(AllureConfig.getInstance().getRemoveAttachmentsPattern()).process(root);
         }
 
         testCase.getSteps().addAll(root.getSteps());
         testCase.getAttachments().addAll(root.getAttachments());
+        AttachmentsStaging.commit(testCase);
 
-        stepStorage.remove();
+        String suiteUid = testCaseSuiteStorage.get();
+        if (journal != null) {
+            journal.testCaseFinished(suiteUid, testCase);
+        }
+        if (testCasesFragmentsEnabled && suiteUid != null) {
+            moveToFragment(suiteUid, testCase);
+        }
+
+        stepStorage.release();
+        if (stepArenaStorage != null) {
+            stepArenaStorage.remove();
+        }
         testCaseStorage.remove();
+        testCaseSuiteStorage.remove();
+        AttachmentsBudget.finishTestCase();
 
         notifier.fire(event);
     }
@@ -165,13 +306,18 @@ public class Allure {
         TestSuiteResult testSuite = testSuiteStorage.get(event.getUid());
         event.process(testSuite);
 
+        if (journal != null) {
+            journal.testSuiteChanged(event.getUid(), testSuite);
+        }
+
         notifier.fire(event);
     }
 
     /**
      * Process TestSuiteFinishedEvent. Using event.getUid() to access testSuite.
      * Then remove this suite from storage and marshal testSuite to xml using
-     * AllureResultsUtils.writeTestSuiteResult()
+     * AllureResultsUtils.writeTestSuiteResult(). If async writer is enabled
+     * testSuite will be marshalled by {@link AsyncTestSuiteResultWriter}
      *
      * @param event to process
      */
@@ -183,23 +329,51 @@ public class Allure {
             return;
         }
         event.process(testSuite);
+        stackTraceStorage.remove(suiteUid);
 
         testSuite.setVersion(getVersion());
         testSuite.getLabels().add(AllureModelUtils.createProgrammingLanguageLabel());
 
-        writeTestSuiteResult(testSuite);
+        TestCasesFragment testCases;
+        synchronized (testSuite) {
+            testCases = testCasesFragmentStorage.remove(suiteUid);
+            if (testCases != null) {
+                testCases.close();
+            }
+        }
+
+        Runnable onWritten = createSuiteWrittenCallback(suiteUid);
+        if (resultsWriter == null) {
+            writeTestSuiteResult(testSuite, testCases);
+            onWritten.run();
+        } else {
+            resultsWriter.write(testSuite, testCases, onWritten);
+        }
+
+        if (stepStorage.getLeakDetector() != null) {
+            stepStorage.getLeakDetector().report();
+        }
 
         notifier.fire(event);
     }
 
     /**
-     * This method just clear current step context.
+     * This method just clear current step context. Staged attachments of cleared
+     * steps are discarded, see {@link StepStorage#clear()}.
      *
      * @param event will be ignored
      */
     @SuppressWarnings("unused")
     public void fire(ClearStepStorageEvent event) {
-        stepStorage.remove();
+        StepArena arena = getStepArena();
+        if (arena != null) {
+            arena.clear();
+        }
+        stepStorage.clear();
+
+        if (journal != null) {
+            journal.stepsCleared(testCaseSuiteStorage.get());
+        }
 
         notifier.fire(event);
     }
@@ -213,9 +387,57 @@ public class Allure {
     public void fire(ClearTestStorageEvent event) {
         testCaseStorage.remove();
 
+        if (journal != null) {
+            journal.testCaseCleared(testCaseSuiteStorage.get());
+        }
+
         notifier.fire(event);
     }
 
+    /**
+     * Start new step with given name and title. Same as firing {@link StepStartedEvent},
+     * but if compact steps are enabled the event is created only if some listener is
+     * subscribed to it.
+     *
+     * @param name  step name
+     * @param title step title, can be null
+     */
+    public void startStep(String name, String title) {
+        StepArena arena = getStepArena();
+        if (arena == null || notifier.isSubscribed(StepStartedEvent.class)) {
+            fire(new StepStartedEvent(name).withTitle(title));
+            return;
+        }
+        flushStepArenaIfFull(arena);
+        arena.start(name, title);
+    }
+
+    /**
+     * Finish the current step, set its title if it's specified. Same as firing
+     * {@link StepFinishedEvent}, but if compact steps are enabled the event is created
+     * only if some listener is subscribed to it.
+     *
+     * @param title step title, can be null
+     */
+    public void finishStep(String title) {
+        StepArena arena = getStepArena();
+        if (arena == null || !arena.hasOpenStep() || notifier.isSubscribed(StepFinishedEvent.class)) {
+            fire(new StepFinishedEvent().withTitle(title));
+            return;
+        }
+        arena.finish(title);
+        flushStepArenaIfClosed(arena);
+    }
+
+    /**
+     * Returns true if steps of testCase threads are recorded to compact step arenas.
+     *
+     * @see ru.yandex.qatools.allure.config.AllureConfig#isCompactStepsEnabled()
+     */
+    public boolean isCompactStepsEnabled() {
+        return stepArenaStorage != null;
+    }
+
     /**
      * Experimental. Can be removed in next releases.
      * <p/>
@@ -230,16 +452,74 @@ public class Allure {
     }
 
     /**
-     * Package private. For tests only.
+     * Capture Allure context of the current thread: current test case and step. Attach
+     * it in other threads to add steps to the current test case, see {@link AllureContext}.
+     *
+     * @return captured context
+     */
+    public AllureContext captureContext() {
+        return AllureContext.capture(this);
+    }
+
+    /**
+     * Wrap given task, so it runs with Allure context of the current thread.
+     *
+     * @param task to wrap
+     * @return wrapped task
+     * @see #captureContext()
+     */
+    public Runnable wrap(Runnable task) {
+        return captureContext().wrap(task);
+    }
+
+    /**
+     * Wrap given task, so it runs with Allure context of the current thread.
+     *
+     * @param task to wrap
+     * @return wrapped task
+     * @see #captureContext()
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return captureContext().wrap(task);
+    }
+
+    /**
+     * Wrap given executor service, so each submitted task runs with Allure context
+     * of the thread that submitted it. Wrapped executor can be passed to
+     * <code>CompletableFuture.*Async</code> methods as well.
+     *
+     * @param executor to wrap
+     * @return wrapped executor service
+     * @see #captureContext()
+     */
+    public ExecutorService wrap(ExecutorService executor) {
+        return new ContextPropagatingExecutorService(this, executor);
+    }
+
+    /**
+     * Returns async test suite results writer, can be used to monitor its queue depth
+     * and write time.
+     *
+     * @return results writer or null if async writer is disabled
+     * @see ru.yandex.qatools.allure.config.AllureConfig#isAsyncWriterEnabled()
+     */
+    public AsyncTestSuiteResultWriter getResultsWriter() {
+        return resultsWriter;
+    }
+
+    /**
+     * Package private. Steps recorded to the step arena of the current
+     * thread are moved to the stepStorage first.
      *
      * @return stepStorage
      */
     StepStorage getStepStorage() {
+        flushStepArena();
         return stepStorage;
     }
 
     /**
-     * Package private. For tests only.
+     * Package private.
      *
      * @return testCaseStorage
      */
@@ -247,6 +527,15 @@ public class Allure {
         return testCaseStorage;
     }
 
+    /**
+     * Package private.
+     *
+     * @return testCaseSuiteStorage
+     */
+    TestCaseSuiteStorage getTestCaseSuiteStorage() {
+        return testCaseSuiteStorage;
+    }
+
     /**
      * Package private. For tests only.
      *
@@ -263,6 +552,142 @@ public class Allure {
      * @return current Allure version
      */
     public String getVersion() {
-        return AllureConfig.newInstance().getVersion();
+        return AllureConfig.getInstance().getVersion();
+    }
+
+    /**
+     * Append given testCase to the test cases fragment of specified suite, then
+     * remove it from the suite. Holds the suite lock, the same one
+     * {@link #fire(TestSuiteFinishedEvent)} takes to close the fragment, so nothing
+     * is appended once the suite is removed from the storage: the testCase stays
+     * in the suite and is written with it.
+     *
+     * @param suiteUid uid of the suite given testCase belongs to
+     * @param testCase finished testCase
+     */
+    private void moveToFragment(String suiteUid, TestCaseResult testCase) {
+        TestSuiteResult testSuite = testSuiteStorage.find(suiteUid);
+        if (testSuite == null) {
+            return;
+        }
+        synchronized (testSuite) {
+            if (testSuiteStorage.find(suiteUid) != testSuite) {
+                return;
+            }
+            TestCasesFragment fragment = testCasesFragmentStorage.get(suiteUid);
+            if (journal != null && fragment.isEmpty()) {
+                journal.testCasesFragmentCreated(suiteUid, fragment.getFileName());
+            }
+            if (!fragment.append(testCase)) {
+                return;
+            }
+            List<TestCaseResult> testCases = testSuite.getTestCases();
+            synchronized (testCases) {
+                removeSame(testCases, testCase);
+            }
+        }
+    }
+
+    /**
+     * Remove the same (not just equal) instance from given list.
+     */
+    private static <T> void removeSame(List<T> list, T value) {
+        Iterator<T> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == value) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates callback which records in the journal that test suite with given uid is written.
+     */
+    private Runnable createSuiteWrittenCallback(final String suiteUid) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (journal != null) {
+                    journal.testSuiteFinished(suiteUid);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns step arena of the current thread or null if the thread doesn't record
+     * steps to an arena.
+     */
+    private StepArena getStepArena() {
+        return stepArenaStorage == null ? null : stepArenaStorage.get();
+    }
+
+    /**
+     * Move steps recorded to the step arena of the current thread to the stepStorage.
+     */
+    private void flushStepArena() {
+        StepArena arena = getStepArena();
+        if (arena != null && !arena.isEmpty()) {
+            arena.flush(stepStorage);
+        }
+    }
+
+    /**
+     * Move steps of the arena to the stepStorage if its top level step is finished,
+     * so the step is added to the testCase at the same moment as without the arena.
+     */
+    private void flushStepArenaIfClosed(StepArena arena) {
+        if (!arena.hasOpenStep()) {
+            arena.flush(stepStorage);
+        }
+    }
+
+    /**
+     * Move steps of the arena to the stepStorage if the arena is full, so steps of a long
+     * top level step are not kept in memory over the step tree limits.
+     */
+    private void flushStepArenaIfFull(StepArena arena) {
+        if (arena.size() >= StepArena.FLUSH_THRESHOLD) {
+            arena.flush(stepStorage);
+        }
+    }
+
+    /**
+     * Creates step arena storage if compact steps are enabled. Compact steps
+     * are not used with the journal: it records each step event.
+     *
+     * @return created storage or null if compact steps are disabled
+     */
+    private StepArenaStorage createStepArenaStorage(boolean compactSteps) {
+        return compactSteps && journal == null ? new StepArenaStorage() : null;
+    }
+
+    /**
+     * Creates event journal if it's enabled in config. Journals left by crashed
+     * processes are recovered first, so it's not done on a test thread.
+     *
+     * @return created journal or null if journal is disabled
+     */
+    private static EventJournal createJournal() {
+        AllureConfig config = AllureConfig.getInstance();
+        if (!config.isJournalEnabled()) {
+            return null;
+        }
+        File directory = getResultsDirectory();
+        EventJournalRecovery.recover(directory);
+        return new EventJournal(directory, config.getJournalSegmentSize());
+    }
+
+    /**
+     * Creates async test suite results writer if it's enabled in config.
+     *
+     * @return created writer or null if async writer is disabled
+     */
+    private static AsyncTestSuiteResultWriter createResultsWriter() {
+        AllureConfig config = AllureConfig.getInstance();
+        return config.isAsyncWriterEnabled()
+                ? new AsyncTestSuiteResultWriter(config.getAsyncWriterThreads(), config.getAsyncWriterQueueSize())
+                : null;
     }
 }
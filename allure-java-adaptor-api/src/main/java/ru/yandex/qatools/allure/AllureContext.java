@@ -0,0 +1,165 @@
+package ru.yandex.qatools.allure;
+
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+
+/**
+ * Captured Allure context of a thread: current test case, its suite and current step.
+ * Storages are inheritable thread locals, so the context reaches only newly spawned
+ * threads. Use this class to pass the context to pooled threads explicitly:
+ * <pre>
+ * AllureContext context = Allure.LIFECYCLE.captureContext();
+ * ...
+ * //in the worker thread
+ * try (AllureContext.Scope ignored = context.attach()) {
+ *     //steps are added to the step which was current when the context was captured
+ * }
+ * </pre>
+ * or wrap tasks and executors with {@link Allure#wrap(Runnable)}, {@link Allure#wrap(Callable)}
+ * and {@link Allure#wrap(java.util.concurrent.ExecutorService)}.
+ * <p/>
+ * The same context can be attached to many threads at the same time. Each thread gets its own
+ * copy of the step stack, so steps started in worker threads are added to the captured step
+ * as its children the same way as steps of child threads.
+ * <p/>
+ * If the thread had no context before attach (no test case and no steps), the context is
+ * removed when the scope is closed, so pooled threads don't retain anything between tasks.
+ *
+ * @see Allure#captureContext()
+ */
+public final class AllureContext {
+
+    private final Allure lifecycle;
+
+    private final Deque<Step> steps;
+
+    private final TestCaseResult testCase;
+
+    private final String suiteUid;
+
+    private AllureContext(Allure lifecycle, Deque<Step> steps, TestCaseResult testCase, String suiteUid) {
+        this.lifecycle = lifecycle;
+        this.steps = steps;
+        this.testCase = testCase;
+        this.suiteUid = suiteUid;
+    }
+
+    /**
+     * Capture context of the current thread.
+     *
+     * @param lifecycle to capture context of
+     * @return captured context
+     */
+    static AllureContext capture(Allure lifecycle) {
+        return new AllureContext(
+                lifecycle,
+                new ArrayDeque<>(lifecycle.getStepStorage().get()),
+                lifecycle.getTestCaseStorage().get(),
+                lifecycle.getTestCaseSuiteStorage().get()
+        );
+    }
+
+    /**
+     * Attach this context to the current thread. Previous context of the thread is
+     * restored when returned scope is closed.
+     *
+     * @return scope to close
+     */
+    public Scope attach() {
+        String previousSuiteUid = lifecycle.getTestCaseSuiteStorage().get();
+        AllureContext previous = null;
+        if (previousSuiteUid != null || !lifecycle.getStepStorage().isEmpty()) {
+            previous = new AllureContext(
+                    lifecycle,
+                    lifecycle.getStepStorage().get(),
+                    lifecycle.getTestCaseStorage().get(),
+                    previousSuiteUid
+            );
+        }
+        apply(new ArrayDeque<>(steps));
+        return new Scope(lifecycle, previous);
+    }
+
+    /**
+     * Wrap given task, so it runs with this context attached.
+     *
+     * @param task to wrap
+     * @return wrapped task
+     */
+    public Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try (Scope ignored = attach()) {
+                    task.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wrap given task, so it runs with this context attached.
+     *
+     * @param task to wrap
+     * @return wrapped task
+     */
+    public <T> Callable<T> wrap(final Callable<T> task) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                try (Scope ignored = attach()) {
+                    return task.call();
+                }
+            }
+        };
+    }
+
+    private void apply(Deque<Step> stepsToApply) {
+        lifecycle.getStepStorage().set(stepsToApply);
+        lifecycle.getTestCaseStorage().set(testCase);
+        lifecycle.getTestCaseSuiteStorage().set(suiteUid);
+    }
+
+    /**
+     * Attached context. Closing the scope restores previous context of the thread.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Allure lifecycle;
+
+        private final AllureContext previous;
+
+        private boolean closed;
+
+        /**
+         * @param previous context to restore or null to remove the context
+         */
+        private Scope(Allure lifecycle, AllureContext previous) {
+            this.lifecycle = lifecycle;
+            this.previous = previous;
+        }
+
+        /**
+         * Restore previous context of the thread. Scope must be closed by the same thread
+         * it's attached in. Repeated calls do nothing.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous != null) {
+                previous.apply(previous.steps);
+                return;
+            }
+            lifecycle.getStepStorage().remove();
+            lifecycle.getTestCaseStorage().remove();
+            lifecycle.getTestCaseSuiteStorage().remove();
+        }
+    }
+}
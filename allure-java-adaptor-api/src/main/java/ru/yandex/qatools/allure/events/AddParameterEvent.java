@@ -4,6 +4,8 @@ import ru.yandex.qatools.allure.model.Parameter;
 import ru.yandex.qatools.allure.model.ParameterKind;
 import ru.yandex.qatools.allure.model.TestCaseResult;
 
+import java.util.List;
+
 /**
  * Using to add parameters to TestCase. Parameters will be shown
  * at Allure report.
@@ -39,16 +41,28 @@ public class AddParameterEvent extends AbstractTestCaseAddParameterEvent {
     }
 
     /**
-     * Add parameter to testCase
+     * Add parameter to testCase. Parameter is not added if the last added parameter
+     * with the same name and kind has the same value.
      *
      * @param context which can be changed
      */
     @Override
     public void process(TestCaseResult context) {
-        context.getParameters().add(new Parameter()
+        ParameterKind kind = ParameterKind.valueOf(getKind());
+        List<Parameter> parameters = context.getParameters();
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            Parameter parameter = parameters.get(i);
+            if (kind == parameter.getKind() && getName().equals(parameter.getName())) {
+                if (getValue() == null ? parameter.getValue() == null : getValue().equals(parameter.getValue())) {
+                    return;
+                }
+                break;
+            }
+        }
+        parameters.add(new Parameter()
                         .withName(getName())
                         .withValue(getValue())
-                        .withKind(ParameterKind.valueOf(getKind()))
+                        .withKind(kind)
         );
     }
 }
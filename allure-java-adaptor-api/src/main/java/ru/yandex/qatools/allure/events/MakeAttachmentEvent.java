@@ -2,6 +2,7 @@ package ru.yandex.qatools.allure.events;
 
 import ru.yandex.qatools.allure.model.Attachment;
 import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
 
 import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeAttachmentSafely;
 
@@ -31,13 +32,16 @@ public class MakeAttachmentEvent extends AbstractMakeAttachmentEvent {
     /**
      * Write attachment from event using
      * {@link ru.yandex.qatools.allure.utils.AllureResultsUtils#writeAttachmentSafely(byte[], String, String)}
-     * Then add attachment to step attachments.
+     * or stage it using {@link AttachmentsStaging#stageSafely(byte[], String, String)} if staging
+     * is enabled. Then add attachment to step attachments.
      *
      * @param step to change
      */
     @Override
     public void process(Step step) {
-        Attachment attachment = writeAttachmentSafely(getAttachment(), getTitle(), getType());
+        Attachment attachment = AttachmentsStaging.isEnabled()
+                ? AttachmentsStaging.stageSafely(getAttachment(), getTitle(), getType())
+                : writeAttachmentSafely(getAttachment(), getTitle(), getType());
         step.getAttachments().add(attachment);
     }
 
@@ -0,0 +1,76 @@
+package ru.yandex.qatools.allure.events;
+
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeAttachmentSafely;
+
+/**
+ * Using to add existing files as attachments to tests. File is copied (or hard linked
+ * if enabled) to the results directory without loading it to memory.
+ *
+ * @see ru.yandex.qatools.allure.events.StepEvent
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isAttachmentsHardLinksEnabled()
+ */
+public class MakeFileAttachmentEvent implements StepEvent {
+
+    private final File attachment;
+
+    private final String title;
+
+    private final String type;
+
+    /**
+     * Constructs an new event with specified attachment file, title and MIME-type
+     *
+     * @param attachment file with attachment content
+     * @param title      of attachment. Shown at report as name of attachment
+     * @param type       MIME-type of attachment, if empty it will be detected from the content
+     */
+    public MakeFileAttachmentEvent(File attachment, String title, String type) {
+        this.attachment = attachment;
+        this.title = title;
+        this.type = type;
+    }
+
+    /**
+     * Constructs an new event with specified attachment path, title and MIME-type
+     *
+     * @see #MakeFileAttachmentEvent(File, String, String)
+     */
+    public MakeFileAttachmentEvent(Path attachment, String title, String type) {
+        this(attachment.toFile(), title, type);
+    }
+
+    /**
+     * Write attachment from event using
+     * {@link ru.yandex.qatools.allure.utils.AllureResultsUtils#writeAttachmentSafely(File, String, String)}
+     * or stage it using {@link AttachmentsStaging#stageSafely(File, String, String)} if staging
+     * is enabled. Then add attachment to step attachments.
+     *
+     * @param step to change
+     */
+    @Override
+    public void process(Step step) {
+        Attachment written = AttachmentsStaging.isEnabled()
+                ? AttachmentsStaging.stageSafely(attachment, title, type)
+                : writeAttachmentSafely(attachment, title, type);
+        step.getAttachments().add(written);
+    }
+
+    public File getAttachment() {
+        return attachment;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.qatools.allure.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeAttachmentSafely;
+
+/**
+ * Using to add attachments from streams to tests. Attachment content is copied
+ * to the results directory without loading it to memory.
+ *
+ * @see ru.yandex.qatools.allure.events.StepEvent
+ * @see ru.yandex.qatools.allure.events.MakeAttachmentEvent
+ */
+public class MakeStreamAttachmentEvent implements StepEvent {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MakeStreamAttachmentEvent.class);
+
+    private final InputStream attachment;
+
+    private final String title;
+
+    private final String type;
+
+    /**
+     * Constructs an new event with specified attachment stream, title and MIME-type.
+     * Stream will be closed after processing.
+     *
+     * @param attachment stream with attachment content
+     * @param title      of attachment. Shown at report as name of attachment
+     * @param type       MIME-type of attachment, if empty it will be detected from the content
+     */
+    public MakeStreamAttachmentEvent(InputStream attachment, String title, String type) {
+        this.attachment = attachment;
+        this.title = title;
+        this.type = type;
+    }
+
+    /**
+     * Constructs an new event with specified attachment channel, title and MIME-type.
+     * Channel will be closed after processing.
+     *
+     * @param attachment channel with attachment content
+     * @param title      of attachment. Shown at report as name of attachment
+     * @param type       MIME-type of attachment, if empty it will be detected from the content
+     */
+    public MakeStreamAttachmentEvent(ReadableByteChannel attachment, String title, String type) {
+        this(Channels.newInputStream(attachment), title, type);
+    }
+
+    /**
+     * Write attachment from event using
+     * {@link ru.yandex.qatools.allure.utils.AllureResultsUtils#writeAttachmentSafely(InputStream, String, String)}
+     * or stage it using {@link AttachmentsStaging#stageSafely(InputStream, String, String)} if staging
+     * is enabled. Then add attachment to step attachments and close the stream.
+     *
+     * @param step to change
+     */
+    @Override
+    public void process(Step step) {
+        try {
+            Attachment written = AttachmentsStaging.isEnabled()
+                    ? AttachmentsStaging.stageSafely(attachment, title, type)
+                    : writeAttachmentSafely(attachment, title, type);
+            step.getAttachments().add(written);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            attachment.close();
+        } catch (IOException e) {
+            LOGGER.trace("Can't close attachment stream " + title, e);
+        }
+    }
+
+    public InputStream getAttachment() {
+        return attachment;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
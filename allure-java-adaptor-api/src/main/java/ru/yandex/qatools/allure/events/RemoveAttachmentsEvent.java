@@ -22,7 +22,16 @@ public class RemoveAttachmentsEvent extends AbstractRemoveAttachmentEvent {
      * @param regex with using to match attachments source
      */
     public RemoveAttachmentsEvent(String regex) {
-        setPattern(Pattern.compile(regex));
+        this(Pattern.compile(regex));
+    }
+
+    /**
+     * Constructs an new event with specified precompiled pattern.
+     *
+     * @param pattern with using to match attachments source
+     */
+    public RemoveAttachmentsEvent(Pattern pattern) {
+        setPattern(pattern);
     }
 
     /**
@@ -14,12 +14,27 @@ import ru.yandex.qatools.allure.model.Step;
 public class StepFinishedEvent extends AbstractStepFinishedEvent {
 
     /**
-     * Sets stop time to specified step
+     * Sets stop time to specified step. Sets title if it's specified, so titles
+     * can be rendered when the step is finished.
      *
      * @param step which will be changed
      */
     @Override
     public void process(Step step) {
         step.setStop(System.currentTimeMillis());
+        if (getTitle() != null) {
+            step.setTitle(getTitle());
+        }
+    }
+
+    /**
+     * Sets title using fluent-api
+     *
+     * @param title value to set
+     * @return modified instance
+     */
+    public StepFinishedEvent withTitle(String title) {
+        setTitle(title);
+        return this;
     }
 }
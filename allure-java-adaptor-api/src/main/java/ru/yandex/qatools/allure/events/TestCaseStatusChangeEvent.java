@@ -3,9 +3,7 @@ package ru.yandex.qatools.allure.events;
 import ru.yandex.qatools.allure.model.Failure;
 import ru.yandex.qatools.allure.model.Status;
 import ru.yandex.qatools.allure.model.TestCaseResult;
-
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import ru.yandex.qatools.allure.utils.StackTraceFormatter;
 
 /**
  * Abstract TestCase status event
@@ -71,23 +69,14 @@ public abstract class TestCaseStatusChangeEvent extends AbstractTestCaseStatusCh
     }
 
     /**
-     * <p>Gets the stack trace from a Throwable as a String.</p>
-     * <p/>
-     * <p>The result of this method vary by JDK version as this method
-     * uses {@link Throwable#printStackTrace(java.io.PrintWriter)}.
-     * On JDK1.3 and earlier, the cause exception will not be shown
-     * unless the specified throwable alters printStackTrace.</p>
+     * Gets the stack trace from a Throwable as a String. Frames are filtered and
+     * cut as configured, see {@link StackTraceFormatter}.
      *
      * @param throwable the <code>Throwable</code> to be examined
-     * @return the stack trace as generated by the exception's
-     * <code>printStackTrace(PrintWriter)</code> method
+     * @return the stack trace
      */
-    @SuppressWarnings("all")
     private String getStackTrace(Throwable throwable) {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw, true);
-        throwable.printStackTrace(pw);
-        return sw.getBuffer().toString();
+        return StackTraceFormatter.getInstance().format(throwable);
     }
 
     /**
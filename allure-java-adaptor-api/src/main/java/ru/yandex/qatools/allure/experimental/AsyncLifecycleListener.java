@@ -0,0 +1,322 @@
+package ru.yandex.qatools.allure.experimental;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
+import ru.yandex.qatools.allure.events.ClearTestStorageEvent;
+import ru.yandex.qatools.allure.events.StepEvent;
+import ru.yandex.qatools.allure.events.StepFinishedEvent;
+import ru.yandex.qatools.allure.events.StepStartedEvent;
+import ru.yandex.qatools.allure.events.TestCaseEvent;
+import ru.yandex.qatools.allure.events.TestCaseFinishedEvent;
+import ru.yandex.qatools.allure.events.TestCaseStartedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteEvent;
+import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is an internal Allure component.
+ * <p/>
+ * Notifies given listener by its own daemon thread. Events are put to a bounded buffer
+ * and processed in the same order as they were fired. When the buffer is full the event
+ * is handled according to {@link OverflowPolicy}.
+ *
+ * @see ru.yandex.qatools.allure.experimental.ListenersNotifier
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isAsyncListenersEnabled()
+ */
+public class AsyncLifecycleListener extends LifecycleListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLifecycleListener.class);
+
+    private static final Notification STOP = new Notification(null, null);
+
+    private final LifecycleListener listener;
+
+    private final BlockingQueue<Notification> buffer;
+
+    private final OverflowPolicy policy;
+
+    private final int sampleRate;
+
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicInteger enqueuing = new AtomicInteger();
+
+    private final Thread worker;
+
+    private volatile boolean stopped;
+
+    /**
+     * Create async wrapper for given listener and start its thread.
+     *
+     * @param listener   to notify
+     * @param bufferSize max count of events waiting to be processed
+     * @param policy     what to do with events when the buffer is full
+     * @param sampleRate every n-th overflowed event is kept if {@link OverflowPolicy#SAMPLE} is used
+     */
+    public AsyncLifecycleListener(LifecycleListener listener, int bufferSize, OverflowPolicy policy, int sampleRate) {
+        this.listener = listener;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "allure-listener-" + listener.getClass().getSimpleName());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public boolean isSubscribed(Class<?> eventType) {
+        return listener.isSubscribed(eventType);
+    }
+
+    @Override
+    public void fire(StepStartedEvent event) {
+        enqueue(new Notification(EventKind.STEP_STARTED, event));
+    }
+
+    @Override
+    public void fire(StepEvent event) {
+        enqueue(new Notification(EventKind.STEP, event));
+    }
+
+    @Override
+    public void fire(StepFinishedEvent event) {
+        enqueue(new Notification(EventKind.STEP_FINISHED, event));
+    }
+
+    @Override
+    public void fire(TestCaseStartedEvent event) {
+        enqueue(new Notification(EventKind.TEST_CASE_STARTED, event));
+    }
+
+    @Override
+    public void fire(TestCaseEvent event) {
+        enqueue(new Notification(EventKind.TEST_CASE, event));
+    }
+
+    @Override
+    public void fire(TestCaseFinishedEvent event) {
+        enqueue(new Notification(EventKind.TEST_CASE_FINISHED, event));
+    }
+
+    @Override
+    public void fire(TestSuiteEvent event) {
+        enqueue(new Notification(EventKind.TEST_SUITE, event));
+    }
+
+    @Override
+    public void fire(TestSuiteFinishedEvent event) {
+        enqueue(new Notification(EventKind.TEST_SUITE_FINISHED, event));
+    }
+
+    @Override
+    public void fire(ClearStepStorageEvent event) {
+        enqueue(new Notification(EventKind.CLEAR_STEP_STORAGE, event));
+    }
+
+    @Override
+    public void fire(ClearTestStorageEvent event) {
+        enqueue(new Notification(EventKind.CLEAR_TEST_STORAGE, event));
+    }
+
+    /**
+     * Stop the listener thread after all buffered events are processed. Events
+     * fired after shutdown are processed in the caller thread. New events stop
+     * being buffered before the stop marker is put, so no event is put to the
+     * buffer after the final drain.
+     *
+     * @return true if all buffered events are processed, false if the timeout elapsed
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        stopped = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            //wait for events which passed the stopped check before it was set
+            while (enqueuing.get() > 0) {
+                if (System.nanoTime() - deadline > 0) {
+                    return false;
+                }
+                Thread.yield();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (buffer.offer(STOP, remaining, TimeUnit.NANOSECONDS)) {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for listener " + listener.getClass(), e);
+        }
+        return !worker.isAlive();
+    }
+
+    /**
+     * Returns wrapped listener.
+     */
+    public LifecycleListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns count of events waiting to be processed.
+     */
+    public int getBufferDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Returns count of events skipped because the buffer was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void enqueue(Notification notification) {
+        enqueuing.incrementAndGet();
+        try {
+            if (stopped) {
+                deliver(notification);
+                return;
+            }
+            if (buffer.offer(notification)) {
+                return;
+            }
+            if (!shouldWait()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            buffer.put(notification);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+        } finally {
+            enqueuing.decrementAndGet();
+        }
+    }
+
+    private boolean shouldWait() {
+        switch (policy) {
+            case DROP:
+                return false;
+            case SAMPLE:
+                return overflowCount.incrementAndGet() % sampleRate == 0;
+            default:
+                return true;
+        }
+    }
+
+    private void drain() {
+        try {
+            Notification notification;
+            while ((notification = buffer.take()) != STOP) {
+                deliver(notification);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Listener " + listener.getClass() + " thread was interrupted", e);
+        }
+    }
+
+    private void deliver(Notification notification) {
+        try {
+            notification.kind.deliver(listener, notification.event);
+        } catch (Exception e) {
+            LOGGER.error("Error for listener " + listener.getClass(), e);
+        }
+    }
+
+    /**
+     * Event with the listener method it should be delivered to.
+     */
+    private static class Notification {
+
+        private final EventKind kind;
+
+        private final Object event;
+
+        Notification(EventKind kind, Object event) {
+            this.kind = kind;
+            this.event = event;
+        }
+    }
+
+    /**
+     * Listener methods. Keeps the method chosen by the caller, so async listener receives
+     * the same calls as a synchronous one.
+     */
+    private enum EventKind {
+        STEP_STARTED {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((StepStartedEvent) event);
+            }
+        },
+        STEP {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((StepEvent) event);
+            }
+        },
+        STEP_FINISHED {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((StepFinishedEvent) event);
+            }
+        },
+        TEST_CASE_STARTED {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((TestCaseStartedEvent) event);
+            }
+        },
+        TEST_CASE {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((TestCaseEvent) event);
+            }
+        },
+        TEST_CASE_FINISHED {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((TestCaseFinishedEvent) event);
+            }
+        },
+        TEST_SUITE {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((TestSuiteEvent) event);
+            }
+        },
+        TEST_SUITE_FINISHED {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((TestSuiteFinishedEvent) event);
+            }
+        },
+        CLEAR_STEP_STORAGE {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((ClearStepStorageEvent) event);
+            }
+        },
+        CLEAR_TEST_STORAGE {
+            @Override
+            void deliver(LifecycleListener listener, Object event) {
+                listener.fire((ClearTestStorageEvent) event);
+            }
+        };
+
+        abstract void deliver(LifecycleListener listener, Object event);
+    }
+}
@@ -45,11 +45,26 @@ import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
  * <p/>
  * All listener methods will be invoked after event processing. Do not change given events, it can affect others
  * listeners.
+ * <p/>
+ * Override {@link #isSubscribed(Class)} to receive only events you are interested in. If async listeners
+ * are enabled in config each listener is notified by its own thread, in the same order as events were fired.
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 26.05.14
  */
 public abstract class LifecycleListener {
 
+    /**
+     * Returns true if the listener should be notified about events of given type. Events
+     * nobody is subscribed to are not dispatched at all. By default listener is subscribed
+     * to all events.
+     *
+     * @param eventType class of processed event, for example
+     *                  {@link ru.yandex.qatools.allure.events.MakeAttachmentEvent}
+     */
+    public boolean isSubscribed(Class<?> eventType) {
+        return true;
+    }
+
     /**
      * Called when a step started
      */
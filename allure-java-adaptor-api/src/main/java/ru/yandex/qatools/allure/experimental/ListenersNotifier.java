@@ -2,6 +2,7 @@ package ru.yandex.qatools.allure.experimental;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.config.AllureConfig;
 import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
 import ru.yandex.qatools.allure.events.ClearTestStorageEvent;
 import ru.yandex.qatools.allure.events.StepEvent;
@@ -14,10 +15,15 @@ import ru.yandex.qatools.allure.events.TestSuiteEvent;
 import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is an internal Allure component.
@@ -26,6 +32,10 @@ import java.util.ServiceLoader;
  * listeners {@link ru.yandex.qatools.allure.experimental.LifecycleListener} of
  * Allure events.
  * <p/>
+ * Listeners are notified only about events they are subscribed to, see
+ * {@link LifecycleListener#isSubscribed(Class)}. If async listeners are enabled
+ * each listener is wrapped to {@link AsyncLifecycleListener}.
+ * <p/>
  *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 26.05.14
@@ -35,7 +45,9 @@ public class ListenersNotifier extends LifecycleListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ListenersNotifier.class);
 
-    private List<LifecycleListener> listeners = new ArrayList<>();
+    private List<LifecycleListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Map<Class<?>, List<LifecycleListener>> subscribers = Collections.emptyMap();
 
     /**
      * Create instance of {@link ru.yandex.qatools.allure.experimental.ListenersNotifier}
@@ -71,7 +83,7 @@ public class ListenersNotifier extends LifecycleListener {
         while (hasNextSafely(iterator)) {
             try {
                 LifecycleListener listener = iterator.next();
-                listeners.add(listener);
+                addListener(listener);
                 LOGGER.info(String.format("Found %s: %s", LifecycleListener.class, listener.getClass()));
             } catch (ServiceConfigurationError e) {
                 LOGGER.error("iterator.next() failed", e);
@@ -105,7 +117,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(StepStartedEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -119,7 +131,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(StepEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -133,7 +145,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(StepFinishedEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -147,7 +159,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(TestCaseStartedEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -161,7 +173,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(TestCaseEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -175,7 +187,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(TestCaseFinishedEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -189,7 +201,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(TestSuiteEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -203,7 +215,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(TestSuiteFinishedEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -217,7 +229,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(ClearStepStorageEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -231,7 +243,7 @@ public class ListenersNotifier extends LifecycleListener {
      */
     @Override
     public void fire(ClearTestStorageEvent event) {
-        for (LifecycleListener listener : listeners) {
+        for (LifecycleListener listener : getSubscribers(event)) {
             try {
                 listener.fire(event);
             } catch (Exception e) {
@@ -240,6 +252,51 @@ public class ListenersNotifier extends LifecycleListener {
         }
     }
 
+    /**
+     * Returns true if any listener is subscribed to events of given type, so
+     * events of the type can be skipped without notifying.
+     */
+    @Override
+    public boolean isSubscribed(Class<?> eventType) {
+        return !getSubscribers(eventType).isEmpty();
+    }
+
+    /**
+     * Returns listeners subscribed to the type of given event.
+     */
+    private List<LifecycleListener> getSubscribers(Object event) {
+        return getSubscribers(event.getClass());
+    }
+
+    /**
+     * Returns listeners subscribed to given event type. Subscribers are
+     * resolved once per event type. The cache is an immutable map replaced under
+     * the notifier lock, the same one {@link #addListener(LifecycleListener)} takes,
+     * so a list resolved before a listener is added never gets to the new cache.
+     */
+    private List<LifecycleListener> getSubscribers(Class<?> eventType) {
+        List<LifecycleListener> result = subscribers.get(eventType);
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            result = subscribers.get(eventType);
+            if (result != null) {
+                return result;
+            }
+            result = new ArrayList<>();
+            for (LifecycleListener listener : listeners) {
+                if (listener.isSubscribed(eventType)) {
+                    result.add(listener);
+                }
+            }
+            Map<Class<?>, List<LifecycleListener>> updated = new HashMap<>(subscribers);
+            updated.put(eventType, result);
+            subscribers = Collections.unmodifiableMap(updated);
+            return result;
+        }
+    }
+
     /**
      * This method log given exception in specified listener
      */
@@ -250,8 +307,37 @@ public class ListenersNotifier extends LifecycleListener {
     /**
      * You can use this method to add listeners to this notifier.
      */
-    public void addListener(LifecycleListener listener) {
-        listeners.add(listener);
+    public synchronized void addListener(LifecycleListener listener) {
+        listeners.add(wrapIfAsync(listener));
+        subscribers = Collections.emptyMap();
+    }
+
+    /**
+     * Wait until all async listeners process buffered events, then stop their threads.
+     *
+     * @return true if all events processed, false if the timeout elapsed
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        boolean result = true;
+        for (LifecycleListener listener : listeners) {
+            if (listener instanceof AsyncLifecycleListener) {
+                result &= ((AsyncLifecycleListener) listener).shutdown(timeout, unit);
+            }
+        }
+        return result;
+    }
+
+    private static LifecycleListener wrapIfAsync(LifecycleListener listener) {
+        AllureConfig config = AllureConfig.getInstance();
+        if (!config.isAsyncListenersEnabled() || listener instanceof AsyncLifecycleListener) {
+            return listener;
+        }
+        return new AsyncLifecycleListener(
+                listener,
+                config.getAsyncListenersBufferSize(),
+                OverflowPolicy.fromString(config.getAsyncListenersOverflowPolicy()),
+                config.getAsyncListenersSampleRate()
+        );
     }
 
     /**
@@ -0,0 +1,36 @@
+package ru.yandex.qatools.allure.experimental;
+
+/**
+ * What {@link AsyncLifecycleListener} does with a new event when its buffer is full.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getAsyncListenersOverflowPolicy()
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Wait in the firing thread for a free slot. No events are lost.
+     */
+    BLOCK,
+
+    /**
+     * Skip the event.
+     */
+    DROP,
+
+    /**
+     * Wait for a free slot for every n-th overflowed event, skip others.
+     */
+    SAMPLE;
+
+    /**
+     * Returns policy with given name ignoring case, or {@link #BLOCK} if there is no such policy.
+     */
+    public static OverflowPolicy fromString(String name) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return BLOCK;
+    }
+}
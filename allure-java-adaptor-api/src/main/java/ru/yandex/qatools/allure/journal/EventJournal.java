@@ -0,0 +1,493 @@
+package ru.yandex.qatools.allure.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.commons.ResultsCodec;
+import ru.yandex.qatools.allure.config.UidGenerator;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe journal of Allure lifecycle. Each processed event is appended as a compact binary
+ * record to a memory-mapped segment file in the results directory, so the data survives
+ * a JVM crash or kill. Segments are rotated when full and removed once all test suites
+ * recorded in them are written. Journal left by a crashed process is converted to test suite
+ * files by {@link EventJournalRecovery}.
+ * <p/>
+ * Records of step and test case events are bound to the firing thread. Custom events are
+ * recorded as snapshots of the step, test case or test suite they changed.
+ * <p/>
+ * Records are encoded into a buffer of the firing thread, the journal is locked only to copy
+ * the encoded record to the segment.
+ * <p/>
+ * Mapped segment survives a JVM crash as is, but is flushed to the storage device only when a test
+ * case or a test suite is finished and when the segment is rotated. So an operating system crash
+ * loses records of events fired after the last finished test case.
+ * <p/>
+ * Record layout: length of type and payload (int), record type (byte), payload, CRC32 of type
+ * and payload (int). Zero length marks the end of a segment.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isJournalEnabled()
+ */
+public class EventJournal {
+
+    public static final String SEGMENT_FILE_SUFFIX = "-journal.bin";
+
+    public static final String LOCK_FILE_SUFFIX = "-journal.lock";
+
+    /**
+     * Length and checksum.
+     */
+    static final int RECORD_OVERHEAD = 4 + 4;
+
+    /**
+     * Record buffers larger than this are not kept by the thread after the record is written.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final Set<String> ACTIVE_JOURNALS = Collections.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>()
+    );
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final String journalId = UidGenerator.generateUid();
+
+    private static final ThreadLocal<RecordBuffer> BUFFERS = new ThreadLocal<RecordBuffer>() {
+        @Override
+        protected RecordBuffer initialValue() {
+            return new RecordBuffer();
+        }
+    };
+
+    /**
+     * Segment number to uids of not finished suites recorded in the segment.
+     */
+    private final Map<Integer, Set<String>> segmentSuites = new TreeMap<>();
+
+    private final Set<String> finishedSuites = new HashSet<>();
+
+    private FileChannel lockChannel;
+
+    private FileLock lock;
+
+    private MappedByteBuffer segment;
+
+    private int segmentNumber;
+
+    private boolean opened;
+
+    private volatile boolean failed;
+
+    /**
+     * Create a new journal. Files are created lazily on the first record. Journals left by
+     * crashed processes should be recovered before, see {@link EventJournalRecovery#recover(File)}.
+     *
+     * @param directory   results directory to store journal in
+     * @param segmentSize size of one segment file in bytes
+     */
+    public EventJournal(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public void testSuiteChanged(String suiteUid, TestSuiteResult testSuite) {
+        RecordBuffer buffer = prepare(RecordType.TEST_SUITE_CHANGED);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                ResultsCodec.writeTestSuite(buffer.out, testSuite);
+                append(buffer, suiteUid, false);
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    /**
+     * Record that test suite with given uid is finished and written. Segments which contain
+     * only finished suites are removed.
+     */
+    public void testSuiteFinished(String suiteUid) {
+        RecordBuffer buffer = prepare(RecordType.TEST_SUITE_FINISHED);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                buffer.seal();
+                synchronized (this) {
+                    write(buffer, null);
+                    force();
+                    finishedSuites.add(suiteUid);
+                    releaseSegments(suiteUid);
+                }
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    /**
+     * Record that test cases of the suite with given uid are moved to the fragment file with given
+     * name, so recovery removes the fragment along with the journal. Should be recorded before
+     * the fragment file is created.
+     */
+    public void testCasesFragmentCreated(String suiteUid, String fileName) {
+        RecordBuffer buffer = prepare(RecordType.TEST_CASES_FRAGMENT_CREATED);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                ResultsCodec.writeString(buffer.out, fileName);
+                append(buffer, suiteUid, true);
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    public void testCaseStarted(String suiteUid, TestCaseResult testCase) {
+        writeTestCase(RecordType.TEST_CASE_STARTED, suiteUid, testCase, false);
+    }
+
+    public void testCaseChanged(String suiteUid, TestCaseResult testCase) {
+        writeTestCase(RecordType.TEST_CASE_CHANGED, suiteUid, testCase, false);
+    }
+
+    public void testCaseFinished(String suiteUid, TestCaseResult testCase) {
+        writeTestCase(RecordType.TEST_CASE_FINISHED, suiteUid, testCase, true);
+    }
+
+    public void testCaseCleared(String suiteUid) {
+        writeThreadRecord(RecordType.TEST_CASE_CLEARED, suiteUid);
+    }
+
+    public void stepStarted(String suiteUid, Step step) {
+        writeStep(RecordType.STEP_STARTED, suiteUid, step);
+    }
+
+    public void stepChanged(String suiteUid, Step step) {
+        writeStep(RecordType.STEP_CHANGED, suiteUid, step);
+    }
+
+    public void stepFinished(String suiteUid, Step step) {
+        writeStep(RecordType.STEP_FINISHED, suiteUid, step);
+    }
+
+    public void stepsCleared(String suiteUid) {
+        writeThreadRecord(RecordType.STEPS_CLEARED, suiteUid);
+    }
+
+    /**
+     * Close the journal and remove its files. Should be called when all test suites are written.
+     */
+    public synchronized void close() {
+        failed = true;
+        if (!opened) {
+            return;
+        }
+        opened = false;
+        segment = null;
+        for (Integer number : segmentSuites.keySet()) {
+            deleteFile(getSegmentFile(directory, journalId, number));
+        }
+        segmentSuites.clear();
+        releaseLock();
+        deleteFile(getLockFile(directory, journalId));
+        ACTIVE_JOURNALS.remove(journalId);
+    }
+
+    /**
+     * For tests only. Stop writing and release the lock, but keep journal files
+     * as if the process was killed.
+     */
+    synchronized void abandon() {
+        failed = true;
+        opened = false;
+        segment = null;
+        releaseLock();
+        ACTIVE_JOURNALS.remove(journalId);
+    }
+
+    /**
+     * Returns id of this journal, used as file names prefix.
+     */
+    public String getJournalId() {
+        return journalId;
+    }
+
+    private void writeTestCase(RecordType type, String suiteUid, TestCaseResult testCase, boolean force) {
+        RecordBuffer buffer = prepare(type);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                buffer.out.writeLong(Thread.currentThread().getId());
+                ResultsCodec.writeTestCase(buffer.out, testCase);
+                append(buffer, suiteUid, force);
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    private void writeStep(RecordType type, String suiteUid, Step step) {
+        RecordBuffer buffer = prepare(type);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                buffer.out.writeLong(Thread.currentThread().getId());
+                ResultsCodec.writeStep(buffer.out, step, false);
+                append(buffer, suiteUid, false);
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    private void writeThreadRecord(RecordType type, String suiteUid) {
+        RecordBuffer buffer = prepare(type);
+        if (buffer != null) {
+            try {
+                ResultsCodec.writeString(buffer.out, suiteUid);
+                buffer.out.writeLong(Thread.currentThread().getId());
+                append(buffer, suiteUid, false);
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    /**
+     * Reset record buffer of the current thread and write record type.
+     *
+     * @return record buffer or null if the journal is not available
+     */
+    private RecordBuffer prepare(RecordType type) {
+        if (failed) {
+            return null;
+        }
+        RecordBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        buffer.bytes.write(type.code());
+        return buffer;
+    }
+
+    /**
+     * Seal encoded record and append it to the current segment.
+     *
+     * @param suiteUid uid of suite the record belongs to, can be null
+     * @param force    flush the segment to the storage device after the record
+     */
+    private void append(RecordBuffer buffer, String suiteUid, boolean force) throws IOException {
+        buffer.seal();
+        synchronized (this) {
+            write(buffer, suiteUid);
+            if (force) {
+                force();
+            }
+        }
+    }
+
+    /**
+     * Flush the current segment to the storage device. Should be called under the journal lock.
+     */
+    private void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Copy sealed record to the current segment, rotate the segment if needed. Should be
+     * called under the journal lock.
+     *
+     * @param suiteUid uid of suite the record belongs to, can be null
+     */
+    private void write(RecordBuffer buffer, String suiteUid) throws IOException {
+        if (failed) {
+            return;
+        }
+        int length = buffer.bytes.size();
+        if (!opened) {
+            open();
+        }
+        if (segment.remaining() < length + RECORD_OVERHEAD + 4) {
+            openSegment(segmentNumber + 1, length + RECORD_OVERHEAD + 4);
+        }
+
+        int position = segment.position();
+        segment.position(position + 4);
+        segment.put(buffer.bytes.array(), 0, length);
+        segment.putInt(buffer.checksum);
+        //length is written last, so partially written record is never read
+        segment.putInt(position, length);
+
+        if (suiteUid != null && !finishedSuites.contains(suiteUid)) {
+            segmentSuites.get(segmentNumber).add(suiteUid);
+        }
+    }
+
+    private void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create journal directory " + directory);
+        }
+
+        ACTIVE_JOURNALS.add(journalId);
+        lockChannel = FileChannel.open(getLockFile(directory, journalId).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.lock();
+        opened = true;
+        openSegment(0, 0);
+    }
+
+    private void openSegment(int number, int minSize) throws IOException {
+        force();
+        File file = getSegmentFile(directory, journalId, number);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minSize));
+        }
+        int previous = segmentNumber;
+        segmentNumber = number;
+        segmentSuites.put(number, new HashSet<String>());
+        if (number != previous && segmentSuites.containsKey(previous) && segmentSuites.get(previous).isEmpty()) {
+            deleteSegment(previous);
+        }
+    }
+
+    private void releaseSegments(String suiteUid) {
+        Iterator<Map.Entry<Integer, Set<String>>> iterator = segmentSuites.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Set<String>> entry = iterator.next();
+            entry.getValue().remove(suiteUid);
+            if (entry.getKey() != segmentNumber && entry.getValue().isEmpty()) {
+                deleteFile(getSegmentFile(directory, journalId, entry.getKey()));
+                iterator.remove();
+            }
+        }
+    }
+
+    private void deleteSegment(int number) {
+        deleteFile(getSegmentFile(directory, journalId, number));
+        segmentSuites.remove(number);
+    }
+
+    private void fail(Exception e) {
+        failed = true;
+        LOGGER.error("Error while writing Allure journal, journal is disabled", e);
+    }
+
+    private void releaseLock() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Can't release journal lock", e);
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Can't delete journal file " + file);
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Returns true if journal with given id is opened in this process.
+     */
+    static boolean isActive(String journalId) {
+        return ACTIVE_JOURNALS.contains(journalId);
+    }
+
+    static File getSegmentFile(File directory, String journalId, int number) {
+        return new File(directory, String.format("%s-%06d%s", journalId, number, SEGMENT_FILE_SUFFIX));
+    }
+
+    static File getLockFile(File directory, String journalId) {
+        return new File(directory, journalId + LOCK_FILE_SUFFIX);
+    }
+
+    /**
+     * Record encoding buffer of one thread.
+     */
+    private static class RecordBuffer {
+
+        private final RecordBytes bytes = new RecordBytes();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final CRC32 crc = new CRC32();
+
+        private int checksum;
+
+        void reset() {
+            bytes.reset();
+        }
+
+        /**
+         * Flush encoded record and compute its checksum.
+         */
+        void seal() throws IOException {
+            out.flush();
+            crc.reset();
+            crc.update(bytes.array(), 0, bytes.size());
+            checksum = (int) crc.getValue();
+        }
+
+        /**
+         * Drop the buffer of the current thread if it grew too large on a big record.
+         */
+        void release() {
+            if (bytes.array().length > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    /**
+     * Byte array output stream which exposes its buffer, so the record is not copied.
+     */
+    private static class RecordBytes extends ByteArrayOutputStream {
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
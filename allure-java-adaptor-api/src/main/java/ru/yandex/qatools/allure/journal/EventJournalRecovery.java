@@ -0,0 +1,373 @@
+package ru.yandex.qatools.allure.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.commons.ResultsCodec;
+import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+import ru.yandex.qatools.allure.utils.AllureShutdownHook;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuiteFileName;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeTestSuiteResult;
+
+/**
+ * Converts {@link EventJournal} files left by crashed processes to test suite files. Journal of
+ * a running process is locked and never touched. Suites which were not finished are written
+ * with all finished test cases and test cases in progress marked as interrupted, the same way
+ * as {@link ru.yandex.qatools.allure.utils.AllureShutdownHook} does. Test cases fragments of
+ * recovered suites are removed, their test cases are recovered from the journal.
+ * <p/>
+ * Steps are recovered only for threads which started the test case. Steps of child threads
+ * are adopted by the test case when the child thread finishes them, so steps the child thread
+ * didn't finish before the crash are lost. Steps over the step tree limits are not journaled,
+ * so recovered test cases don't have summaries of not recorded steps.
+ */
+public final class EventJournalRecovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventJournalRecovery.class);
+
+    EventJournalRecovery() {
+        throw new IllegalStateException("Don't instance EventJournalRecovery");
+    }
+
+    /**
+     * Recover all abandoned journals in given results directory, then remove them.
+     *
+     * @param directory results directory
+     * @return count of recovered test suites
+     */
+    public static int recover(File directory) {
+        int count = 0;
+        for (Map.Entry<String, List<File>> journal : findJournals(directory).entrySet()) {
+            count += recoverJournal(directory, journal.getKey(), journal.getValue());
+        }
+        return count;
+    }
+
+    private static int recoverJournal(File directory, String journalId, List<File> segments) {
+        //closing a channel releases all locks of this process on the file, so don't touch own journals
+        if (EventJournal.isActive(journalId)) {
+            return 0;
+        }
+        File lockFile = EventJournal.getLockFile(directory, journalId);
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                return 0;
+            }
+            try {
+                JournalState state = new JournalState();
+                for (File segment : segments) {
+                    if (!readSegment(segment, state)) {
+                        break;
+                    }
+                }
+                List<TestSuiteResult> testSuites = state.getUnfinishedSuites();
+                for (TestSuiteResult testSuite : testSuites) {
+                    writeTestSuiteResult(testSuite, new File(directory, generateTestSuiteFileName()));
+                }
+                for (String fragment : state.getUnfinishedSuitesFragments()) {
+                    deleteFile(new File(directory, fragment));
+                }
+                for (File segment : segments) {
+                    deleteFile(segment);
+                }
+                deleteFile(lockFile);
+                LOGGER.info(String.format("Recovered %d test suites from journal %s", testSuites.size(), journalId));
+                return testSuites.size();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Can't recover journal " + journalId, e);
+            return 0;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            LOGGER.trace("Journal is locked in this process", e);
+            return null;
+        }
+    }
+
+    /**
+     * Read all records of given segment.
+     *
+     * @return false if the segment has a broken record, so all next segments should be ignored
+     */
+    private static boolean readSegment(File file, JournalState state) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32 crc = new CRC32();
+        while (segment.remaining() >= EventJournal.RECORD_OVERHEAD) {
+            int length = segment.getInt();
+            if (length == 0) {
+                return true;
+            }
+            if (length < 0 || length > segment.remaining() - 4) {
+                return false;
+            }
+            byte[] record = new byte[length];
+            segment.get(record);
+            crc.reset();
+            crc.update(record, 0, record.length);
+            if (segment.getInt() != (int) crc.getValue()) {
+                return false;
+            }
+            state.apply(record);
+        }
+        return true;
+    }
+
+    /**
+     * Returns segment files of each journal ordered by segment number.
+     */
+    private static Map<String, List<File>> findJournals(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(EventJournal.SEGMENT_FILE_SUFFIX);
+            }
+        });
+        Map<String, List<File>> journals = new HashMap<>();
+        if (files == null) {
+            return journals;
+        }
+        Map<String, File> sorted = new TreeMap<>();
+        for (File file : files) {
+            sorted.put(file.getName(), file);
+        }
+        for (File file : sorted.values()) {
+            String name = file.getName();
+            String prefix = name.substring(0, name.length() - EventJournal.SEGMENT_FILE_SUFFIX.length());
+            int separator = prefix.lastIndexOf('-');
+            if (separator <= 0) {
+                continue;
+            }
+            String journalId = prefix.substring(0, separator);
+            if (!journals.containsKey(journalId)) {
+                journals.put(journalId, new ArrayList<File>());
+            }
+            journals.get(journalId).add(file);
+        }
+        return journals;
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Can't delete journal file " + file);
+        }
+    }
+
+    /**
+     * Lifecycle state rebuilt from journal records.
+     */
+    private static class JournalState {
+
+        private final Map<String, TestSuiteResult> testSuites = new LinkedHashMap<>();
+
+        private final Set<String> finishedSuites = new HashSet<>();
+
+        private final Map<String, List<TestCaseResult>> finishedTestCases = new HashMap<>();
+
+        private final Map<Long, TestCaseProgress> testCasesInProgress = new HashMap<>();
+
+        private final Map<String, List<String>> fragments = new HashMap<>();
+
+        private void apply(byte[] record) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            RecordType type = RecordType.fromCode(in.readByte());
+            if (type == null) {
+                return;
+            }
+            String suiteUid = ResultsCodec.readString(in);
+            switch (type) {
+                case TEST_SUITE_CHANGED:
+                    testSuites.put(suiteUid, ResultsCodec.readTestSuite(in));
+                    return;
+                case TEST_SUITE_FINISHED:
+                    finishedSuites.add(suiteUid);
+                    return;
+                case TEST_CASES_FRAGMENT_CREATED:
+                    if (!fragments.containsKey(suiteUid)) {
+                        fragments.put(suiteUid, new ArrayList<String>());
+                    }
+                    fragments.get(suiteUid).add(ResultsCodec.readString(in));
+                    return;
+                default:
+                    applyThreadRecord(type, suiteUid, in.readLong(), in);
+            }
+        }
+
+        private void applyThreadRecord(RecordType type, String suiteUid, long thread, DataInputStream in)
+                throws IOException {
+            TestCaseProgress progress = testCasesInProgress.get(thread);
+            switch (type) {
+                case TEST_CASE_STARTED:
+                    testCasesInProgress.put(thread, new TestCaseProgress(suiteUid, ResultsCodec.readTestCase(in)));
+                    return;
+                case TEST_CASE_FINISHED:
+                    testCasesInProgress.remove(thread);
+                    getFinishedTestCases(suiteUid).add(ResultsCodec.readTestCase(in));
+                    return;
+                case TEST_CASE_CLEARED:
+                    testCasesInProgress.remove(thread);
+                    return;
+                default:
+                    break;
+            }
+            if (progress == null) {
+                return;
+            }
+            switch (type) {
+                case TEST_CASE_CHANGED:
+                    progress.testCase = ResultsCodec.readTestCase(in);
+                    return;
+                case STEP_STARTED:
+                    progress.steps.add(ResultsCodec.readStep(in));
+                    return;
+                case STEP_CHANGED:
+                    progress.replaceLast(ResultsCodec.readStep(in));
+                    return;
+                case STEP_FINISHED:
+                    progress.replaceLast(ResultsCodec.readStep(in));
+                    progress.adopt();
+                    return;
+                case STEPS_CLEARED:
+                    progress.steps.clear();
+                    progress.steps.add(new Step());
+                    return;
+                default:
+                    break;
+            }
+        }
+
+        private List<TestCaseResult> getFinishedTestCases(String suiteUid) {
+            if (!finishedTestCases.containsKey(suiteUid)) {
+                finishedTestCases.put(suiteUid, new ArrayList<TestCaseResult>());
+            }
+            return finishedTestCases.get(suiteUid);
+        }
+
+        /**
+         * Returns names of test cases fragment files of not finished suites. Test cases of
+         * such fragments are also recorded as finished test cases in the journal.
+         */
+        private List<String> getUnfinishedSuitesFragments() {
+            List<String> result = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : fragments.entrySet()) {
+                if (testSuites.containsKey(entry.getKey()) && !finishedSuites.contains(entry.getKey())) {
+                    result.addAll(entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        private List<TestSuiteResult> getUnfinishedSuites() {
+            AllureShutdownHook hook = new AllureShutdownHook(
+                    Collections.<Map.Entry<String, TestSuiteResult>>emptySet()
+            );
+            List<TestSuiteResult> result = new ArrayList<>();
+            for (Map.Entry<String, TestSuiteResult> entry : testSuites.entrySet()) {
+                if (finishedSuites.contains(entry.getKey())) {
+                    continue;
+                }
+                TestSuiteResult testSuite = entry.getValue();
+                testSuite.getTestCases().addAll(getFinishedTestCases(entry.getKey()));
+                for (TestCaseProgress progress : testCasesInProgress.values()) {
+                    if (entry.getKey().equals(progress.suiteUid)) {
+                        TestCaseResult testCase = progress.finish();
+                        hook.markTestcaseAsInterruptedIfNotFinishedYet(testCase);
+                        testSuite.getTestCases().add(testCase);
+                    }
+                }
+                testSuite.getTestCases().add(hook.createFakeTestcaseWithWarning(testSuite));
+                testSuite.setStop(System.currentTimeMillis());
+                testSuite.setVersion(AllureConfig.getInstance().getVersion());
+                testSuite.getLabels().add(AllureModelUtils.createProgrammingLanguageLabel());
+                result.add(testSuite);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Test case in progress with its started steps. First step is the root step.
+     */
+    private static class TestCaseProgress {
+
+        private final String suiteUid;
+
+        private final Deque<Step> steps = new ArrayDeque<>();
+
+        private TestCaseResult testCase;
+
+        TestCaseProgress(String suiteUid, TestCaseResult testCase) {
+            this.suiteUid = suiteUid;
+            this.testCase = testCase;
+            this.steps.add(new Step());
+        }
+
+        /**
+         * Replace last step by given snapshot keeping its sub steps.
+         */
+        private void replaceLast(Step snapshot) {
+            Step last = steps.pollLast();
+            snapshot.getSteps().addAll(last.getSteps());
+            steps.add(snapshot);
+        }
+
+        private void adopt() {
+            if (steps.size() > 1) {
+                Step step = steps.pollLast();
+                steps.getLast().getSteps().add(step);
+            }
+        }
+
+        /**
+         * Adopt all started steps and move them to the test case.
+         */
+        private TestCaseResult finish() {
+            while (steps.size() > 1) {
+                adopt();
+            }
+            Step root = steps.getFirst();
+            testCase.getSteps().addAll(root.getSteps());
+            testCase.getAttachments().addAll(root.getAttachments());
+            return testCase;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.qatools.allure.journal;
+
+/**
+ * Types of {@link EventJournal} records.
+ */
+enum RecordType {
+
+    TEST_SUITE_CHANGED,
+    TEST_SUITE_FINISHED,
+    TEST_CASE_STARTED,
+    TEST_CASE_CHANGED,
+    TEST_CASE_FINISHED,
+    TEST_CASE_CLEARED,
+    STEP_STARTED,
+    STEP_CHANGED,
+    STEP_FINISHED,
+    STEPS_CLEARED,
+    TEST_CASES_FRAGMENT_CREATED;
+
+    private static final RecordType[] VALUES = values();
+
+    byte code() {
+        return (byte) ordinal();
+    }
+
+    static RecordType fromCode(byte code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.qatools.allure.storages;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Using to intern failure stack traces within test suites. Identical stack traces of
+ * test cases from the same suite (typical for mass failures caused by one environment
+ * problem) share one string instance, so it is stored in memory only once. Interned stack
+ * traces are kept until the suite is finished, so the storage isn't used when finished test
+ * cases are moved out of memory to fragments.
+ *
+ * @see ru.yandex.qatools.allure.Allure
+ */
+public class StackTraceStorage {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> stackTraces = new ConcurrentHashMap<>();
+
+    /**
+     * Returns canonical instance of given stack trace for specified suite.
+     *
+     * @param suiteUid   suite uid
+     * @param stackTrace to intern, can be null
+     * @return the first stack trace equal to given one seen in the suite
+     */
+    public String intern(String suiteUid, String stackTrace) {
+        if (suiteUid == null || stackTrace == null) {
+            return stackTrace;
+        }
+        ConcurrentMap<String, String> suiteStackTraces = stackTraces.get(suiteUid);
+        if (suiteStackTraces == null) {
+            ConcurrentMap<String, String> created = new ConcurrentHashMap<>();
+            suiteStackTraces = stackTraces.putIfAbsent(suiteUid, created);
+            if (suiteStackTraces == null) {
+                suiteStackTraces = created;
+            }
+        }
+        String previous = suiteStackTraces.putIfAbsent(stackTrace, stackTrace);
+        return previous == null ? stackTrace : previous;
+    }
+
+    /**
+     * Remove interned stack traces of specified suite.
+     *
+     * @param suiteUid to remove
+     */
+    public void remove(String suiteUid) {
+        stackTraces.remove(suiteUid);
+    }
+}
@@ -0,0 +1,262 @@
+package ru.yandex.qatools.allure.storages;
+
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact recording of steps started by one thread. Each step is a slot in primitive arrays:
+ * start and stop time, index of the parent slot, id of the interned name and status ordinal,
+ * so recording a step allocates nothing unless the arrays grow. Title is kept by reference.
+ * Steps are converted to the step tree by {@link #flush(StepStorage)}, which replays them to
+ * the step storage in the order they were started and finished, so step tree limits and
+ * coalescing work as usual. Arena is flushed when its top level step is finished, and when
+ * it grows to {@link #FLUSH_THRESHOLD} steps, so it never holds more steps than that.
+ * <p/>
+ * Other step events (attachments, parameters, failures) need a {@link Step} to process, it's
+ * created on demand for the current slot by {@link #getDetail()}, and the slot is converted
+ * from it. Not thread safe, each thread uses its own arena.
+ *
+ * @see StepArenaStorage
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isCompactStepsEnabled()
+ */
+public class StepArena {
+
+    /**
+     * Count of recorded steps the arena should be flushed at.
+     */
+    public static final int FLUSH_THRESHOLD = 1024;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final int NO_STEP = -1;
+
+    private static final Status[] STATUSES = Status.values();
+
+    private long[] starts;
+
+    private long[] stops;
+
+    private int[] parents;
+
+    private int[] names;
+
+    private byte[] statuses;
+
+    private String[] titles;
+
+    private Step[] details;
+
+    private int size;
+
+    private int current = NO_STEP;
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    private String[] nameTable = new String[DEFAULT_CAPACITY];
+
+    /**
+     * Constructs empty arena with default capacity.
+     */
+    public StepArena() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs empty arena with given initial capacity.
+     *
+     * @param capacity count of steps to record without growing
+     */
+    public StepArena(int capacity) {
+        int initial = Math.max(1, capacity);
+        starts = new long[initial];
+        stops = new long[initial];
+        parents = new int[initial];
+        names = new int[initial];
+        statuses = new byte[initial];
+        titles = new String[initial];
+        details = new Step[initial];
+    }
+
+    /**
+     * Start new step as a child of the current step. Step status is
+     * {@link Status#PASSED}, start time is the current time.
+     *
+     * @param name  step name
+     * @param title step title, can be null
+     */
+    public void start(String name, String title) {
+        if (size == starts.length) {
+            grow();
+        }
+        starts[size] = System.currentTimeMillis();
+        stops[size] = 0;
+        parents[size] = current;
+        names[size] = intern(name);
+        statuses[size] = (byte) Status.PASSED.ordinal();
+        titles[size] = title;
+        details[size] = null;
+        current = size++;
+    }
+
+    /**
+     * Finish the current step: set its stop time and title if it's specified.
+     *
+     * @param title step title, can be null
+     */
+    public void finish(String title) {
+        long stop = System.currentTimeMillis();
+        Step detail = details[current];
+        if (detail == null) {
+            stops[current] = stop;
+            if (title != null) {
+                titles[current] = title;
+            }
+        } else {
+            detail.setStop(stop);
+            if (title != null) {
+                detail.setTitle(title);
+            }
+        }
+        close();
+    }
+
+    /**
+     * Close the current step without changing it. Use it after finishing the step
+     * via {@link #getDetail()}.
+     */
+    public void close() {
+        current = parents[current];
+    }
+
+    /**
+     * Returns step the current slot is converted from. It's created on first call, so
+     * use it only for events which can't be recorded to the arena.
+     *
+     * @return step of the current slot
+     */
+    public Step getDetail() {
+        Step detail = details[current];
+        if (detail == null) {
+            detail = new Step()
+                    .withName(names[current] == NO_STEP ? null : nameTable[names[current]])
+                    .withTitle(titles[current])
+                    .withStatus(STATUSES[statuses[current]])
+                    .withStart(starts[current])
+                    .withStop(stops[current]);
+            details[current] = detail;
+        }
+        return detail;
+    }
+
+    /**
+     * Returns true if there is started but not finished step.
+     */
+    public boolean hasOpenStep() {
+        return current != NO_STEP;
+    }
+
+    /**
+     * Returns true if no steps recorded since the last flush.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns count of steps recorded since the last flush.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Convert recorded steps and add them to the last step of given storage. Finished steps
+     * are adopted as if they were recorded by the storage itself, steps which are not finished
+     * yet are left in the storage, so they are finished there. Arena is empty after the flush.
+     *
+     * @param storage step storage of the current thread
+     */
+    public void flush(StepStorage storage) {
+        int top = NO_STEP;
+        for (int i = 0; i < size; i++) {
+            while (top != parents[i]) {
+                storage.adopt();
+                top = parents[top];
+            }
+            Step step = storage.createStep();
+            convert(i, step);
+            storage.put(step);
+            top = i;
+        }
+        while (top != current) {
+            storage.adopt();
+            top = parents[top];
+        }
+        clear();
+    }
+
+    /**
+     * Discard all recorded steps.
+     */
+    public void clear() {
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(details, 0, size, null);
+        Arrays.fill(nameTable, 0, nameIds.size(), null);
+        nameIds.clear();
+        size = 0;
+        current = NO_STEP;
+    }
+
+    private void convert(int index, Step step) {
+        Step detail = details[index];
+        if (detail == null) {
+            step.setName(names[index] == NO_STEP ? null : nameTable[names[index]]);
+            step.setTitle(titles[index]);
+            step.setStatus(STATUSES[statuses[index]]);
+            step.setStart(starts[index]);
+            step.setStop(stops[index]);
+            return;
+        }
+        step.setName(detail.getName());
+        step.setTitle(detail.getTitle());
+        step.setStatus(detail.getStatus());
+        step.setStart(detail.getStart());
+        step.setStop(detail.getStop());
+        step.setRepeat(detail.getRepeat());
+        step.setDuration(detail.getDuration());
+        step.getAttachments().addAll(detail.getAttachments());
+        step.getSteps().addAll(detail.getSteps());
+    }
+
+    private int intern(String name) {
+        if (name == null) {
+            return NO_STEP;
+        }
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        int next = nameIds.size();
+        if (next == nameTable.length) {
+            nameTable = Arrays.copyOf(nameTable, next * 2);
+        }
+        nameTable[next] = name;
+        nameIds.put(name, next);
+        return next;
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        stops = Arrays.copyOf(stops, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        names = Arrays.copyOf(names, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        details = Arrays.copyOf(details, capacity);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.qatools.allure.storages;
+
+/**
+ * Using to storage compact step arena of the thread which runs the current testCase.
+ * Arena isn't shared with child threads: their steps are recorded by {@link StepStorage}.
+ *
+ * @see StepArena
+ * @see ru.yandex.qatools.allure.Allure
+ */
+public class StepArenaStorage extends ThreadLocal<StepArena> {
+}
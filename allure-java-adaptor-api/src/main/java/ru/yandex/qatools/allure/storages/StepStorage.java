@@ -1,10 +1,19 @@
 package ru.yandex.qatools.allure.storages;
 
+import ru.yandex.qatools.allure.config.AllureConfig;
 import ru.yandex.qatools.allure.model.Status;
 import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Using to storage information about current step context. How it works:
@@ -17,7 +26,30 @@ import java.util.LinkedList;
  * ...
  * </pre>
  * In the end just get all children of root step. It's step three which you can see in report
+ * <p/>
+ * Each thread has its own deque, so only adding a child step to its parent needs synchronization.
+ * It's done on the parent step, so only threads which share the same root step (see
+ * {@link #childValue(java.util.Deque)}) wait for each other.
+ * <p/>
+ * Size of the step tree can be limited by max depth, max count of children of one step and
+ * max count of steps in one test case. Steps over the limits are created by {@link #createStep()}
+ * as not recorded: they are collected as usual, but when finished they are folded into one summary
+ * step with counts, total duration and status of all not recorded steps, and their attachments.
+ * Summary title is built once, when its ancestor is finished or by {@link #summarize()}.
+ * <p/>
+ * If coalescing is enabled, finished step with the same name, title and status as its previous
+ * sibling is merged into the sibling when both have no children and attachments. Merged step
+ * has repeat count, start of the first step, stop of the last one and total duration.
+ * <p/>
+ * At the end of test case step stack is removed by {@link #release()}. Root step is cleared,
+ * so child threads which inherited it don't retain the step tree; they get a new root step
+ * on the next access. Staged attachments of steps dropped this way (or by {@link #clear()})
+ * are discarded, see {@link AttachmentsStaging}.
  *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getMaxStepsDepth()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getMaxStepChildren()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getMaxStepsCount()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isStepsCoalescingEnabled()
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 13.12.13
  *         <p/>
@@ -25,7 +57,91 @@ import java.util.LinkedList;
  */
 public class StepStorage extends InheritableThreadLocal<Deque<Step>> {
 
-    public static final Object LOCK = new Object();
+    private final int maxDepth;
+
+    private final int maxChildren;
+
+    private final int maxCount;
+
+    private final boolean coalescing;
+
+    private final StepsLeakDetector leakDetector;
+
+    /**
+     * Constructs step storage with limits and coalescing mode from {@link AllureConfig}.
+     * Leak detector is created if it's enabled in config.
+     */
+    public StepStorage() {
+        this(AllureConfig.getInstance().getMaxStepsDepth(),
+                AllureConfig.getInstance().getMaxStepChildren(),
+                AllureConfig.getInstance().getMaxStepsCount(),
+                AllureConfig.getInstance().isStepsCoalescingEnabled(),
+                AllureConfig.getInstance().isStepsLeakDetectorEnabled() ? new StepsLeakDetector() : null);
+    }
+
+    /**
+     * Constructs step storage with specified limits, zero or negative value means no limit.
+     *
+     * @param maxDepth    max depth of the step tree
+     * @param maxChildren max count of children of one step
+     * @param maxCount    max count of steps in one test case
+     */
+    public StepStorage(int maxDepth, int maxChildren, int maxCount) {
+        this(maxDepth, maxChildren, maxCount, false);
+    }
+
+    /**
+     * Constructs step storage with specified limits and coalescing mode.
+     *
+     * @param maxDepth    max depth of the step tree
+     * @param maxChildren max count of children of one step
+     * @param maxCount    max count of steps in one test case
+     * @param coalescing  merge identical consecutive sibling steps
+     */
+    public StepStorage(int maxDepth, int maxChildren, int maxCount, boolean coalescing) {
+        this(maxDepth, maxChildren, maxCount, coalescing, null);
+    }
+
+    /**
+     * Constructs step storage with specified limits, coalescing mode and leak detector.
+     *
+     * @param maxDepth     max depth of the step tree
+     * @param maxChildren  max count of children of one step
+     * @param maxCount     max count of steps in one test case
+     * @param coalescing   merge identical consecutive sibling steps
+     * @param leakDetector detector to register step stacks in, can be null
+     */
+    public StepStorage(int maxDepth, int maxChildren, int maxCount, boolean coalescing,
+                       StepsLeakDetector leakDetector) {
+        this.maxDepth = maxDepth;
+        this.maxChildren = maxChildren;
+        this.maxCount = maxCount;
+        this.coalescing = coalescing;
+        this.leakDetector = leakDetector;
+    }
+
+    /**
+     * Returns step stack of the current thread. If the stack is based on released
+     * root step (see {@link #release()}) it's replaced with a new one. New stack is
+     * registered in the leak detector on the first access from its thread.
+     *
+     * @return step stack of the current thread
+     */
+    @Override
+    public Deque<Step> get() {
+        Deque<Step> queue = super.get();
+        Step root = queue.peekFirst();
+        if (root instanceof RootStep && ((RootStep) root).released) {
+            discardOpenSteps(queue);
+            super.remove();
+            queue = super.get();
+        }
+        if (leakDetector != null && queue instanceof StepStack && !((StepStack) queue).registered) {
+            leakDetector.register(queue);
+            ((StepStack) queue).registered = true;
+        }
+        return queue;
+    }
 
     /**
      * Returns the current thread's "initial value". Construct an new
@@ -35,7 +151,7 @@ public class StepStorage extends InheritableThreadLocal<Deque<Step>> {
      */
     @Override
     protected Deque<Step> initialValue() {
-        Deque<Step> queue = new LinkedList<>();
+        Deque<Step> queue = new StepStack();
         queue.add(createRootStep());
         return queue;
     }
@@ -43,17 +159,59 @@ public class StepStorage extends InheritableThreadLocal<Deque<Step>> {
     /**
      * In case parent thread spawn thread we need create a new queue
      * for child thread but use the only one root step. In the end all steps will be
-     * children of root step, all we need is sync adding steps
+     * children of root step, all we need is sync adding steps to the root step
      * @param parentValue value from parent thread
      * @return local copy of queue in this thread with parent root as first element
      */
     @Override
     protected Deque<Step> childValue(Deque<Step> parentValue) {
-        Deque<Step> queue = new LinkedList<>();
+        Deque<Step> queue = new StepStack();
         queue.add(parentValue.getFirst());
         return queue;
     }
 
+    /**
+     * Construct new step to start. If the step is over the limits it will not be recorded,
+     * see {@link #adopt()}.
+     *
+     * @return new step
+     */
+    public Step createStep() {
+        Deque<Step> queue = get();
+        Step parent = queue.getLast();
+        Step root = queue.getFirst();
+        int count = maxCount > 0 && root instanceof RootStep ? ((RootStep) root).stepsCount.incrementAndGet() : 0;
+        if (parent instanceof NotRecordedStep
+                || maxDepth > 0 && queue.size() > maxDepth
+                || maxCount > 0 && count > maxCount
+                || maxChildren > 0 && childrenCount(parent) >= maxChildren) {
+            return new NotRecordedStep();
+        }
+        return new Step();
+    }
+
+    /**
+     * Returns false if given step is over the limits and is not added to the step tree,
+     * see {@link #createStep()}. Such steps are only counted in the summary step.
+     */
+    public static boolean isRecorded(Step step) {
+        return !(step instanceof NotRecordedStep);
+    }
+
+    /**
+     * Keep failure of given not recorded step, so the summary step shows it if the step is
+     * the first failed one. Recorded steps are not changed.
+     *
+     * @param step      failed step
+     * @param throwable failure of the step
+     */
+    public static void setFailure(Step step, Throwable throwable) {
+        if (step instanceof NotRecordedStep && throwable != null) {
+            ((NotRecordedStep) step).failure = String.format("%s: %s",
+                    throwable.getClass().getSimpleName(), throwable.getMessage());
+        }
+    }
+
     /**
      * Retrieves, but does not remove, the last element of this deque.
      *
@@ -69,9 +227,7 @@ public class StepStorage extends InheritableThreadLocal<Deque<Step>> {
      * @param step the element to add
      */
     public void put(Step step) {
-        synchronized (LOCK) {
-            get().add(step);
-        }
+        get().add(step);
     }
 
     /**
@@ -90,32 +246,282 @@ public class StepStorage extends InheritableThreadLocal<Deque<Step>> {
         return last;
     }
 
+    /**
+     * Remove step stack of the current thread at the end of test case. Root step of the stack
+     * is released: its steps and attachments are cleared, so threads which share the root step
+     * don't retain them anymore. Take all needed steps from the root step before release.
+     */
+    public void release() {
+        Deque<Step> queue = super.get();
+        Step root = queue.peekFirst();
+        if (root instanceof RootStep) {
+            ((RootStep) root).release();
+        }
+        discardOpenSteps(queue);
+        super.remove();
+    }
+
+    /**
+     * Remove step stack of the current thread, like {@link #remove()}, and discard staged
+     * attachments of its steps. Root step is cleared only by the thread which created it, child
+     * threads share it with the parent thread.
+     */
+    public void clear() {
+        Deque<Step> queue = super.get();
+        Step root = queue.peekFirst();
+        if (root instanceof RootStep && ((RootStep) root).owner == Thread.currentThread()) {
+            ((RootStep) root).clear();
+        }
+        discardOpenSteps(queue);
+        super.remove();
+    }
+
+    /**
+     * Returns true if the step stack of the current thread has only root step without
+     * steps and attachments.
+     */
+    public boolean isEmpty() {
+        Deque<Step> queue = get();
+        if (queue.size() != 1) {
+            return false;
+        }
+        Step root = queue.getFirst();
+        synchronized (root) {
+            return root.getSteps().isEmpty() && root.getAttachments().isEmpty();
+        }
+    }
+
+    /**
+     * Returns leak detector of this storage.
+     *
+     * @return leak detector or null if it's disabled
+     * @see ru.yandex.qatools.allure.config.AllureConfig#isStepsLeakDetectorEnabled()
+     */
+    public StepsLeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
     /**
      * Move last step to children of previous step. How it works:
      * <pre>
      * before: step1(...) -> step2(child1 -> ... -> childN) -> step3(...) -> ... -> null
      * after:  step2(child1 -> ... -> childN -> step1(...)) -> step3(...) -> ... -> null
      * </pre>
+     * Previous step can be shared with child threads, so adding is synchronized on it.
+     * Not recorded step is folded into the summary step of the nearest recorded ancestor instead.
+     * If coalescing is enabled the step can be merged into the previous sibling, see {@link #coalesce(Step, Step)}.
+     *
      * @return ex-last step
      */
     public Step adopt() {
         Step step = pollLast();
-        synchronized (LOCK) {
-            getLast().getSteps().add(step);
+        if (step instanceof NotRecordedStep) {
+            fold(step);
+            return step;
+        }
+        finishSummary(step);
+        Step parent = getLast();
+        synchronized (parent) {
+            if (parent instanceof RootStep && ((RootStep) parent).released) {
+                AttachmentsStaging.discard(step);
+                return step;
+            }
+            List<Step> children = parent.getSteps();
+            if (!coalescing || children.isEmpty() || !coalesce(children.get(children.size() - 1), step)) {
+                children.add(step);
+            }
         }
         return step;
     }
 
+    /**
+     * Finish summaries of not recorded steps which ancestors are not finished yet, e.g. summaries
+     * of the root step. Should be called before steps are taken from the root step.
+     */
+    public void summarize() {
+        Step root = get().getFirst();
+        if (!(root instanceof RootStep)) {
+            return;
+        }
+        Map<Step, StepsSummary> summaries = ((RootStep) root).summaries;
+        List<Map.Entry<Step, StepsSummary>> entries;
+        synchronized (summaries) {
+            entries = new ArrayList<>(summaries.entrySet());
+        }
+        for (Map.Entry<Step, StepsSummary> entry : entries) {
+            synchronized (entry.getKey()) {
+                entry.getValue().finish();
+            }
+        }
+    }
+
     /**
      * Construct new root step. Used for inspect problems with Allure lifecycle
      *
      * @return new root step marked as broken
      */
     public Step createRootStep() {
-        return new Step()
+        return new RootStep()
                 .withName("Root step")
                 .withTitle("Allure step processing error: if you see this step something went wrong.")
                 .withStart(System.currentTimeMillis())
                 .withStatus(Status.BROKEN);
     }
+
+    /**
+     * Merge given step into the previous sibling if they are identical and have no children
+     * and attachments.
+     *
+     * @return true if the step is merged
+     */
+    private boolean coalesce(Step previous, Step step) {
+        if (!isCoalescible(step) || !isCoalescible(previous)
+                || !step.getName().equals(previous.getName())
+                || step.getStatus() != previous.getStatus()
+                || !(step.getTitle() == null ? previous.getTitle() == null : step.getTitle().equals(previous.getTitle()))
+                || isSummary(previous)) {
+            return false;
+        }
+        previous.setRepeat(getRepeat(previous) + 1);
+        previous.setDuration(getDuration(previous) + getDuration(step));
+        previous.setStart(Math.min(previous.getStart(), step.getStart()));
+        previous.setStop(Math.max(previous.getStop(), step.getStop()));
+        return true;
+    }
+
+    private static boolean isCoalescible(Step step) {
+        return step.getName() != null && step.getSteps().isEmpty() && step.getAttachments().isEmpty();
+    }
+
+    private boolean isSummary(Step step) {
+        Step root = get().getFirst();
+        if (!(root instanceof RootStep)) {
+            return false;
+        }
+        StepsSummary summary = ((RootStep) root).summaries.get(getLast());
+        return summary != null && summary.getStep() == step;
+    }
+
+    private static int getRepeat(Step step) {
+        return step.getRepeat() == null ? 1 : step.getRepeat();
+    }
+
+    private static long getDuration(Step step) {
+        return step.getDuration() == null ? step.getStop() - step.getStart() : step.getDuration();
+    }
+
+    /**
+     * Discard staged attachments of steps started but not finished in the given stack.
+     */
+    private static void discardOpenSteps(Deque<Step> queue) {
+        Iterator<Step> iterator = queue.iterator();
+        iterator.next();
+        while (iterator.hasNext()) {
+            AttachmentsStaging.discard(iterator.next());
+        }
+    }
+
+    /**
+     * Finish summary of not recorded children of given step, the step is finished.
+     */
+    private void finishSummary(Step step) {
+        Step root = get().getFirst();
+        if (root instanceof RootStep) {
+            StepsSummary summary = ((RootStep) root).summaries.remove(step);
+            if (summary != null) {
+                summary.finish();
+            }
+        }
+    }
+
+    private static int childrenCount(Step step) {
+        synchronized (step) {
+            return step.getSteps().size();
+        }
+    }
+
+    /**
+     * Add given not recorded step to the summary of the nearest recorded ancestor. Summary
+     * step is reused while it's the last child of the ancestor, otherwise a new one is added.
+     */
+    private void fold(Step step) {
+        Deque<Step> queue = get();
+        Iterator<Step> iterator = queue.descendingIterator();
+        Step ancestor = iterator.next();
+        while (ancestor instanceof NotRecordedStep && iterator.hasNext()) {
+            ancestor = iterator.next();
+        }
+        boolean tracked = queue.getFirst() instanceof RootStep;
+        Map<Step, StepsSummary> summaries = tracked
+                ? ((RootStep) queue.getFirst()).summaries
+                : Collections.synchronizedMap(new IdentityHashMap<Step, StepsSummary>());
+        synchronized (ancestor) {
+            StepsSummary summary = summaries.get(ancestor);
+            List<Step> children = ancestor.getSteps();
+            if (summary == null || children.isEmpty() || children.get(children.size() - 1) != summary.getStep()) {
+                if (summary != null) {
+                    summary.finish();
+                }
+                summary = new StepsSummary();
+                summaries.put(ancestor, summary);
+                children.add(summary.getStep());
+            }
+            summary.add(step, ((NotRecordedStep) step).failure);
+            if (!tracked) {
+                summary.finish();
+            }
+        }
+    }
+
+    /**
+     * Root step of the test case. Holds counters shared by all threads of the test case.
+     */
+    private static class RootStep extends Step {
+
+        private final AtomicInteger stepsCount = new AtomicInteger();
+
+        private final Map<Step, StepsSummary> summaries = Collections.synchronizedMap(
+                new IdentityHashMap<Step, StepsSummary>()
+        );
+
+        private final Thread owner = Thread.currentThread();
+
+        private volatile boolean released;
+
+        /**
+         * Clear steps and attachments and mark as released, so steps finished later in child
+         * threads are discarded instead of being added.
+         */
+        private synchronized void release() {
+            released = true;
+            clear();
+        }
+
+        /**
+         * Discard staged attachments of the step tree, then clear it.
+         */
+        private synchronized void clear() {
+            AttachmentsStaging.discard(this);
+            getSteps().clear();
+            getAttachments().clear();
+            summaries.clear();
+        }
+    }
+
+    /**
+     * Step stack of one thread. Child thread stack is created by the parent thread, so
+     * stacks are registered in the leak detector lazily, once, by the owner thread.
+     */
+    private static class StepStack extends ArrayDeque<Step> {
+
+        private boolean registered;
+    }
+
+    /**
+     * Step over the limits, it is never added to the step tree.
+     */
+    private static class NotRecordedStep extends Step {
+
+        private String failure;
+    }
 }
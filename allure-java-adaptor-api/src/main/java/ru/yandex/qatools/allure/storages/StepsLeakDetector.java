@@ -0,0 +1,124 @@
+package ru.yandex.qatools.allure.storages;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.model.Step;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Debug tool which tracks step stacks of all threads and reports how many steps each
+ * living thread retains. Threads and step stacks are referenced weakly, so the detector
+ * doesn't retain anything itself.
+ * <p/>
+ * Steps retained by threads which are not running a test case are usually leaked:
+ * nothing will ever write them to results.
+ *
+ * @see StepStorage#getLeakDetector()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isStepsLeakDetectorEnabled()
+ */
+public class StepsLeakDetector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StepsLeakDetector.class);
+
+    private final Map<Thread, WeakReference<Deque<Step>>> stacks = new WeakHashMap<>();
+
+    /**
+     * Register step stack of the current thread. Called once for each new stack,
+     * not on every access.
+     *
+     * @param stack step stack of the current thread
+     */
+    public void register(Deque<Step> stack) {
+        Thread thread = Thread.currentThread();
+        synchronized (stacks) {
+            WeakReference<Deque<Step>> registered = stacks.get(thread);
+            if (registered == null || registered.get() != stack) {
+                stacks.put(thread, new WeakReference<>(stack));
+            }
+        }
+    }
+
+    /**
+     * Returns count of steps retained by each living thread, threads without retained
+     * steps are skipped.
+     *
+     * @return thread names with counts of retained steps
+     */
+    public Map<String, Integer> getRetainedSteps() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<Thread, Deque<Step>> entry : snapshot().entrySet()) {
+            int count = countRetainedSteps(entry.getValue());
+            if (count > 0) {
+                result.put(entry.getKey().getName(), count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Log count of steps retained by each living thread.
+     */
+    public void report() {
+        Map<String, Integer> retained = getRetainedSteps();
+        for (Map.Entry<String, Integer> entry : retained.entrySet()) {
+            LOGGER.warn("Thread \"{}\" retains {} steps", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Map<Thread, Deque<Step>> snapshot() {
+        Map<Thread, Deque<Step>> result = new LinkedHashMap<>();
+        synchronized (stacks) {
+            for (Map.Entry<Thread, WeakReference<Deque<Step>>> entry : stacks.entrySet()) {
+                Deque<Step> stack = entry.getValue().get();
+                if (stack != null && entry.getKey().isAlive()) {
+                    result.put(entry.getKey(), stack);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stack is owned by its thread, so it's copied with retry on concurrent modification.
+     * Steps are counted with their children, the root step itself is not counted.
+     */
+    private static int countRetainedSteps(Deque<Step> stack) {
+        List<Step> steps = copy(stack);
+        int count = 0;
+        for (Step step : steps) {
+            count += step == null ? 0 : countSteps(step);
+        }
+        return Math.max(0, count - 1);
+    }
+
+    private static List<Step> copy(Deque<Step> stack) {
+        for (int i = 0; i < 3; i++) {
+            try {
+                return new ArrayList<>(stack);
+            } catch (RuntimeException ignored) { // NOSONAR
+                //stack was changed by its thread, try again
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static int countSteps(Step step) {
+        List<Step> children;
+        synchronized (step) {
+            children = new ArrayList<>(step.getSteps());
+        }
+        int count = 1;
+        for (Step child : children) {
+            count += countSteps(child);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.qatools.allure.storages;
+
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Synthetic step which summarises steps not recorded because of the step tree limits.
+ * Summary has count of steps by status, total duration, the first failed step with its failure and
+ * attachments of all summarised steps, so remove-attachments processing is applied to them.
+ * Only counters are updated for each added step, status and title are set by {@link #finish()}.
+ *
+ * @see StepStorage
+ */
+class StepsSummary {
+
+    /**
+     * Statuses from the worst to the best one.
+     */
+    private static final Status[] STATUS_PRIORITY = {
+            Status.FAILED, Status.BROKEN, Status.CANCELED, Status.SKIPPED, Status.PENDING, Status.PASSED
+    };
+
+    private final Step step = new Step().withName("Not recorded steps");
+
+    private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+
+    private int count;
+
+    private long duration;
+
+    private String firstFailure;
+
+    /**
+     * Add given step to the summary.
+     *
+     * @param notRecorded step to add
+     * @param failure     failure message of the step, can be null
+     */
+    public void add(Step notRecorded, String failure) {
+        count++;
+        if (notRecorded.getStop() > notRecorded.getStart()) {
+            duration += notRecorded.getStop() - notRecorded.getStart();
+        }
+        if (step.getStart() == 0 || notRecorded.getStart() < step.getStart()) {
+            step.setStart(notRecorded.getStart());
+        }
+        if (notRecorded.getStop() > step.getStop()) {
+            step.setStop(notRecorded.getStop());
+        }
+
+        Status status = notRecorded.getStatus() == null ? Status.PASSED : notRecorded.getStatus();
+        Integer current = counts.get(status);
+        counts.put(status, current == null ? 1 : current + 1);
+        if (firstFailure == null && (status == Status.FAILED || status == Status.BROKEN)) {
+            firstFailure = notRecorded.getTitle() == null ? notRecorded.getName() : notRecorded.getTitle();
+            if (failure != null) {
+                firstFailure += " (" + failure + ")";
+            }
+        }
+
+        step.getAttachments().addAll(notRecorded.getAttachments());
+    }
+
+    /**
+     * Set status and title of the summary step. Called when no more steps are added
+     * to the summary: its ancestor is finished or the test case is finished.
+     */
+    public void finish() {
+        step.setStatus(getWorstStatus());
+        step.setTitle(createTitle());
+    }
+
+    public Step getStep() {
+        return step;
+    }
+
+    private Status getWorstStatus() {
+        for (Status status : STATUS_PRIORITY) {
+            if (counts.containsKey(status)) {
+                return status;
+            }
+        }
+        return Status.PASSED;
+    }
+
+    private String createTitle() {
+        StringBuilder builder = new StringBuilder()
+                .append(count).append(count == 1 ? " step was" : " steps were")
+                .append(" not recorded because of the steps limit (");
+        boolean first = true;
+        for (Status status : STATUS_PRIORITY) {
+            Integer statusCount = counts.get(status);
+            if (statusCount != null) {
+                builder.append(first ? "" : ", ").append(statusCount).append(' ').append(status.value());
+                first = false;
+            }
+        }
+        builder.append("), total duration ").append(duration).append(" ms");
+        if (firstFailure != null) {
+            builder.append(", first failed: ").append(firstFailure);
+        }
+        return builder.toString();
+    }
+}
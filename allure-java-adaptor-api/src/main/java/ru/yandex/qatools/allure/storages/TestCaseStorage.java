@@ -4,6 +4,11 @@ import ru.yandex.qatools.allure.model.TestCaseResult;
 
 /**
  * Using to storage information about current testCase context
+ * <p/>
+ * Child threads share the testCase of their parent thread through a holder, so when
+ * the thread which set the testCase removes it at the end of test case, child threads
+ * (for example long-lived pool threads) don't retain it anymore. They get a new testCase
+ * on the next access. Removing in a child thread affects only the child thread.
  *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 13.12.13
@@ -12,6 +17,8 @@ import ru.yandex.qatools.allure.model.TestCaseResult;
  */
 public class TestCaseStorage extends InheritableThreadLocal<TestCaseResult> {
 
+    private final InheritableThreadLocal<Holder> holders = new InheritableThreadLocal<>();
+
     /**
      * Returns the current thread's "initial value". Construct an new
      * {@link ru.yandex.qatools.allure.model.TestCaseResult}
@@ -22,4 +29,59 @@ public class TestCaseStorage extends InheritableThreadLocal<TestCaseResult> {
     protected TestCaseResult initialValue() {
         return new TestCaseResult();
     }
+
+    /**
+     * Returns testCase of the current thread. If there is no testCase or it's removed
+     * by the thread it's inherited from, a new one is created.
+     *
+     * @return testCase of the current thread
+     */
+    @Override
+    public TestCaseResult get() {
+        Holder holder = holders.get();
+        TestCaseResult testCase = holder == null ? null : holder.testCase;
+        if (testCase == null) {
+            testCase = initialValue();
+            holders.set(new Holder(testCase));
+        }
+        return testCase;
+    }
+
+    /**
+     * Sets testCase of the current thread. Child threads started before don't see the change.
+     *
+     * @param testCase to set
+     */
+    @Override
+    public void set(TestCaseResult testCase) {
+        holders.set(new Holder(testCase));
+    }
+
+    /**
+     * Removes testCase of the current thread. If the testCase is created or set by the current
+     * thread it's removed from its child threads as well.
+     */
+    @Override
+    public void remove() {
+        Holder holder = holders.get();
+        if (holder != null && holder.ownerId == Thread.currentThread().getId()) {
+            holder.testCase = null;
+        }
+        holders.remove();
+    }
+
+    /**
+     * TestCase shared by the thread that created the holder and its child threads.
+     * Owner thread is referenced by id, so the holder doesn't retain it.
+     */
+    private static class Holder {
+
+        private final long ownerId = Thread.currentThread().getId();
+
+        private volatile TestCaseResult testCase;
+
+        private Holder(TestCaseResult testCase) {
+            this.testCase = testCase;
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package ru.yandex.qatools.allure.storages;
+
+/**
+ * Using to storage uid of the suite current testCase belongs to
+ *
+ * @see ru.yandex.qatools.allure.Allure
+ */
+public class TestCaseSuiteStorage extends InheritableThreadLocal<String> {
+}
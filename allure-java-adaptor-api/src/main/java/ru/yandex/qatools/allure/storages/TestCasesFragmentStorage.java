@@ -0,0 +1,44 @@
+package ru.yandex.qatools.allure.storages;
+
+import ru.yandex.qatools.allure.utils.TestCasesFragment;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Using to storage test cases fragments of started suites
+ *
+ * @see ru.yandex.qatools.allure.Allure
+ * @see ru.yandex.qatools.allure.utils.TestCasesFragment
+ */
+public class TestCasesFragmentStorage {
+
+    private final ConcurrentMap<String, TestCasesFragment> fragments = new ConcurrentHashMap<>();
+
+    /**
+     * Returns fragment for specified suite uid. If there is no fragment for the uid
+     * will be created new {@link ru.yandex.qatools.allure.utils.TestCasesFragment}
+     *
+     * @param uid suite uid
+     * @return fragment for specified uid
+     */
+    public TestCasesFragment get(String uid) {
+        TestCasesFragment fragment = fragments.get(uid);
+        if (fragment != null) {
+            return fragment;
+        }
+        TestCasesFragment created = new TestCasesFragment();
+        fragment = fragments.putIfAbsent(uid, created);
+        return fragment == null ? created : fragment;
+    }
+
+    /**
+     * Remove fragment by suite uid
+     *
+     * @param uid to remove
+     * @return removed fragment or null if there is no fragment for the uid
+     */
+    public TestCasesFragment remove(String uid) {
+        return fragments.remove(uid);
+    }
+}
@@ -1,10 +1,14 @@
 package ru.yandex.qatools.allure.storages;
 
+import ru.yandex.qatools.allure.model.TestCaseResult;
 import ru.yandex.qatools.allure.model.TestSuiteResult;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Using to storage information about current testCase context
@@ -17,20 +21,35 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class TestSuiteStorage {
 
-    private final Map<String, TestSuiteResult> testSuiteData = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TestSuiteResult> testSuiteData = new ConcurrentHashMap<>();
 
     /**
      * Returns the value in the current copy of variable from
      * {@link #testSuiteData}. If the variable has no value for the uid
      * will be created new {@link ru.yandex.qatools.allure.model.TestSuiteResult}
+     * atomically, so all threads get the same testSuite for the same uid.
      *
      * @param uid using as key for {@link #testSuiteData} to find variable
      * @return testSuite context for specified uid
      */
     public TestSuiteResult get(String uid) {
-        if (!testSuiteData.containsKey(uid)) {
-            testSuiteData.put(uid, new TestSuiteResult());
+        TestSuiteResult testSuite = testSuiteData.get(uid);
+        if (testSuite != null) {
+            return testSuite;
         }
+        TestSuiteResult created = createTestSuite();
+        TestSuiteResult previous = testSuiteData.putIfAbsent(uid, created);
+        return previous == null ? created : previous;
+    }
+
+    /**
+     * Returns the value for the uid from {@link #testSuiteData} without
+     * creating a new one.
+     *
+     * @param uid using as key for {@link #testSuiteData} to find variable
+     * @return testSuite context for specified uid or null if there is no such
+     */
+    public TestSuiteResult find(String uid) {
         return testSuiteData.get(uid);
     }
 
@@ -43,6 +62,16 @@ public class TestSuiteStorage {
         return testSuiteData.remove(uid);
     }
 
+    /**
+     * Creates a new testSuite with synchronized test cases list, so test cases
+     * can be added from different threads without any global lock.
+     */
+    private static TestSuiteResult createTestSuite() {
+        TestSuiteResult testSuite = new TestSuiteResult();
+        testSuite.setTestCases(Collections.synchronizedList(new ArrayList<TestCaseResult>()));
+        return testSuite;
+    }
+
     /**
      * Return all started suites
      */
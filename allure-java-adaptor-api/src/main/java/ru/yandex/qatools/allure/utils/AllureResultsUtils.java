@@ -1,32 +1,52 @@
 package ru.yandex.qatools.allure.utils;
 
-import org.apache.tika.metadata.Metadata;
 import org.apache.tika.mime.MimeTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.yandex.qatools.allure.commons.AllureFileUtils;
 import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.config.UidGenerator;
 import ru.yandex.qatools.allure.exceptions.AllureException;
 import ru.yandex.qatools.allure.model.Attachment;
 import ru.yandex.qatools.allure.model.ObjectFactory;
+import ru.yandex.qatools.allure.model.TestCaseResult;
 import ru.yandex.qatools.allure.model.TestSuiteResult;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.PropertyException;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.UUID;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
 
 
 import static javax.xml.bind.Marshaller.JAXB_ENCODING;
 import static javax.xml.bind.Marshaller.JAXB_FORMATTED_OUTPUT;
 import static org.apache.tika.mime.MimeTypes.getDefaultMimeTypes;
 import static ru.yandex.qatools.allure.config.AllureConfig.getDefaultResultsDirectory;
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateBinaryTestSuiteFileName;
 import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuiteFileName;
 
 /**
@@ -38,15 +58,41 @@ import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuit
  */
 public final class AllureResultsUtils {
 
+    public static final int MIME_TYPE_DETECTION_LIMIT = MimeTypeDetector.DETECTION_LIMIT;
+
+    private static final int MAX_CACHED_EXTENSIONS = 1024;
+
     private static File resultsDirectory;
 
     private static final Object RESULT_DIRECTORY_LOCK = new Object();
 
-    private static final Object ATTACHMENTS_LOCK = new Object();
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllureResultsUtils.class);
 
-    private static final AllureConfig CONFIG = AllureConfig.newInstance();
+    private static final ConcurrentMap<String, SharedAttachment> SHARED_ATTACHMENTS = new ConcurrentHashMap<>();
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(AllureResultsUtils.class);
+    private static final ConcurrentMap<String, String> EXTENSIONS = new ConcurrentHashMap<>();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final String TEXT_PLAIN = "text/plain";
+
+    private static final String TRUNCATION_MARKER = "\n\n[allure: %d bytes truncated, attachments size limit exceeded]\n";
+
+    private static final String DROPPED_NOTE = "[allure: attachment of %d bytes dropped, attachments size limit exceeded]";
+
+    /**
+     * Bytes reserved for truncation marker at the end of truncated attachment.
+     */
+    private static final int TRUNCATION_MARKER_RESERVE = 128;
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Marshaller> TEST_SUITE_MARSHALLER = new ThreadLocal<Marshaller>() {
+        @Override
+        protected Marshaller initialValue() {
+            return marshaller(TestSuiteResult.class);
+        }
+    };
 
     /**
      * Don't use instance
@@ -71,7 +117,7 @@ public final class AllureResultsUtils {
     }
 
     /**
-     * Create results directory. First step try to create {@link #CONFIG#getResultsDirectory()},
+     * Create results directory. First step try to create {@link AllureConfig#getResultsDirectory()},
      * if cannot, try to create {@link ru.yandex.qatools.allure.config.AllureConfig#getDefaultResultsDirectory},
      * and if cannot, returns a new <code>File</code> instance by converting the "allure-results"
      * pathname string into an abstract pathname.
@@ -79,7 +125,7 @@ public final class AllureResultsUtils {
      * @return created results directory
      */
     private static File createResultsDirectory() {
-        File resultsDirectory = CONFIG.getResultsDirectory();
+        File resultsDirectory = AllureConfig.getInstance().getResultsDirectory();
 
         if (createDirectories(resultsDirectory)) {
             return resultsDirectory;
@@ -129,27 +175,100 @@ public final class AllureResultsUtils {
 
     /**
      * Marshal given testSuite to results folder.
-     * Shortcut for #writeTestSuiteResult(TestSuiteResult, File)
+     * Shortcut for #writeTestSuiteResult(TestSuiteResult, File). If binary results format
+     * is enabled uses #writeBinaryTestSuiteResult(TestSuiteResult, File)
      */
     public static void writeTestSuiteResult(TestSuiteResult testSuite) {
+        if (AllureConfig.getInstance().isBinaryResultsFormat()) {
+            writeBinaryTestSuiteResult(testSuite, new File(getResultsDirectory(), generateBinaryTestSuiteFileName()));
+            return;
+        }
         writeTestSuiteResult(testSuite, new File(getResultsDirectory(), generateTestSuiteFileName()));
     }
 
+    /**
+     * Write {@link ru.yandex.qatools.allure.model.TestSuiteResult} to specified file in binary
+     * format using {@link TestSuiteResultBinaryWriter}.
+     *
+     * @param testSuite to write
+     */
+    public static void writeBinaryTestSuiteResult(TestSuiteResult testSuite, File testSuiteResultFile) {
+        try (TestSuiteResultBinaryWriter writer = new TestSuiteResultBinaryWriter(
+                new FileOutputStream(testSuiteResultFile))) {
+            writer.write(testSuite);
+        } catch (Exception e) {
+            LOGGER.error("Error while writing binary testSuite", e);
+        }
+    }
+
     /**
      * Marshal {@link ru.yandex.qatools.allure.model.TestSuiteResult} to specified file
      * uses {@link BadXmlCharacterFilterWriter}. Name of file generated uses
-     * {@link ru.yandex.qatools.allure.config.AllureNamingUtils#generateTestSuiteFileName()}
+     * {@link ru.yandex.qatools.allure.config.AllureNamingUtils#generateTestSuiteFileName()}.
+     * Marshaller is reused by the current thread. If StAX writer is enabled uses
+     * {@link TestSuiteResultStreamWriter} instead.
      *
      * @param testSuite to marshal
      */
     public static void writeTestSuiteResult(TestSuiteResult testSuite, File testSuiteResultFile) {
         try (BadXmlCharacterFilterWriter writer = new BadXmlCharacterFilterWriter(testSuiteResultFile)) {
-            marshaller(TestSuiteResult.class).marshal(
-                    new ObjectFactory().createTestSuite(testSuite),
-                    writer
-            );
+            if (AllureConfig.getInstance().isStaxWriterEnabled()) {
+                new TestSuiteResultStreamWriter(writer).write(testSuite);
+            } else {
+                TEST_SUITE_MARSHALLER.get().marshal(
+                        new ObjectFactory().createTestSuite(testSuite),
+                        writer
+                );
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error while marshaling testSuite", e);
+        }
+    }
+
+    /**
+     * Marshal given testSuite with test cases from given fragment to results folder.
+     * Shortcut for #writeTestSuiteResult(TestSuiteResult, File, TestCasesFragment). If the fragment
+     * is null or empty uses {@link #writeTestSuiteResult(TestSuiteResult)}. Test cases in the fragment
+     * are already marshalled, so such suites are always written as xml.
+     */
+    public static void writeTestSuiteResult(TestSuiteResult testSuite, TestCasesFragment testCases) {
+        if (testCases == null || testCases.isEmpty()) {
+            writeTestSuiteResult(testSuite);
+            return;
+        }
+        writeTestSuiteResult(testSuite, new File(getResultsDirectory(), generateTestSuiteFileName()), testCases);
+    }
+
+    /**
+     * Marshal {@link ru.yandex.qatools.allure.model.TestSuiteResult} to specified file using
+     * {@link TestSuiteResultStreamWriter}. Test cases already written to given fragment are copied
+     * to the result file, then the fragment is deleted. Test cases left in the testSuite are also
+     * written. If the fragment is null or empty uses {@link #writeTestSuiteResult(TestSuiteResult, File)}
+     *
+     * @param testSuite to marshal
+     * @param testCases closed fragment with finished test cases of given testSuite
+     */
+    public static void writeTestSuiteResult(TestSuiteResult testSuite, File testSuiteResultFile,
+                                            TestCasesFragment testCases) {
+        if (testCases == null || testCases.isEmpty()) {
+            writeTestSuiteResult(testSuite, testSuiteResultFile);
+            return;
+        }
+        try (BadXmlCharacterFilterWriter writer = new BadXmlCharacterFilterWriter(testSuiteResultFile);
+             Reader reader = testCases.openReader()) {
+            TestSuiteResultStreamWriter streamWriter = new TestSuiteResultStreamWriter(writer);
+            streamWriter.writeStartTestSuite(testSuite);
+            streamWriter.writeTestCases(reader);
+            for (TestCaseResult testCase : testSuite.getTestCases()) {
+                streamWriter.writeTestCase(testCase);
+            }
+            streamWriter.writeEndTestSuite();
         } catch (Exception e) {
             LOGGER.error("Error while marshaling testSuite", e);
+            return;
+        }
+        if (!testCases.delete()) {
+            LOGGER.warn(String.format("Can't delete test cases fragment <%s>", testCases.getFile()));
         }
     }
 
@@ -171,7 +290,8 @@ public final class AllureResultsUtils {
     }
 
     /**
-     * Creates a new {@link javax.xml.bind.Marshaller} for given class.
+     * Creates a new {@link javax.xml.bind.Marshaller} for given class. Uses
+     * cached context {@link #getJaxbContext(Class)}
      *
      * @param clazz specified class
      * @return a created marshaller
@@ -179,12 +299,35 @@ public final class AllureResultsUtils {
      */
     public static Marshaller createMarshallerForClass(Class<?> clazz) {
         try {
-            return JAXBContext.newInstance(clazz).createMarshaller();
+            return getJaxbContext(clazz).createMarshaller();
         } catch (JAXBException e) {
             throw new AllureException("Can't create marshaller for class " + clazz, e);
         }
     }
 
+    /**
+     * Returns {@link javax.xml.bind.JAXBContext} for given class. Context is created
+     * once per class and shared between threads, because it's thread safe and
+     * expensive to create.
+     *
+     * @param clazz specified class
+     * @return a cached context
+     * @throws AllureException if can't create context for given class.
+     */
+    public static JAXBContext getJaxbContext(Class<?> clazz) {
+        JAXBContext context = CONTEXTS.get(clazz);
+        if (context != null) {
+            return context;
+        }
+        try {
+            context = JAXBContext.newInstance(clazz);
+        } catch (JAXBException e) {
+            throw new AllureException("Can't create JAXB context for class " + clazz, e);
+        }
+        JAXBContext existing = CONTEXTS.putIfAbsent(clazz, context);
+        return existing == null ? context : existing;
+    }
+
     /**
      * Try to set specified property to given marshaller
      *
@@ -201,14 +344,56 @@ public final class AllureResultsUtils {
     }
 
     /**
-     * Remove attachment form {@link #resultsDirectory}
+     * Remove attachment form {@link #resultsDirectory}. If attachments deduplication is
+     * enabled uses {@link #deleteSharedAttachment(Attachment)}. Staged attachment is
+     * discarded without touching the results directory, see {@link AttachmentsStaging}
      *
      * @param attachment to remove
      * @return true, if attachment removed successfully, false otherwise
      */
     public static boolean deleteAttachment(Attachment attachment) {
-        File attachmentFile = new File(getResultsDirectory(), attachment.getSource());
-        return attachmentFile.exists() && attachmentFile.canWrite() && attachmentFile.delete();
+        if (AttachmentsStaging.discard(attachment)) {
+            return true;
+        }
+        if (AllureConfig.getInstance().isAttachmentsDeduplicationEnabled()) {
+            return deleteSharedAttachment(attachment);
+        }
+        File file = new File(getResultsDirectory(), attachment.getSource());
+        return deleteFile(file) || deleteFile(getCompressedFile(file));
+    }
+
+    /**
+     * Release a reference to shared attachment written by
+     * {@link #writeSharedAttachment(byte[], String, String)}. Attachment file is removed only
+     * if there are no more references to it and it was created by current process. Shared
+     * attachment without references is forgotten, so the registry doesn't grow for the whole run.
+     *
+     * @param attachment to remove
+     * @return true, if attachment file removed, false otherwise
+     */
+    public static boolean deleteSharedAttachment(Attachment attachment) {
+        File file = new File(getResultsDirectory(), attachment.getSource());
+        String path = file.getAbsolutePath();
+        SharedAttachment shared = SHARED_ATTACHMENTS.get(path);
+        if (shared == null) {
+            return false;
+        }
+        synchronized (shared) {
+            if (shared.removed) {
+                return false;
+            }
+            shared.references--;
+            if (shared.references > 0) {
+                return false;
+            }
+            shared.removed = true;
+            SHARED_ATTACHMENTS.remove(path, shared);
+            return shared.created && (deleteFile(file) || deleteFile(getCompressedFile(file)));
+        }
+    }
+
+    private static boolean deleteFile(File file) {
+        return file.exists() && file.canWrite() && file.delete();
     }
 
     /**
@@ -244,7 +429,7 @@ public final class AllureResultsUtils {
     public static Attachment writeAttachmentWithErrorMessage(Throwable throwable, String title) {
         String message = throwable.getMessage();
         try {
-            return writeAttachment(message.getBytes(CONFIG.getAttachmentsEncoding()), title);
+            return writeAttachment(message.getBytes(AllureConfig.getInstance().getAttachmentsEncoding()), title);
         } catch (Exception e) {
             e.addSuppressed(throwable);
             LOGGER.error(String.format("Can't write attachment \"%s\"", title), e);
@@ -255,7 +440,10 @@ public final class AllureResultsUtils {
     /**
      * Write attachment with specified type. Generate attachment name uses
      * {@link #generateAttachmentName()}, attachment extension uses
-     * {@link #getExtensionByMimeType(String)}
+     * {@link #getExtensionByMimeType(String)}. If attachments deduplication is
+     * enabled uses {@link #writeSharedAttachment(byte[], String, String)}.
+     * Attachment over the attachments budget is truncated or dropped, see
+     * {@link #applyBudget(byte[], String)}
      *
      * @param attachment byte array with attachment
      * @param title      attachment title
@@ -264,24 +452,529 @@ public final class AllureResultsUtils {
      * @throws IOException if can't write attachment
      */
     public static Attachment writeAttachment(byte[] attachment, String title, String type) throws IOException {
+        byte[] content = applyBudget(attachment, type);
+        if (content == null) {
+            return writeDroppedAttachment(attachment.length, title);
+        }
+        if (AllureConfig.getInstance().isAttachmentsDeduplicationEnabled()) {
+            return writeSharedAttachment(content, title, type);
+        }
+
         String name = generateAttachmentName();
         String extension = getExtensionByMimeType(type);
         String source = name + extension;
 
+        writeNewFile(new File(getResultsDirectory(), source), content, isCompressible(content.length, type));
+        return new Attachment().withTitle(title).withSource(source).withType(type);
+    }
+
+    /**
+     * Acquire attachments budget for given content, see {@link AttachmentsBudget}. Text content over
+     * the budget is truncated and ends with a marker telling how many bytes were dropped. Content is
+     * cut on UTF-8 character boundary, so the last character is never split. Budget
+     * acquired but not written (for dropped attachment or truncation marker reserve) is released.
+     *
+     * @param attachment content of attachment
+     * @param type       valid mime-type of attachment
+     * @return content to write or null if the attachment should be dropped
+     */
+    static byte[] applyBudget(byte[] attachment, String type) {
+        long allowed = AttachmentsBudget.acquire(attachment.length);
+        if (allowed >= attachment.length) {
+            return attachment;
+        }
+        if (!isText(type) || allowed <= TRUNCATION_MARKER_RESERVE) {
+            AttachmentsBudget.release(allowed);
+            return null;
+        }
+        int keep = toCharBoundary(attachment, (int) (allowed - TRUNCATION_MARKER_RESERVE));
+        byte[] marker = createTruncationMarker(attachment.length - keep);
+        byte[] content = Arrays.copyOf(attachment, keep + marker.length);
+        System.arraycopy(marker, 0, content, keep, marker.length);
+        AttachmentsBudget.release(allowed - content.length);
+        return content;
+    }
+
+    /**
+     * Acquire attachments budget for content of given temp file. Text content over the budget
+     * is truncated in place, see {@link #applyBudget(byte[], String)}
+     *
+     * @param temp file with attachment content
+     * @param type valid mime-type of attachment
+     * @return true, if the file should be written as attachment, false if the attachment should be dropped
+     * @throws IOException if can't truncate the file
+     */
+    static boolean applyBudget(Path temp, String type) throws IOException {
+        long size = Files.size(temp);
+        long allowed = AttachmentsBudget.acquire(size);
+        if (allowed >= size) {
+            return true;
+        }
+        if (!isText(type) || allowed <= TRUNCATION_MARKER_RESERVE) {
+            AttachmentsBudget.release(allowed);
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long keep = toCharBoundary(channel, allowed - TRUNCATION_MARKER_RESERVE);
+            byte[] marker = createTruncationMarker(size - keep);
+            channel.truncate(keep);
+            channel.position(keep);
+            channel.write(ByteBuffer.wrap(marker));
+            AttachmentsBudget.release(allowed - keep - marker.length);
+        }
+        return true;
+    }
+
+    /**
+     * Returns length of given content prefix which doesn't end in the middle of UTF-8 character.
+     *
+     * @param content content to cut
+     * @param keep    desired prefix length, should be less than content length
+     */
+    static int toCharBoundary(byte[] content, int keep) {
+        int result = keep;
+        while (result > 0 && keep - result < 3 && isContinuationByte(content[result])) {
+            result--;
+        }
+        return result;
+    }
+
+    /**
+     * Returns length of given file prefix which doesn't end in the middle of UTF-8 character.
+     *
+     * @see #toCharBoundary(byte[], int)
+     */
+    private static long toCharBoundary(FileChannel channel, long keep) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        long result = keep;
+        while (result > 0 && keep - result < 3) {
+            buffer.clear();
+            if (channel.read(buffer, result) <= 0 || !isContinuationByte(buffer.get(0))) {
+                break;
+            }
+            result--;
+        }
+        return result;
+    }
+
+    private static boolean isContinuationByte(byte value) {
+        return (value & 0xC0) == 0x80;
+    }
+
+    /**
+     * Write text note instead of attachment dropped because of attachments budget. The note
+     * itself is not counted in the budget.
+     *
+     * @param size  of dropped attachment
+     * @param title attachment title
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write the note
+     */
+    static Attachment writeDroppedAttachment(long size, String title) throws IOException {
+        byte[] note = String.format(DROPPED_NOTE, size).getBytes(StandardCharsets.UTF_8);
+        String source = generateAttachmentName() + getExtensionByMimeType(TEXT_PLAIN);
+        writeNewFile(new File(getResultsDirectory(), source), note, false);
+        return new Attachment().withTitle(title).withSource(source).withType(TEXT_PLAIN);
+    }
+
+    private static byte[] createTruncationMarker(long dropped) {
+        return String.format(TRUNCATION_MARKER, dropped).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isText(String type) {
+        return type != null && (type.startsWith("text/")
+                || type.equals("application/json") || type.equals("application/xml")
+                || type.endsWith("+json") || type.endsWith("+xml"));
+    }
+
+    /**
+     * Returns true if text attachment of given size and type should be compressed.
+     * Attachments without known extension are never compressed, so the report generator
+     * can tell compressed attachments from the ones attached as gzip archives.
+     *
+     * @see ru.yandex.qatools.allure.config.AllureConfig#getAttachmentsCompressionThreshold()
+     */
+    static boolean isCompressible(long size, String type) {
+        long threshold = AllureConfig.getInstance().getAttachmentsCompressionThreshold();
+        return threshold > 0 && size >= threshold && isText(type) && !getExtensionByMimeType(type).isEmpty();
+    }
+
+    private static File getCompressedFile(File file) {
+        return new File(file.getParentFile(),
+                file.getName() + AllureConfig.getInstance().getCompressedAttachmentFileSuffix());
+    }
+
+    private static byte[] compress(byte[] content) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(result)) {
+            gzip.write(content);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Generate attachment source for given content with specified type: content hash if
+     * attachments deduplication is enabled, random name otherwise.
+     */
+    static String generateAttachmentSource(byte[] attachment, String type) {
+        String name = AllureConfig.getInstance().isAttachmentsDeduplicationEnabled()
+                ? generateAttachmentName(attachment)
+                : generateAttachmentName();
+        return name + getExtensionByMimeType(type);
+    }
+
+    /**
+     * Write given content to attachment file with specified source. If attachments deduplication
+     * is enabled the file is shared, see {@link #writeSharedAttachment(byte[], String, String)}
+     */
+    static void writeAttachmentFile(byte[] attachment, String source, String type) throws IOException {
         File file = new File(getResultsDirectory(), source);
-        synchronized (ATTACHMENTS_LOCK) {
-            if (!file.exists()) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    fos.write(attachment);
+        boolean compress = isCompressible(attachment.length, type);
+        if (AllureConfig.getInstance().isAttachmentsDeduplicationEnabled()) {
+            writeSharedFile(file, attachment, compress);
+        } else {
+            writeNewFile(file, attachment, compress);
+        }
+    }
+
+    private static void writeNewFile(File file, byte[] content, boolean compress) throws IOException {
+        File target = compress ? getCompressedFile(file) : file;
+        try (OutputStream stream = Files.newOutputStream(target.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            if (compress) {
+                try (GZIPOutputStream gzip = new GZIPOutputStream(stream)) {
+                    gzip.write(content);
                 }
+            } else {
+                stream.write(content);
             }
+        } catch (FileAlreadyExistsException ignored) {
+            LOGGER.trace("Attachment file " + target + " already exists");
         }
+    }
+
+    /**
+     * Write attachment with specified type named by its content hash, see
+     * {@link #generateAttachmentName(byte[])}. Attachment with the same content
+     * is written only once, all created {@link ru.yandex.qatools.allure.model.Attachment}
+     * refer to the same file.
+     *
+     * @param attachment byte array with attachment
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write attachment
+     */
+    public static Attachment writeSharedAttachment(byte[] attachment, String title, String type)
+            throws IOException {
+        String source = generateAttachmentName(attachment) + getExtensionByMimeType(type);
+
+        writeSharedFile(new File(getResultsDirectory(), source), attachment,
+                isCompressible(attachment.length, type));
         return new Attachment().withTitle(title).withSource(source).withType(type);
     }
 
     /**
-     * Write attachment without specified type. Using {@link org.apache.tika.mime.MimeTypes#detect}
-     * to autodetect attachment type from attachment content.
+     * Shared attachments are counted by path of uncompressed file, so references to
+     * compressed attachment are released the same way.
+     */
+    private static void writeSharedFile(File file, byte[] content, boolean compress) throws IOException {
+        while (true) {
+            SharedAttachment shared = getSharedAttachment(file.getAbsolutePath());
+            synchronized (shared) {
+                if (shared.removed) {
+                    continue;
+                }
+                if (shared.references == 0) {
+                    shared.created = compress
+                            ? createFileIfAbsent(getCompressedFile(file), compress(content))
+                            : createFileIfAbsent(file, content);
+                }
+                shared.references++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns shared attachment registered for given path. It can be removed concurrently
+     * by {@link #deleteSharedAttachment(Attachment)}, so callers should check
+     * {@link SharedAttachment#removed} under its monitor and retry if it's set.
+     */
+    private static SharedAttachment getSharedAttachment(String path) {
+        SharedAttachment shared = SHARED_ATTACHMENTS.get(path);
+        if (shared != null) {
+            return shared;
+        }
+        SharedAttachment created = new SharedAttachment();
+        shared = SHARED_ATTACHMENTS.putIfAbsent(path, created);
+        return shared == null ? created : shared;
+    }
+
+    /**
+     * Atomically create file with given content if it doesn't exist. Content is written to
+     * a temp file first and then moved to the target, so the target file is never seen
+     * partially written.
+     *
+     * @param file    target file
+     * @param content file content
+     * @return true, if file was created, false if it already exists
+     * @throws IOException if can't write file
+     */
+    public static boolean createFileIfAbsent(File file, byte[] content) throws IOException {
+        Path target = file.toPath();
+        if (Files.exists(target)) {
+            return false;
+        }
+        Path temp = createTempAttachmentFile();
+        try {
+            Files.write(temp, content);
+            return moveIfAbsent(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Write attachment from given stream with specified type. If type is not specified it's detected
+     * from first {@link #MIME_TYPE_DETECTION_LIMIT} bytes of the stream. Stream is copied to
+     * the results directory without loading it to memory. If attachments deduplication is enabled
+     * attachment is named by its content hash, see {@link #writeSharedAttachment(byte[], String, String)}.
+     * Attachment over the attachments budget is truncated or dropped, see {@link #applyBudget(Path, String)}.
+     * Given stream is not closed.
+     *
+     * @param attachment stream with attachment content
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment, empty string or null
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write attachment
+     */
+    public static Attachment writeAttachment(InputStream attachment, String title, String type) throws IOException {
+        InputStream stream = attachment.markSupported() ? attachment : new BufferedInputStream(attachment);
+        String mimeType = type == null || type.isEmpty() ? detectMimeType(stream) : type;
+
+        Path temp = createTempAttachmentFile();
+        try {
+            String name = copyToTempAttachmentFile(stream, temp);
+            if (!applyBudget(temp, mimeType)) {
+                return writeDroppedAttachment(Files.size(temp), title);
+            }
+            return moveToAttachment(temp, name, title, mimeType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copy given stream to given temp file.
+     *
+     * @return attachment name: content hash if attachments deduplication is enabled,
+     * random name otherwise
+     */
+    static String copyToTempAttachmentFile(InputStream stream, Path temp) throws IOException {
+        boolean deduplication = AllureConfig.getInstance().isAttachmentsDeduplicationEnabled();
+        MessageDigest digest = deduplication ? createContentDigest() : null;
+        Files.copy(digest == null ? stream : new DigestInputStream(stream, digest),
+                temp, StandardCopyOption.REPLACE_EXISTING);
+        return digest == null ? generateAttachmentName() : toAttachmentName(digest.digest());
+    }
+
+    /**
+     * Write attachment from given file with specified type. If type is not specified it's detected
+     * from first {@link #MIME_TYPE_DETECTION_LIMIT} bytes of the file. File is hard linked to the
+     * results directory if enabled in config, otherwise it's copied using
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     * If attachments size is limited or the file should be compressed, see {@link #isCompressible(long, String)},
+     * the file is written as a stream, see {@link #writeAttachment(InputStream, String, String)}
+     *
+     * @param attachment file with attachment content
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment, empty string or null
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write attachment
+     * @see ru.yandex.qatools.allure.config.AllureConfig#isAttachmentsHardLinksEnabled()
+     */
+    public static Attachment writeAttachment(File attachment, String title, String type) throws IOException {
+        String mimeType = type == null || type.isEmpty() ? detectMimeType(attachment) : type;
+        if (AllureConfig.getInstance().isAttachmentsDeduplicationEnabled() || AttachmentsBudget.isLimited()
+                || isCompressible(attachment.length(), mimeType)) {
+            try (InputStream stream = new BufferedInputStream(new FileInputStream(attachment))) {
+                return writeAttachment(stream, title, mimeType);
+            }
+        }
+
+        String source = generateAttachmentName() + getExtensionByMimeType(mimeType);
+        Path target = new File(getResultsDirectory(), source).toPath();
+        boolean linked = AllureConfig.getInstance().isAttachmentsHardLinksEnabled()
+                && createLinkSafely(target, attachment.toPath());
+        if (!linked) {
+            copyFile(attachment.toPath(), target);
+        }
+        return new Attachment().withTitle(title).withSource(source).withType(mimeType);
+    }
+
+    /**
+     * Write attachment from given stream uses {@link #writeAttachment(InputStream, String, String)}.
+     * If something went wrong uses {@link #writeAttachmentWithErrorMessage(Throwable, String)}
+     */
+    public static Attachment writeAttachmentSafely(InputStream attachment, String title, String type) {
+        try {
+            return writeAttachment(attachment, title, type);
+        } catch (Exception e) {
+            LOGGER.trace("Error while saving attachment " + title + ":" + type, e);
+            return writeAttachmentWithErrorMessage(e, title);
+        }
+    }
+
+    /**
+     * Write attachment from given file uses {@link #writeAttachment(File, String, String)}.
+     * If something went wrong uses {@link #writeAttachmentWithErrorMessage(Throwable, String)}
+     */
+    public static Attachment writeAttachmentSafely(File attachment, String title, String type) {
+        try {
+            return writeAttachment(attachment, title, type);
+        } catch (Exception e) {
+            LOGGER.trace("Error while saving attachment " + title + ":" + type, e);
+            return writeAttachmentWithErrorMessage(e, title);
+        }
+    }
+
+    /**
+     * Detect mime-type of given stream content. Reads no more than {@link #MIME_TYPE_DETECTION_LIMIT}
+     * bytes, then resets the stream.
+     *
+     * @see MimeTypeDetector
+     *
+     * @param stream to detect, should support mark
+     * @return detected mime-type
+     * @throws IOException if can't read the stream
+     */
+    public static String detectMimeType(InputStream stream) throws IOException {
+        stream.mark(MIME_TYPE_DETECTION_LIMIT);
+        try {
+            byte[] head = new byte[MIME_TYPE_DETECTION_LIMIT];
+            int length = 0;
+            int read;
+            while (length < head.length && (read = stream.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+            return MimeTypeDetector.detect(head, length);
+        } finally {
+            stream.reset();
+        }
+    }
+
+    /**
+     * Detect mime-type of given file content.
+     *
+     * @see #detectMimeType(InputStream)
+     */
+    public static String detectMimeType(File file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            return detectMimeType(stream);
+        }
+    }
+
+    /**
+     * Move given temp file to attachment with specified name. If attachments deduplication
+     * is enabled the attachment is shared, see {@link #writeSharedAttachment(byte[], String, String)}
+     */
+    private static Attachment moveToAttachment(Path temp, String name, String title, String type)
+            throws IOException {
+        String source = name + getExtensionByMimeType(type);
+        moveAttachmentFile(temp, source, type);
+        return new Attachment().withTitle(title).withSource(source).withType(type);
+    }
+
+    /**
+     * Move given temp file to attachment file with specified source. If attachments deduplication
+     * is enabled the file is shared, see {@link #writeSharedAttachment(byte[], String, String)}.
+     * Text content is compressed the same way as byte array attachments, see
+     * {@link #isCompressible(long, String)}. Given temp file is not removed if it's compressed.
+     */
+    static void moveAttachmentFile(Path temp, String source, String type) throws IOException {
+        File file = new File(getResultsDirectory(), source);
+        boolean compress = isCompressible(Files.size(temp), type);
+        Path content = compress ? compressToTempFile(temp) : temp;
+        Path target = compress ? getCompressedFile(file).toPath() : file.toPath();
+        try {
+            if (!AllureConfig.getInstance().isAttachmentsDeduplicationEnabled()) {
+                moveIfAbsent(content, target);
+                return;
+            }
+            while (true) {
+                SharedAttachment shared = getSharedAttachment(file.getAbsolutePath());
+                synchronized (shared) {
+                    if (shared.removed) {
+                        continue;
+                    }
+                    if (shared.references == 0) {
+                        shared.created = moveIfAbsent(content, target);
+                    }
+                    shared.references++;
+                    return;
+                }
+            }
+        } finally {
+            if (compress) {
+                Files.deleteIfExists(content);
+            }
+        }
+    }
+
+    private static Path compressToTempFile(Path file) throws IOException {
+        Path temp = createTempAttachmentFile();
+        try (OutputStream stream = Files.newOutputStream(temp);
+             GZIPOutputStream gzip = new GZIPOutputStream(stream)) {
+            Files.copy(file, gzip);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    private static boolean moveIfAbsent(Path source, Path target) throws IOException {
+        if (Files.exists(target)) {
+            return false;
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    static Path createTempAttachmentFile() throws IOException {
+        return Files.createTempFile(getResultsDirectory().toPath(), ".allure", ".tmp");
+    }
+
+    private static boolean createLinkSafely(Path link, Path existing) {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LOGGER.debug("Can't create hard link to " + existing + ", file will be copied", e);
+            return false;
+        }
+    }
+
+    private static void copyFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    /**
+     * Write attachment without specified type. Using {@link MimeTypeDetector#detect(byte[])}
+     * to autodetect attachment type from first {@link #MIME_TYPE_DETECTION_LIMIT} bytes
+     * of attachment content.
      *
      * @param attachment to write
      * @param title      attachment title
@@ -289,7 +982,7 @@ public final class AllureResultsUtils {
      * @throws IOException if can't write attachment
      */
     public static Attachment writeAttachment(byte[] attachment, String title) throws IOException {
-        String type = getDefaultMimeTypes().detect(new ByteArrayInputStream(attachment), new Metadata()).toString();
+        String type = MimeTypeDetector.detect(attachment);
         return writeAttachment(attachment, title, type);
     }
 
@@ -299,17 +992,59 @@ public final class AllureResultsUtils {
      * @return generated name, looks like \"{uuid}-attachment\"
      */
     public static String generateAttachmentName() {
-        return UUID.randomUUID().toString() + CONFIG.getAttachmentFileSuffix();
+        return UidGenerator.generateUid() + AllureConfig.getInstance().getAttachmentFileSuffix();
     }
 
     /**
-     * Generate attachment extension from mime type
+     * Generate attachment name from attachment content.
+     *
+     * @return generated name, looks like \"{sha1}-attachment\"
+     */
+    public static String generateAttachmentName(byte[] attachment) {
+        return toAttachmentName(createContentDigest().digest(attachment));
+    }
+
+    private static MessageDigest createContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AllureException("Can't create attachment content digest", e);
+        }
+    }
+
+    private static String toAttachmentName(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex) + AllureConfig.getInstance().getAttachmentFileSuffix();
+    }
+
+    /**
+     * Generate attachment extension from mime type. Extensions are cached
+     * per mime-type.
      *
      * @param type valid mime-type
      * @return extension if it's known for specified mime-type, or empty string
      * otherwise
      */
     public static String getExtensionByMimeType(String type) {
+        if (type == null) {
+            return "";
+        }
+        String extension = EXTENSIONS.get(type);
+        if (extension != null) {
+            return extension;
+        }
+        extension = findExtensionByMimeType(type);
+        if (EXTENSIONS.size() < MAX_CACHED_EXTENSIONS) {
+            EXTENSIONS.putIfAbsent(type, extension);
+        }
+        return extension;
+    }
+
+    private static String findExtensionByMimeType(String type) {
         MimeTypes types = getDefaultMimeTypes();
         try {
             return types.forName(type).getExtension();
@@ -318,4 +1053,19 @@ public final class AllureResultsUtils {
             return "";
         }
     }
+
+    /**
+     * Count of references to the shared attachment file.
+     */
+    private static class SharedAttachment {
+
+        private int references;
+
+        private boolean created;
+
+        /**
+         * Set when the last reference is released and the entry is removed from the registry.
+         */
+        private boolean removed;
+    }
 }
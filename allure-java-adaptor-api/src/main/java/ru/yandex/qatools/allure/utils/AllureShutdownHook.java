@@ -2,6 +2,8 @@ package ru.yandex.qatools.allure.utils;
 
 import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.events.TestSuiteFinishedEvent;
+import ru.yandex.qatools.allure.experimental.ListenersNotifier;
+import ru.yandex.qatools.allure.journal.EventJournal;
 import ru.yandex.qatools.allure.model.Failure;
 import ru.yandex.qatools.allure.model.Status;
 import ru.yandex.qatools.allure.model.TestCaseResult;
@@ -9,6 +11,7 @@ import ru.yandex.qatools.allure.model.TestSuiteResult;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * If test execution was interrupted this hook can help to save test data.
@@ -18,18 +21,61 @@ import java.util.Set;
  */
 public class AllureShutdownHook implements Runnable {
 
+    public static final long WRITER_SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    public static final long LISTENERS_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
     private final Set<Map.Entry<String, TestSuiteResult>> testSuites;
 
+    private final AsyncTestSuiteResultWriter resultsWriter;
+
+    private final ListenersNotifier notifier;
+
+    private final EventJournal journal;
+
     /**
      * Create a new instance of shutdown hook.
      */
     public AllureShutdownHook(Set<Map.Entry<String, TestSuiteResult>> testSuites) {
+        this(testSuites, null);
+    }
+
+    /**
+     * Create a new instance of shutdown hook which also drains given async results writer.
+     */
+    public AllureShutdownHook(Set<Map.Entry<String, TestSuiteResult>> testSuites,
+                              AsyncTestSuiteResultWriter resultsWriter) {
+        this(testSuites, resultsWriter, null);
+    }
+
+    /**
+     * Create a new instance of shutdown hook which also drains given async results writer
+     * and async listeners of given notifier.
+     */
+    public AllureShutdownHook(Set<Map.Entry<String, TestSuiteResult>> testSuites,
+                              AsyncTestSuiteResultWriter resultsWriter, ListenersNotifier notifier) {
+        this(testSuites, resultsWriter, notifier, null);
+    }
+
+    /**
+     * Create a new instance of shutdown hook which also drains given async results writer
+     * and async listeners of given notifier, then closes given journal.
+     */
+    public AllureShutdownHook(Set<Map.Entry<String, TestSuiteResult>> testSuites,
+                              AsyncTestSuiteResultWriter resultsWriter, ListenersNotifier notifier,
+                              EventJournal journal) {
         this.testSuites = testSuites;
+        this.resultsWriter = resultsWriter;
+        this.notifier = notifier;
+        this.journal = journal;
     }
 
     /**
      * Mark unfinished test cases as interrupted for each unfinished test suite, then write
-     * test suite result
+     * test suite result. Staged attachments of unfinished test cases are discarded, see
+     * {@link AttachmentsStaging#discardAll()}. If async results writer specified wait until all queued suites are written.
+     * If notifier specified wait until async listeners process all events. If journal specified
+     * close it when all suites are written, otherwise it will be recovered by the next run.
      * @see #createFakeTestcaseWithWarning(ru.yandex.qatools.allure.model.TestSuiteResult)
      * @see #markTestcaseAsInterruptedIfNotFinishedYet(ru.yandex.qatools.allure.model.TestCaseResult)
      */
@@ -43,6 +89,17 @@ public class AllureShutdownHook implements Runnable {
 
             Allure.LIFECYCLE.fire(new TestSuiteFinishedEvent(entry.getKey()));
         }
+        AttachmentsStaging.discardAll();
+
+        boolean written = resultsWriter == null
+                || resultsWriter.shutdown(WRITER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (journal != null && written) {
+            journal.close();
+        }
+
+        if (notifier != null) {
+            notifier.shutdown(LISTENERS_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
     }
 
     /**
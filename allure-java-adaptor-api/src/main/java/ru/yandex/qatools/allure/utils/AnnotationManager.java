@@ -17,6 +17,7 @@ import ru.yandex.qatools.allure.model.SeverityLevel;
 
 import java.lang.annotation.Annotation;
 import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,8 +26,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import static java.lang.String.format;
 import static ru.yandex.qatools.allure.config.AllureModelUtils.createFeatureLabel;
 import static ru.yandex.qatools.allure.config.AllureModelUtils.createHostLabel;
 import static ru.yandex.qatools.allure.config.AllureModelUtils.createIssueLabel;
@@ -37,6 +39,10 @@ import static ru.yandex.qatools.allure.config.AllureModelUtils.createThreadLabel
 
 /**
  * Util, using to collect information from class and method annotations
+ * <p/>
+ * Labels are built once per manager and copied to each updated event, so
+ * managers returned by {@link #forMethod(Method, Class)} are cached and reused
+ * for each run of the same test method.
  *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 13.12.13
@@ -46,8 +52,22 @@ public class AnnotationManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationManager.class);
 
+    private static final ClassValue<ConcurrentMap<MethodKey, AnnotationManager>> CACHE =
+            new ClassValue<ConcurrentMap<MethodKey, AnnotationManager>>() {
+                @Override
+                protected ConcurrentMap<MethodKey, AnnotationManager> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
     private Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>();
 
+    private volatile List<Label> testSuiteLabels;
+
+    private volatile List<Label> testCaseLabels;
+
+    private boolean shared;
+
     /**
      * Construct AnnotationManager using given annotations
      *
@@ -66,6 +86,35 @@ public class AnnotationManager {
         populateAnnotations(Arrays.asList(annotations));
     }
 
+    /**
+     * Returns shared manager for annotations of given test method with annotations of given
+     * test class as defaults. Managers are cached per method and class, so annotations are read
+     * and labels are built only once. Cache is attached to the test class (or to the method's
+     * class if test class isn't specified), so it doesn't keep test classes and their class
+     * loaders from being unloaded. Returned manager can't be changed.
+     *
+     * @param method    test method
+     * @param testClass test class, can be null
+     * @return cached manager
+     */
+    public static AnnotationManager forMethod(Method method, Class<?> testClass) {
+        MethodKey key = new MethodKey(method, testClass);
+        ConcurrentMap<MethodKey, AnnotationManager> cache = CACHE.get(
+                testClass == null ? method.getDeclaringClass() : testClass
+        );
+        AnnotationManager manager = cache.get(key);
+        if (manager == null) {
+            manager = new AnnotationManager(method.getAnnotations());
+            if (testClass != null) {
+                manager.setDefaults(testClass.getAnnotations());
+            }
+            manager.shared = true;
+            AnnotationManager existing = cache.putIfAbsent(key, manager);
+            return existing == null ? manager : existing;
+        }
+        return manager;
+    }
+
     /**
      * Used to populate Map with given annotations
      *
@@ -84,9 +133,14 @@ public class AnnotationManager {
      * @param defaultAnnotations default value for annotations
      */
     public void setDefaults(Annotation[] defaultAnnotations) {
+        if (shared) {
+            throw new IllegalStateException("Shared annotation manager can't be changed");
+        }
         if (defaultAnnotations == null) {
             return;
         }
+        testSuiteLabels = null;
+        testCaseLabels = null;
         for (Annotation each : defaultAnnotations) {
             Class<? extends Annotation> key = each.annotationType();
             if (Title.class.equals(key) || Description.class.equals(key)) {
@@ -113,18 +167,7 @@ public class AnnotationManager {
             event.setDescription(getDescription());
         }
 
-        if (isIssueAnnotationPresent()) {
-            event.getLabels().add(createIssueLabel(getIssueKey()));
-        }
-
-        if (isIssuesAnnotationPresent()) {
-            for (String issueKey : getIssueKeys()) {
-                event.getLabels().add(createIssueLabel(issueKey));
-            }
-        }
-
-        event.getLabels().addAll(getStoryLabels());
-        event.getLabels().addAll(getFeatureLabels());
+        addCopies(event.getLabels(), getTestSuiteLabels());
     }
 
     /**
@@ -142,52 +185,92 @@ public class AnnotationManager {
             event.setDescription(getDescription());
         }
 
-        if (isSeverityAnnotationPresent()) {
-            event.getLabels().add(createSeverityLabel(getSeverity()));
-        }
-
-        if (isIssueAnnotationPresent()) {
-            event.getLabels().add(createIssueLabel(getIssueKey()));
-        }
-
-        if (isIssuesAnnotationPresent()) {
-            for (String issueKey : getIssueKeys()) {
-                event.getLabels().add(createIssueLabel(issueKey));
-            }
-        }
+        addCopies(event.getLabels(), getTestCaseLabels());
+        withExecutorInfo(event);
+    }
 
-        if (isTestCaseIdAnnotationPresent()) {
-            event.getLabels().add(createTestLabel(getTestCaseId()));
+    /**
+     * Add copies of given cached labels, so events never share mutable label instances.
+     */
+    private static void addCopies(List<Label> target, List<Label> labels) {
+        for (Label label : labels) {
+            target.add(new Label().withName(label.getName()).withValue(label.getValue()));
         }
-
-        event.getLabels().addAll(getStoryLabels());
-        event.getLabels().addAll(getFeatureLabels());
-        withExecutorInfo(event);
     }
 
     /**
-     * Add information about host and thread to specified test case started event
+     * Add information about host and thread to specified test case started event.
+     * Host name and process name are resolved once per JVM, each event gets its own label.
      *
      * @param event given event to update
      * @return updated event
      */
     public static TestCaseStartedEvent withExecutorInfo(TestCaseStartedEvent event) {
-        try {
-            event.getLabels().add(createHostLabel(InetAddress.getLocalHost().getHostName()));
-        } catch (Exception e) {
-            LOGGER.warn("Can not get current hostname", e);
-            //create a default host if can't get current hostname
-            event.getLabels().add(createHostLabel("default"));
-        }
+        event.getLabels().add(createHostLabel(ExecutorInfo.HOST_NAME));
 
-        event.getLabels().add(createThreadLabel(format("%s.%s(%s)",
-                        ManagementFactory.getRuntimeMXBean().getName(),
-                        Thread.currentThread().getName(),
-                        Thread.currentThread().getId())
+        Thread thread = Thread.currentThread();
+        event.getLabels().add(createThreadLabel(
+                ExecutorInfo.PROCESS_NAME + '.' + thread.getName() + '(' + thread.getId() + ')'
         ));
         return event;
     }
 
+    /**
+     * Returns issue, story and feature labels added to each test suite started event.
+     * Labels are built on the first call and shared, so they should not be changed.
+     *
+     * @return unmodifiable list of labels
+     */
+    public List<Label> getTestSuiteLabels() {
+        List<Label> labels = testSuiteLabels;
+        if (labels == null) {
+            labels = new ArrayList<>();
+            addIssueLabels(labels);
+            labels.addAll(getStoryLabels());
+            labels.addAll(getFeatureLabels());
+            labels = Collections.unmodifiableList(labels);
+            testSuiteLabels = labels;
+        }
+        return labels;
+    }
+
+    /**
+     * Returns severity, issue, test id, story and feature labels added to each test case
+     * started event. Labels are built on the first call and shared, so they should not be changed.
+     *
+     * @return unmodifiable list of labels
+     */
+    public List<Label> getTestCaseLabels() {
+        List<Label> labels = testCaseLabels;
+        if (labels == null) {
+            labels = new ArrayList<>();
+            if (isSeverityAnnotationPresent()) {
+                labels.add(createSeverityLabel(getSeverity()));
+            }
+            addIssueLabels(labels);
+            if (isTestCaseIdAnnotationPresent()) {
+                labels.add(createTestLabel(getTestCaseId()));
+            }
+            labels.addAll(getStoryLabels());
+            labels.addAll(getFeatureLabels());
+            labels = Collections.unmodifiableList(labels);
+            testCaseLabels = labels;
+        }
+        return labels;
+    }
+
+    private void addIssueLabels(List<Label> labels) {
+        if (isIssueAnnotationPresent()) {
+            labels.add(createIssueLabel(getIssueKey()));
+        }
+
+        if (isIssuesAnnotationPresent()) {
+            for (String issueKey : getIssueKeys()) {
+                labels.add(createIssueLabel(issueKey));
+            }
+        }
+    }
+
     /**
      * @return true if {@link ru.yandex.qatools.allure.annotations.Title}
      * annotation present in {@link #annotations} and false otherwise
@@ -374,4 +457,56 @@ public class AnnotationManager {
         return annotationType.cast(value);
     }
 
+    /**
+     * Host name and process name resolved on first use. Host name lookup may be slow,
+     * so it's done once per JVM.
+     */
+    private static final class ExecutorInfo {
+
+        private static final String HOST_NAME = resolveHostName();
+
+        private static final String PROCESS_NAME = ManagementFactory.getRuntimeMXBean().getName();
+
+        private ExecutorInfo() {
+        }
+
+        private static String resolveHostName() {
+            try {
+                return InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                LOGGER.warn("Can not get current hostname", e);
+                //use a default host if can't get current hostname
+                return "default";
+            }
+        }
+    }
+
+    private static final class MethodKey {
+
+        private final Method method;
+
+        private final Class<?> testClass;
+
+        MethodKey(Method method, Class<?> testClass) {
+            this.method = method;
+            this.testClass = testClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+            MethodKey key = (MethodKey) o;
+            return method.equals(key.method) && (testClass == null ? key.testClass == null : testClass.equals(key.testClass));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + (testClass == null ? 0 : testClass.hashCode());
+        }
+    }
 }
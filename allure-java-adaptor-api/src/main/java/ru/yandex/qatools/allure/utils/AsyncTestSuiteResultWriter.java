@@ -0,0 +1,194 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeTestSuiteResult;
+
+/**
+ * Write-behind writer for finished test suites. Suites are marshalled by dedicated
+ * daemon threads, so the thread that finishes a suite doesn't wait for JAXB and disk I/O.
+ * The queue is bounded: if it is full, {@link #write(TestSuiteResult)} blocks until
+ * a writer thread takes the next suite.
+ * <p/>
+ * Use {@link #shutdown(long, TimeUnit)} to write all queued suites before JVM exit.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isAsyncWriterEnabled()
+ * @see ru.yandex.qatools.allure.utils.AllureShutdownHook
+ */
+public class AsyncTestSuiteResultWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTestSuiteResultWriter.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private final AtomicLong totalWriteTime = new AtomicLong();
+
+    private final AtomicLong maxWriteTime = new AtomicLong();
+
+    /**
+     * Create a new writer with specified count of writer threads and queue capacity.
+     *
+     * @param threads   count of writer threads
+     * @param queueSize max count of suites waiting to be written
+     */
+    public AsyncTestSuiteResultWriter(int threads, int queueSize) {
+        int poolSize = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+                new WriterThreadFactory(),
+                new BlockingPolicy()
+        );
+    }
+
+    /**
+     * Schedule given test suite to write. Blocks if the queue is full. If the writer
+     * is already shut down the suite will be written in the caller thread.
+     *
+     * @param testSuite to write
+     */
+    public void write(TestSuiteResult testSuite) {
+        write(testSuite, null);
+    }
+
+    /**
+     * Schedule given test suite to write together with test cases from given fragment.
+     *
+     * @param testSuite to write
+     * @param testCases closed fragment with finished test cases, can be null
+     * @see AllureResultsUtils#writeTestSuiteResult(TestSuiteResult, TestCasesFragment)
+     */
+    public void write(TestSuiteResult testSuite, TestCasesFragment testCases) {
+        write(testSuite, testCases, null);
+    }
+
+    /**
+     * Schedule given test suite to write together with test cases from given fragment.
+     * Given callback is run by the writer thread after the suite is written.
+     *
+     * @param testSuite to write
+     * @param testCases closed fragment with finished test cases, can be null
+     * @param onWritten callback, can be null
+     */
+    public void write(final TestSuiteResult testSuite, final TestCasesFragment testCases, final Runnable onWritten) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                writeTestSuiteResult(testSuite, testCases);
+                registerWrite(System.nanoTime() - start);
+                if (onWritten != null) {
+                    onWritten.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop accepting new suites and wait until all queued suites are written.
+     *
+     * @return true if all suites written, false if the timeout elapsed
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for test suite results to be written", e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns count of suites waiting to be written.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns count of written suites.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Returns total time spent on writing suites in nanoseconds.
+     */
+    public long getTotalWriteTime() {
+        return totalWriteTime.get();
+    }
+
+    /**
+     * Returns max time spent on writing one suite in nanoseconds.
+     */
+    public long getMaxWriteTime() {
+        return maxWriteTime.get();
+    }
+
+    /**
+     * Returns average time spent on writing one suite in nanoseconds.
+     */
+    public long getAverageWriteTime() {
+        long count = writtenCount.get();
+        return count == 0 ? 0 : totalWriteTime.get() / count;
+    }
+
+    private void registerWrite(long time) {
+        writtenCount.incrementAndGet();
+        totalWriteTime.addAndGet(time);
+        long max = maxWriteTime.get();
+        while (time > max && !maxWriteTime.compareAndSet(max, time)) {
+            max = maxWriteTime.get();
+        }
+    }
+
+    /**
+     * Wait for a free slot in the queue instead of rejecting the task. Tasks submitted
+     * after shutdown are executed in the caller thread.
+     */
+    private static class BlockingPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                task.run();
+                return;
+            }
+            try {
+                executor.getQueue().put(task);
+                if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.run();
+            }
+        }
+    }
+
+    private static class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "allure-results-writer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
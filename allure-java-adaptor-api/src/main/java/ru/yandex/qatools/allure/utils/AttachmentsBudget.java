@@ -0,0 +1,159 @@
+package ru.yandex.qatools.allure.utils;
+
+import ru.yandex.qatools.allure.config.AllureConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits size of attachments written to the results directory: size of one attachment,
+ * total size of attachments of one test case and total size of attachments written by
+ * the process. Test case usage is shared with threads spawned by the test case thread through
+ * a holder, so when the test case is finished child threads (for example long-lived pool threads)
+ * stop counting to it, the same way as {@link ru.yandex.qatools.allure.storages.TestCaseStorage}
+ * does. Attachments written outside of test cases are limited by the run limit only.
+ * <p/>
+ * Budget counts written bytes: budget acquired for attachment which is dropped or truncated
+ * is partially returned by {@link #release(long)}, bytes of attachments removed later are not returned.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getAttachmentsMaxSize()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getAttachmentsMaxTestCaseSize()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getAttachmentsMaxRunSize()
+ */
+public final class AttachmentsBudget {
+
+    private static final AtomicLong RUN = new AtomicLong();
+
+    private static final InheritableThreadLocal<TestCaseUsage> TEST_CASE = new InheritableThreadLocal<>();
+
+    AttachmentsBudget() {
+        throw new IllegalStateException("Don't instance AttachmentsBudget");
+    }
+
+    /**
+     * Start counting attachments of the test case running in the current thread.
+     */
+    public static void startTestCase() {
+        TEST_CASE.set(new TestCaseUsage());
+    }
+
+    /**
+     * Stop counting attachments of the test case running in the current thread. If the test case
+     * is started by the current thread child threads stop counting to it as well.
+     */
+    public static void finishTestCase() {
+        TestCaseUsage usage = TEST_CASE.get();
+        if (usage != null && usage.ownerId == Thread.currentThread().getId()) {
+            usage.used = null;
+        }
+        TEST_CASE.remove();
+    }
+
+    /**
+     * Returns true if any attachments size limit is configured.
+     */
+    public static boolean isLimited() {
+        AllureConfig config = AllureConfig.getInstance();
+        return config.getAttachmentsMaxSize() > 0
+                || config.getAttachmentsMaxTestCaseSize() > 0
+                || config.getAttachmentsMaxRunSize() > 0;
+    }
+
+    /**
+     * Acquire budget for attachment of given size.
+     *
+     * @param size of attachment
+     * @return count of bytes allowed to write, less than given size if the attachment
+     * exceeds some limit
+     */
+    public static long acquire(long size) {
+        AllureConfig config = AllureConfig.getInstance();
+        return acquire(size,
+                config.getAttachmentsMaxSize(),
+                config.getAttachmentsMaxTestCaseSize(),
+                config.getAttachmentsMaxRunSize()
+        );
+    }
+
+    static long acquire(long size, long maxSize, long maxTestCaseSize, long maxRunSize) {
+        long allowed = maxSize > 0 ? Math.min(size, maxSize) : size;
+        AtomicLong testCase = getTestCaseUsage();
+        long allowedByTestCase = testCase == null ? allowed : reserve(testCase, allowed, maxTestCaseSize);
+        long allowedByRun = reserve(RUN, allowedByTestCase, maxRunSize);
+        if (testCase != null && maxTestCaseSize > 0 && allowedByRun < allowedByTestCase) {
+            testCase.addAndGet(allowedByRun - allowedByTestCase);
+        }
+        return allowedByRun;
+    }
+
+    /**
+     * Return budget acquired by {@link #acquire(long)} but not used, e.g. for attachment which
+     * is dropped after all. Should be called in the thread which acquired the budget.
+     *
+     * @param size of not used budget
+     */
+    public static void release(long size) {
+        AllureConfig config = AllureConfig.getInstance();
+        release(size, config.getAttachmentsMaxTestCaseSize(), config.getAttachmentsMaxRunSize());
+    }
+
+    static void release(long size, long maxTestCaseSize, long maxRunSize) {
+        if (size <= 0) {
+            return;
+        }
+        AtomicLong testCase = getTestCaseUsage();
+        if (testCase != null && maxTestCaseSize > 0) {
+            testCase.addAndGet(-size);
+        }
+        if (maxRunSize > 0) {
+            RUN.addAndGet(-size);
+        }
+    }
+
+    /**
+     * Reset run usage. Use only for tests.
+     */
+    static void reset() {
+        RUN.set(0);
+        TEST_CASE.remove();
+    }
+
+    /**
+     * Returns usage of the test case running in the current thread, or null if there is no
+     * test case or it's finished by the thread it's inherited from.
+     */
+    private static AtomicLong getTestCaseUsage() {
+        TestCaseUsage usage = TEST_CASE.get();
+        if (usage == null) {
+            return null;
+        }
+        AtomicLong used = usage.used;
+        if (used == null) {
+            TEST_CASE.remove();
+        }
+        return used;
+    }
+
+    private static long reserve(AtomicLong used, long size, long max) {
+        if (max <= 0) {
+            return size;
+        }
+        while (true) {
+            long current = used.get();
+            long allowed = Math.max(0, Math.min(size, max - current));
+            if (used.compareAndSet(current, current + allowed)) {
+                return allowed;
+            }
+        }
+    }
+
+    /**
+     * Usage shared by the test case thread and its child threads. Owner thread is referenced
+     * by id, so the holder doesn't retain it.
+     */
+    private static class TestCaseUsage {
+
+        private final long ownerId = Thread.currentThread().getId();
+
+        private volatile AtomicLong used = new AtomicLong();
+    }
+}
@@ -0,0 +1,399 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps attachments of running test cases out of the results directory until the test case
+ * is finished. Staged attachment gets its final source at once, so it's added to the step
+ * as usual, but its content is kept in memory (or in a temp file, if the memory budget is
+ * exhausted) until {@link #commit(TestCaseResult)}. Attachments removed before the commit
+ * (e.g. by {@link ru.yandex.qatools.allure.events.RemoveAttachmentsEvent} for passed test
+ * cases) are discarded without writing them to the results directory.
+ * <p/>
+ * Attachments of steps dropped without finishing the test case (see
+ * {@link ru.yandex.qatools.allure.events.ClearStepStorageEvent}) are discarded as well, attachments
+ * still staged at shutdown are discarded by {@link AllureShutdownHook}. Staged attachments are
+ * not visible for the results journal until committed, so they are lost if the process crashes
+ * in the middle of the test case.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isAttachmentsStagingEnabled()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getAttachmentsStagingMemoryBudget()
+ */
+public final class AttachmentsStaging {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentsStaging.class);
+
+    private static final ConcurrentMap<Key, Staged> STAGED = new ConcurrentHashMap<>();
+
+    private static final AtomicLong MEMORY = new AtomicLong();
+
+    AttachmentsStaging() {
+        throw new IllegalStateException("Don't instance AttachmentsStaging");
+    }
+
+    /**
+     * Returns true if attachments staging is enabled in config.
+     */
+    public static boolean isEnabled() {
+        return AllureConfig.getInstance().isAttachmentsStagingEnabled();
+    }
+
+    /**
+     * Stage attachment uses {@link #stage(byte[], String, String)}. If something went wrong
+     * uses {@link AllureResultsUtils#writeAttachmentWithErrorMessage(Throwable, String)}
+     */
+    public static Attachment stageSafely(byte[] attachment, String title, String type) {
+        try {
+            return stage(attachment, title, type);
+        } catch (Exception e) {
+            LOGGER.trace("Error while staging attachment " + title + ":" + type, e);
+            return AllureResultsUtils.writeAttachmentWithErrorMessage(e, title);
+        }
+    }
+
+    /**
+     * Stage attachment uses {@link #stage(InputStream, String, String)}. If something went wrong
+     * uses {@link AllureResultsUtils#writeAttachmentWithErrorMessage(Throwable, String)}
+     */
+    public static Attachment stageSafely(InputStream attachment, String title, String type) {
+        try {
+            return stage(attachment, title, type);
+        } catch (Exception e) {
+            LOGGER.trace("Error while staging attachment " + title + ":" + type, e);
+            return AllureResultsUtils.writeAttachmentWithErrorMessage(e, title);
+        }
+    }
+
+    /**
+     * Stage attachment uses {@link #stage(File, String, String)}. If something went wrong
+     * uses {@link AllureResultsUtils#writeAttachmentWithErrorMessage(Throwable, String)}
+     */
+    public static Attachment stageSafely(File attachment, String title, String type) {
+        try {
+            return stage(attachment, title, type);
+        } catch (Exception e) {
+            LOGGER.trace("Error while staging attachment " + title + ":" + type, e);
+            return AllureResultsUtils.writeAttachmentWithErrorMessage(e, title);
+        }
+    }
+
+    /**
+     * Stage attachment with specified type. If type is not specified it's detected from the content.
+     * Content is kept in memory while the memory budget allows, so given array must not be changed
+     * after staging. Otherwise content is written to a temp file. Attachments budget is acquired
+     * on commit, so discarded attachments don't use it, see {@link AttachmentsBudget}
+     *
+     * @param attachment byte array with attachment
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment, empty string or null
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write attachment to temp file
+     */
+    public static Attachment stage(byte[] attachment, String title, String type) throws IOException {
+        return stage(attachment, title, type, AllureConfig.getInstance().getAttachmentsStagingMemoryBudget());
+    }
+
+    static Attachment stage(byte[] attachment, String title, String type, long memoryBudget) throws IOException {
+        String mimeType = type == null || type.isEmpty() ? MimeTypeDetector.detect(attachment) : type;
+        String source = AllureResultsUtils.generateAttachmentSource(attachment, mimeType);
+
+        Staged staged;
+        if (reserve(attachment.length, memoryBudget)) {
+            staged = new Staged(attachment, null);
+        } else {
+            Path temp = AllureResultsUtils.createTempAttachmentFile();
+            try {
+                Files.write(temp, attachment);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            staged = new Staged(null, temp);
+        }
+        return register(new Attachment().withTitle(title).withSource(source).withType(mimeType), staged);
+    }
+
+    /**
+     * Stage attachment from given stream with specified type. If type is not specified it's detected
+     * from the stream content. Stream is always copied to a temp file, because its size is unknown.
+     * Given stream is not closed.
+     *
+     * @param attachment stream with attachment content
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment, empty string or null
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't write attachment to temp file
+     */
+    public static Attachment stage(InputStream attachment, String title, String type) throws IOException {
+        InputStream stream = attachment.markSupported() ? attachment : new BufferedInputStream(attachment);
+        String mimeType = type == null || type.isEmpty() ? AllureResultsUtils.detectMimeType(stream) : type;
+
+        Path temp = AllureResultsUtils.createTempAttachmentFile();
+        String name;
+        try {
+            name = AllureResultsUtils.copyToTempAttachmentFile(stream, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        String source = name + AllureResultsUtils.getExtensionByMimeType(mimeType);
+        return register(new Attachment().withTitle(title).withSource(source).withType(mimeType),
+                new Staged(null, temp));
+    }
+
+    /**
+     * Stage attachment from given file with specified type. If type is not specified it's detected
+     * from the file content. File is copied to a temp file as a stream, see
+     * {@link #stage(InputStream, String, String)}, so it's never hard linked and it can be changed
+     * after staging.
+     *
+     * @param attachment file with attachment content
+     * @param title      attachment title
+     * @param type       valid mime-type of attachment, empty string or null
+     * @return Created {@link ru.yandex.qatools.allure.model.Attachment}
+     * @throws IOException if can't copy the file to temp file
+     */
+    public static Attachment stage(File attachment, String title, String type) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(attachment))) {
+            return stage(stream, title, type);
+        }
+    }
+
+    /**
+     * Returns true if given attachment is staged and not committed yet.
+     */
+    public static boolean isStaged(Attachment attachment) {
+        return !STAGED.isEmpty() && STAGED.containsKey(new Key(attachment));
+    }
+
+    /**
+     * Discard content of given attachment if it's staged.
+     *
+     * @param attachment to discard
+     * @return true, if attachment was staged, false otherwise
+     */
+    public static boolean discard(Attachment attachment) {
+        Staged staged = unregister(attachment);
+        if (staged == null) {
+            return false;
+        }
+        staged.discard();
+        return true;
+    }
+
+    /**
+     * Discard content of staged attachments of given step and its substeps.
+     *
+     * @param step to discard attachments of
+     */
+    public static void discard(Step step) {
+        if (STAGED.isEmpty()) {
+            return;
+        }
+        for (Attachment attachment : new ArrayList<>(step.getAttachments())) {
+            discard(attachment);
+        }
+        for (Step child : new ArrayList<>(step.getSteps())) {
+            discard(child);
+        }
+    }
+
+    /**
+     * Discard content of all staged attachments and remove their temp files. Used at shutdown
+     * for attachments of test cases which are not finished.
+     */
+    public static void discardAll() {
+        Iterator<Staged> iterator = STAGED.values().iterator();
+        while (iterator.hasNext()) {
+            Staged staged = iterator.next();
+            iterator.remove();
+            staged.discard();
+        }
+    }
+
+    /**
+     * Write all staged attachments of given test case and its steps to the results directory.
+     * Attachments budget is acquired for each attachment, attachment over the budget is truncated
+     * or replaced with a note, see {@link AllureResultsUtils#applyBudget(byte[], String)}. Should be
+     * called in the test case thread before {@link AttachmentsBudget#finishTestCase()}.
+     * Attachments which can't be written are logged and skipped.
+     *
+     * @param testCase to commit attachments of
+     */
+    public static void commit(TestCaseResult testCase) {
+        if (STAGED.isEmpty()) {
+            return;
+        }
+        commit(testCase.getAttachments());
+        for (Step step : testCase.getSteps()) {
+            commit(step);
+        }
+    }
+
+    /**
+     * Write all staged attachments of given step and its substeps to the results directory.
+     *
+     * @param step to commit attachments of
+     */
+    public static void commit(Step step) {
+        commit(step.getAttachments());
+        for (Step child : step.getSteps()) {
+            commit(child);
+        }
+    }
+
+    private static void commit(List<Attachment> attachments) {
+        for (Attachment attachment : new ArrayList<>(attachments)) {
+            Staged staged = unregister(attachment);
+            if (staged == null) {
+                continue;
+            }
+            try {
+                staged.commit(attachment);
+            } catch (IOException e) {
+                LOGGER.error(String.format("Can't commit attachment \"%s\"", attachment.getTitle()), e);
+            }
+        }
+    }
+
+    /**
+     * Returns count of staged attachments.
+     */
+    public static int getStagedCount() {
+        return STAGED.size();
+    }
+
+    /**
+     * Returns size of staged attachments kept in memory.
+     */
+    public static long getStagedMemory() {
+        return MEMORY.get();
+    }
+
+    private static boolean reserve(long size, long budget) {
+        while (true) {
+            long used = MEMORY.get();
+            if (used + size > budget) {
+                return false;
+            }
+            if (MEMORY.compareAndSet(used, used + size)) {
+                return true;
+            }
+        }
+    }
+
+    private static Attachment register(Attachment attachment, Staged staged) {
+        STAGED.put(new Key(attachment), staged);
+        return attachment;
+    }
+
+    private static Staged unregister(Attachment attachment) {
+        return STAGED.isEmpty() ? null : STAGED.remove(new Key(attachment));
+    }
+
+    /**
+     * Identity key of staged attachment: attachments with the same source (e.g. deduplicated
+     * ones) are staged separately.
+     */
+    private static class Key {
+
+        private final Attachment attachment;
+
+        Key(Attachment attachment) {
+            this.attachment = attachment;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).attachment == attachment;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(attachment);
+        }
+    }
+
+    /**
+     * Staged attachment content: either byte array or temp file.
+     */
+    private static class Staged {
+
+        private final byte[] content;
+
+        private final Path temp;
+
+        Staged(byte[] content, Path temp) {
+            this.content = content;
+            this.temp = temp;
+        }
+
+        /**
+         * Write content to file of given attachment. Staged content is released
+         * even if writing fails. If the attachment is dropped because of attachments
+         * budget, given attachment is changed to the note written instead.
+         */
+        void commit(Attachment attachment) throws IOException {
+            if (content != null) {
+                try {
+                    byte[] allowed = AllureResultsUtils.applyBudget(content, attachment.getType());
+                    if (allowed == null) {
+                        drop(attachment, content.length);
+                    } else {
+                        AllureResultsUtils.writeAttachmentFile(allowed, attachment.getSource(), attachment.getType());
+                    }
+                } finally {
+                    MEMORY.addAndGet(-content.length);
+                }
+                return;
+            }
+            try {
+                long size = Files.size(temp);
+                if (AllureResultsUtils.applyBudget(temp, attachment.getType())) {
+                    AllureResultsUtils.moveAttachmentFile(temp, attachment.getSource(), attachment.getType());
+                } else {
+                    drop(attachment, size);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private static void drop(Attachment attachment, long size) throws IOException {
+            Attachment note = AllureResultsUtils.writeDroppedAttachment(size, attachment.getTitle());
+            attachment.setSource(note.getSource());
+            attachment.setType(note.getType());
+        }
+
+        void discard() {
+            if (content != null) {
+                MEMORY.addAndGet(-content.length);
+                return;
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                LOGGER.warn("Can't delete staged attachment file " + temp, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.apache.tika.metadata.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.apache.tika.mime.MimeTypes.getDefaultMimeTypes;
+
+/**
+ * Detects mime-type of attachment content. Only first {@link #DETECTION_LIMIT} bytes are
+ * inspected. Common types (PNG, JPEG, GIF, JSON and XML) are recognized by built-in checks,
+ * all other content, including plain text, is detected by {@link org.apache.tika.mime.MimeTypes#detect},
+ * so text formats with magic numbers (RTF, PostScript, scripts and so on) keep their types.
+ *
+ * @see AllureResultsUtils#writeAttachment(byte[], String)
+ */
+public final class MimeTypeDetector {
+
+    public static final int DETECTION_LIMIT = 8 * 1024;
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MimeTypeDetector.class);
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final byte[] GIF87A = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] GIF89A = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private static final byte[] XML_DECLARATION = "<?xml".getBytes(StandardCharsets.US_ASCII);
+
+    MimeTypeDetector() {
+        throw new IllegalStateException("Don't instance MimeTypeDetector");
+    }
+
+    /**
+     * Detect mime-type of given content.
+     *
+     * @param content to detect
+     * @return detected mime-type
+     */
+    public static String detect(byte[] content) {
+        return detect(content, Math.min(content.length, DETECTION_LIMIT));
+    }
+
+    /**
+     * Detect mime-type of first length bytes of given content.
+     *
+     * @param content to detect
+     * @param length  count of bytes to inspect
+     * @return detected mime-type
+     */
+    public static String detect(byte[] content, int length) {
+        String type = detectByContent(content, length);
+        return type == null ? detectByTika(content, length) : type;
+    }
+
+    /**
+     * Detect common mime-types by magic numbers and content. Other text is left to tika.
+     *
+     * @return detected mime-type or null if content type is not recognized
+     */
+    static String detectByContent(byte[] content, int length) {
+        if (startsWith(content, 0, length, PNG)) {
+            return "image/png";
+        }
+        if (startsWith(content, 0, length, JPEG)) {
+            return "image/jpeg";
+        }
+        if (startsWith(content, 0, length, GIF87A) || startsWith(content, 0, length, GIF89A)) {
+            return "image/gif";
+        }
+
+        int start = startsWith(content, 0, length, UTF8_BOM) ? UTF8_BOM.length : 0;
+        start = skipWhitespaces(content, start, length);
+        if (start == length || !isText(content, start, length)) {
+            return null;
+        }
+        if (startsWith(content, start, length, XML_DECLARATION)) {
+            return detectXml(content, start, length);
+        }
+        return isJsonStart(content, start, length) ? "application/json" : null;
+    }
+
+    private static String detectByTika(byte[] content, int length) {
+        try {
+            return getDefaultMimeTypes().detect(new ByteArrayInputStream(content, 0, length), new Metadata()).toString();
+        } catch (IOException e) {
+            LOGGER.warn("Can't detect MIME-type of attachment", e);
+            return OCTET_STREAM;
+        }
+    }
+
+    /**
+     * Detect xml type by root element name.
+     */
+    private static String detectXml(byte[] content, int start, int length) {
+        for (int i = start; i < length - 1; i++) {
+            if (content[i] == '<' && Character.isLetter(content[i + 1])) {
+                String root = readElementName(content, i + 1, length);
+                switch (root) {
+                    case "svg":
+                        return "image/svg+xml";
+                    case "html":
+                        return "application/xhtml+xml";
+                    default:
+                        return "application/xml";
+                }
+            }
+        }
+        return "application/xml";
+    }
+
+    private static String readElementName(byte[] content, int start, int length) {
+        int end = start;
+        int localStart = start;
+        while (end < length && isNameCharacter(content[end])) {
+            if (content[end] == ':') {
+                localStart = end + 1;
+            }
+            end++;
+        }
+        return new String(content, localStart, end - localStart, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isNameCharacter(byte b) {
+        return Character.isLetterOrDigit(b) || b == ':' || b == '-' || b == '_' || b == '.';
+    }
+
+    /**
+     * Object should start with a key or be empty, array should start with
+     * an object, an array, a string or be empty.
+     */
+    private static boolean isJsonStart(byte[] content, int start, int length) {
+        byte first = content[start];
+        if (first != '{' && first != '[') {
+            return false;
+        }
+        int next = skipWhitespaces(content, start + 1, length);
+        if (next == length) {
+            return true;
+        }
+        byte second = content[next];
+        return first == '{'
+                ? second == '"' || second == '}'
+                : second == '{' || second == '[' || second == '"' || second == ']';
+    }
+
+    /**
+     * Content is text if it has no control characters except whitespaces. Bytes
+     * greater than 0x7F are considered to be a part of multi-byte characters.
+     */
+    private static boolean isText(byte[] content, int start, int length) {
+        for (int i = start; i < length; i++) {
+            int b = content[i] & 0xFF;
+            if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B) {
+                return false;
+            }
+            if (b == 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespaces(byte[] content, int start, int length) {
+        int i = start;
+        while (i < length && Character.isWhitespace(content[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(byte[] content, int start, int length, byte[] prefix) {
+        if (length - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (content[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.qatools.allure.utils;
+
+import ru.yandex.qatools.allure.config.AllureConfig;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Formats stack traces of failures. Output has the same layout as {@link Throwable#printStackTrace()}
+ * (causes, suppressed exceptions and "... N more" for frames in common with enclosing trace), but:
+ * <ul>
+ * <li>frames of classes which names start with one of filtered prefixes are skipped, each run of
+ * skipped frames is replaced with "... N filtered" line. The first frame of each throwable is never
+ * skipped, so the place where the throwable was created is always shown;</li>
+ * <li>only first max depth frames of each throwable are printed, the rest are replaced with
+ * "... N truncated" line.</li>
+ * </ul>
+ * If there are no filters and no max depth the stack trace is printed by the throwable itself.
+ * Use {@link #getInstance()} to get formatter configured by {@link AllureConfig}.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getStackTraceFilters()
+ * @see ru.yandex.qatools.allure.config.AllureConfig#getStackTraceMaxDepth()
+ */
+public class StackTraceFormatter {
+
+    private static final String CAUSE_CAPTION = "Caused by: ";
+
+    private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static volatile StackTraceFormatter configured;
+
+    private final String[] filters;
+
+    private final int maxDepth;
+
+    private final AllureConfig config;
+
+    /**
+     * Constructs formatter with filters and max depth from {@link AllureConfig}.
+     */
+    public StackTraceFormatter() {
+        this(AllureConfig.getInstance());
+    }
+
+    private StackTraceFormatter(AllureConfig config) {
+        this.filters = parseFilters(config.getStackTraceFilters());
+        this.maxDepth = config.getStackTraceMaxDepth();
+        this.config = config;
+    }
+
+    /**
+     * Constructs formatter with specified filters and max depth.
+     *
+     * @param filters  comma separated class name prefixes, such as "org.testng.,sun.reflect.".
+     *                 Trailing "*" is ignored, so "org.testng.*" can be used as well
+     * @param maxDepth max count of printed frames of each throwable, zero or negative value means no limit
+     */
+    public StackTraceFormatter(String filters, int maxDepth) {
+        this.filters = parseFilters(filters);
+        this.maxDepth = maxDepth;
+        this.config = null;
+    }
+
+    /**
+     * Returns formatter with filters and max depth from {@link AllureConfig#getInstance()}. Formatter
+     * is built once and rebuilt only when the config snapshot is reloaded.
+     */
+    public static StackTraceFormatter getInstance() {
+        AllureConfig config = AllureConfig.getInstance();
+        StackTraceFormatter formatter = configured;
+        if (formatter == null || formatter.config != config) {
+            formatter = new StackTraceFormatter(config);
+            configured = formatter;
+        }
+        return formatter;
+    }
+
+    /**
+     * Format stack trace of given throwable with its causes and suppressed exceptions.
+     *
+     * @param throwable to format
+     * @return the stack trace
+     */
+    public String format(Throwable throwable) {
+        if (filters.length == 0 && maxDepth <= 0) {
+            StringWriter sw = new StringWriter();
+            try (PrintWriter writer = new PrintWriter(sw)) {
+                throwable.printStackTrace(writer);
+            }
+            return sw.toString();
+        }
+        StringBuilder builder = new StringBuilder();
+        Set<Throwable> printed = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        printed.add(throwable);
+        builder.append(throwable).append(LINE_SEPARATOR);
+        StackTraceElement[] trace = throwable.getStackTrace();
+        appendFrames(builder, trace, trace.length, "");
+        appendEnclosed(builder, throwable, trace, "", printed);
+        return builder.toString();
+    }
+
+    private void appendEnclosed(StringBuilder builder, Throwable throwable, StackTraceElement[] trace,
+                                String prefix, Set<Throwable> printed) {
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            appendEnclosed(builder, suppressed, trace, SUPPRESSED_CAPTION, prefix + "\t", printed);
+        }
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            appendEnclosed(builder, cause, trace, CAUSE_CAPTION, prefix, printed);
+        }
+    }
+
+    private void appendEnclosed(StringBuilder builder, Throwable throwable, StackTraceElement[] enclosingTrace,
+                                String caption, String prefix, Set<Throwable> printed) {
+        if (!printed.add(throwable)) {
+            builder.append(prefix).append("\t[CIRCULAR REFERENCE:").append(throwable).append(']')
+                    .append(LINE_SEPARATOR);
+            return;
+        }
+        StackTraceElement[] trace = throwable.getStackTrace();
+        int m = trace.length - 1;
+        int n = enclosingTrace.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+            m--;
+            n--;
+        }
+        builder.append(prefix).append(caption).append(throwable).append(LINE_SEPARATOR);
+        appendFrames(builder, trace, m + 1, prefix);
+        appendEnclosed(builder, throwable, trace, prefix, printed);
+    }
+
+    /**
+     * Append first count frames of given trace, the rest frames are in common with enclosing trace.
+     * Frames over max depth are replaced with "... N truncated", common frames with "... N more".
+     */
+    private void appendFrames(StringBuilder builder, StackTraceElement[] trace, int count, String prefix) {
+        int printed = 0;
+        int filtered = 0;
+        int i = 0;
+        for (; i < count; i++) {
+            if (maxDepth > 0 && printed >= maxDepth) {
+                break;
+            }
+            if (i > 0 && isFiltered(trace[i])) {
+                filtered++;
+                continue;
+            }
+            appendFiltered(builder, filtered, prefix);
+            filtered = 0;
+            builder.append(prefix).append("\tat ").append(trace[i]).append(LINE_SEPARATOR);
+            printed++;
+        }
+        appendFiltered(builder, filtered, prefix);
+        int truncated = count - i;
+        if (truncated > 0) {
+            builder.append(prefix).append("\t... ").append(truncated).append(" truncated").append(LINE_SEPARATOR);
+        }
+        int more = trace.length - count;
+        if (more > 0) {
+            builder.append(prefix).append("\t... ").append(more).append(" more").append(LINE_SEPARATOR);
+        }
+    }
+
+    private static void appendFiltered(StringBuilder builder, int filtered, String prefix) {
+        if (filtered > 0) {
+            builder.append(prefix).append("\t... ").append(filtered).append(" filtered").append(LINE_SEPARATOR);
+        }
+    }
+
+    private boolean isFiltered(StackTraceElement frame) {
+        String className = frame.getClassName();
+        for (String filter : filters) {
+            if (className.startsWith(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] parseFilters(String filters) {
+        List<String> result = new ArrayList<>();
+        if (filters != null) {
+            for (String filter : filters.split(",")) {
+                String prefix = filter.trim();
+                if (prefix.endsWith("*")) {
+                    prefix = prefix.substring(0, prefix.length() - 1);
+                }
+                if (!prefix.isEmpty()) {
+                    result.add(prefix);
+                }
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestCasesFragmentFileName;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.getResultsDirectory;
+
+/**
+ * On-disk fragment with finished test cases of one test suite. Each test case is
+ * marshalled and flushed to the fragment file as soon as it's added, so it can be
+ * dropped from memory. File is created lazily on first append.
+ * <p/>
+ * Fragment file contains a sequence of &lt;test-case&gt; elements without root element.
+ * It's assembled to test suite file by
+ * {@link AllureResultsUtils#writeTestSuiteResult(ru.yandex.qatools.allure.model.TestSuiteResult, TestCasesFragment)}
+ * If test run is killed before, report generator reads such fragments as is.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isTestCasesFragmentsEnabled()
+ */
+public class TestCasesFragment {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestCasesFragment.class);
+
+    private final String fileName = generateTestCasesFragmentFileName();
+
+    private File file;
+
+    private BadXmlCharacterFilterWriter writer;
+
+    private TestSuiteResultStreamWriter streamWriter;
+
+    private boolean closed;
+
+    /**
+     * Marshal given test case to the fragment file.
+     *
+     * @param testCase to append
+     * @return true if test case appended, false otherwise
+     */
+    public synchronized boolean append(TestCaseResult testCase) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (streamWriter == null) {
+                file = new File(getResultsDirectory(), fileName);
+                writer = new BadXmlCharacterFilterWriter(file);
+                streamWriter = new TestSuiteResultStreamWriter(writer);
+            }
+            streamWriter.writeTestCase(testCase);
+            streamWriter.flush();
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error while appending test case to fragment", e);
+            return false;
+        }
+    }
+
+    /**
+     * Close the fragment file. No test cases can be appended after.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.error("Error while closing test cases fragment", e);
+        }
+    }
+
+    /**
+     * Returns true if no test cases were appended to the fragment.
+     */
+    public synchronized boolean isEmpty() {
+        return file == null;
+    }
+
+    /**
+     * Open reader for closed fragment.
+     */
+    public synchronized Reader openReader() throws IOException {
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Delete the fragment file.
+     *
+     * @return true, if fragment removed successfully, false otherwise
+     */
+    public synchronized boolean delete() {
+        return file == null || file.delete();
+    }
+
+    /**
+     * Returns name of the fragment file. The name is known before the file is created.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns fragment file, or null if nothing was appended.
+     */
+    public synchronized File getFile() {
+        return file;
+    }
+}
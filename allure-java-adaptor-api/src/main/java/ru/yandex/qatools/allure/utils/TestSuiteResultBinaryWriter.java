@@ -0,0 +1,90 @@
+package ru.yandex.qatools.allure.utils;
+
+import ru.yandex.qatools.allure.commons.ResultsCodec;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer for binary test suite files, see {@link ResultsCodec}. Test suite record is written
+ * first, then test cases one by one. Each record is encoded to a reusable buffer to write its
+ * length before the payload.
+ * <p/>
+ * Not thread safe, use one writer per output.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isBinaryResultsFormat()
+ */
+public class TestSuiteResultBinaryWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DataOutputStream out;
+
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(BUFFER_SIZE);
+
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+
+    /**
+     * Create a new writer and write the file header.
+     *
+     * @param out underlying stream
+     * @throws IOException if can't write the header
+     */
+    public TestSuiteResultBinaryWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        ResultsCodec.writeHeader(this.out);
+    }
+
+    /**
+     * Write given test suite with all its test cases.
+     */
+    public void write(TestSuiteResult testSuite) throws IOException {
+        writeTestSuite(testSuite);
+        for (TestCaseResult testCase : testSuite.getTestCases()) {
+            writeTestCase(testCase);
+        }
+        flush();
+    }
+
+    /**
+     * Write test suite record. Test cases from given suite are not written.
+     */
+    public void writeTestSuite(TestSuiteResult testSuite) throws IOException {
+        ResultsCodec.writeTestSuite(recordOut, testSuite);
+        writeRecord(ResultsCodec.TEST_SUITE_RECORD);
+    }
+
+    /**
+     * Write test case record. Should be called after {@link #writeTestSuite(TestSuiteResult)}
+     */
+    public void writeTestCase(TestCaseResult testCase) throws IOException {
+        ResultsCodec.writeTestCase(recordOut, testCase);
+        writeRecord(ResultsCodec.TEST_CASE_RECORD);
+    }
+
+    /**
+     * Flush all written records to the underlying stream.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRecord(byte type) throws IOException {
+        recordOut.flush();
+        out.writeInt(record.size());
+        out.writeByte(type);
+        record.writeTo(out);
+        record.reset();
+    }
+}
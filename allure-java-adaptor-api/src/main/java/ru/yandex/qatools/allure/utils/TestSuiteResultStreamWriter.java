@@ -0,0 +1,169 @@
+package ru.yandex.qatools.allure.utils;
+
+import ru.yandex.qatools.allure.model.Description;
+import ru.yandex.qatools.allure.model.Label;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.createMarshallerForClass;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.setPropertySafely;
+
+/**
+ * Streaming (StAX) writer for {@link ru.yandex.qatools.allure.model.TestSuiteResult}. Test suite
+ * header is written by hand, test cases are marshalled one by one as JAXB fragments, so the whole
+ * output is never built at once. Output is valid against allure.xsd.
+ * <p/>
+ * Not thread safe, use one writer per output.
+ *
+ * @see ru.yandex.qatools.allure.config.AllureConfig#isStaxWriterEnabled()
+ */
+public class TestSuiteResultStreamWriter {
+
+    public static final String NAMESPACE = "urn:model.allure.qatools.yandex.ru";
+
+    public static final String PREFIX = "ns2";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final ThreadLocal<Marshaller> FRAGMENT_MARSHALLER = new ThreadLocal<Marshaller>() {
+        @Override
+        protected Marshaller initialValue() {
+            Marshaller marshaller = createMarshallerForClass(TestSuiteResult.class);
+            setPropertySafely(marshaller, Marshaller.JAXB_FRAGMENT, true);
+            return marshaller;
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+
+    private final XMLStreamWriter writer;
+
+    /**
+     * Create a new stream writer. Given writer should encode characters
+     * using UTF-8, for example {@link BadXmlCharacterFilterWriter}
+     *
+     * @param out underlying writer
+     * @throws XMLStreamException if can't create stream writer
+     */
+    public TestSuiteResultStreamWriter(Writer out) throws XMLStreamException {
+        this.out = out;
+        this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+    }
+
+    /**
+     * Write given test suite with all its test cases.
+     */
+    public void write(TestSuiteResult testSuite) throws XMLStreamException, JAXBException {
+        writeStartTestSuite(testSuite);
+        for (TestCaseResult testCase : testSuite.getTestCases()) {
+            writeTestCase(testCase);
+        }
+        writeEndTestSuite();
+    }
+
+    /**
+     * Write xml declaration, test suite element with all its properties except test cases
+     * and open test cases element. Test cases from given suite are not written.
+     */
+    public void writeStartTestSuite(TestSuiteResult testSuite) throws XMLStreamException, JAXBException {
+        writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+        writer.writeStartElement(PREFIX, "test-suite", NAMESPACE);
+        writer.writeNamespace(PREFIX, NAMESPACE);
+        writer.writeAttribute("start", String.valueOf(testSuite.getStart()));
+        writer.writeAttribute("stop", String.valueOf(testSuite.getStop()));
+        if (testSuite.getVersion() != null) {
+            writer.writeAttribute("version", testSuite.getVersion());
+        }
+
+        writeSimpleElement("name", testSuite.getName());
+        writeSimpleElement("title", testSuite.getTitle());
+        if (testSuite.getDescription() != null) {
+            writeFragment("description", Description.class, testSuite.getDescription());
+        }
+        writeLabels(testSuite.getLabels());
+
+        writer.writeStartElement("test-cases");
+    }
+
+    /**
+     * Marshal given test case. Should be called between {@link #writeStartTestSuite(TestSuiteResult)}
+     * and {@link #writeEndTestSuite()}
+     */
+    public void writeTestCase(TestCaseResult testCase) throws JAXBException {
+        writeFragment("test-case", TestCaseResult.class, testCase);
+    }
+
+    /**
+     * Copy already marshalled test cases (as written by {@link #writeTestCase(TestCaseResult)}
+     * without xml declaration) from given reader as is. Should be called between
+     * {@link #writeStartTestSuite(TestSuiteResult)} and {@link #writeEndTestSuite()}
+     */
+    public void writeTestCases(Reader testCases) throws XMLStreamException, IOException {
+        //close pending start tag before writing to the underlying writer
+        writer.writeCharacters("");
+        writer.flush();
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = testCases.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        out.flush();
+    }
+
+    /**
+     * Close test cases and test suite elements and flush the output.
+     */
+    public void writeEndTestSuite() throws XMLStreamException {
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    /**
+     * Flush all written data to the underlying writer.
+     */
+    public void flush() throws XMLStreamException {
+        writer.flush();
+    }
+
+    private void writeLabels(List<Label> labels) throws XMLStreamException, JAXBException {
+        if (labels.isEmpty()) {
+            return;
+        }
+        writer.writeStartElement("labels");
+        for (Label label : labels) {
+            writeFragment("label", Label.class, label);
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeSimpleElement(String name, String value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private <T> void writeFragment(String name, Class<T> type, T value) throws JAXBException {
+        FRAGMENT_MARSHALLER.get().marshal(new JAXBElement<>(new QName(name), type, value), writer);
+    }
+}
@@ -0,0 +1,186 @@
+package ru.yandex.qatools.allure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
+import ru.yandex.qatools.allure.events.MakeAttachmentEvent;
+import ru.yandex.qatools.allure.events.StepFailureEvent;
+import ru.yandex.qatools.allure.events.StepFinishedEvent;
+import ru.yandex.qatools.allure.events.StepStartedEvent;
+import ru.yandex.qatools.allure.events.TestCaseFinishedEvent;
+import ru.yandex.qatools.allure.events.TestCaseStartedEvent;
+import ru.yandex.qatools.allure.events.TestSuiteStartedEvent;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.storages.StepArena;
+import ru.yandex.qatools.allure.utils.AllureResultsUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lifecycle with steps of testCase threads recorded to compact step arenas.
+ *
+ * @see ru.yandex.qatools.allure.storages.StepArena
+ */
+public class AllureCompactStepsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Allure lifecycle;
+
+    private TestCaseResult testCase;
+
+    @Before
+    public void setUp() throws Exception {
+        AllureResultsUtils.setResultsDirectory(folder.newFolder());
+        lifecycle = new Allure(true);
+        assertTrue(lifecycle.isCompactStepsEnabled());
+
+        String suiteUid = UUID.randomUUID().toString();
+        lifecycle.fire(new TestSuiteStartedEvent(suiteUid, "suite"));
+        lifecycle.fire(new TestCaseStartedEvent(suiteUid, "test"));
+        testCase = lifecycle.getTestCaseStorage().get();
+    }
+
+    @Test
+    public void stepFailureTest() throws Exception {
+        lifecycle.startStep("failed", null);
+        lifecycle.fire(new StepFailureEvent().withThrowable(new AssertionError("failure")));
+        lifecycle.finishStep("title");
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        assertThat(testCase.getSteps(), hasSize(1));
+        Step step = testCase.getSteps().get(0);
+        assertThat(step.getName(), is("failed"));
+        assertThat(step.getTitle(), is("title"));
+        assertThat(step.getStatus(), is(Status.FAILED));
+    }
+
+    @Test
+    public void stepAttachmentTest() throws Exception {
+        lifecycle.startStep("parent", null);
+        lifecycle.startStep("child", null);
+        lifecycle.fire(new MakeAttachmentEvent("content".getBytes(StandardCharsets.UTF_8), "attachment", "text/plain"));
+        lifecycle.finishStep(null);
+        lifecycle.finishStep(null);
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        Step child = testCase.getSteps().get(0).getSteps().get(0);
+        assertThat(child.getName(), is("child"));
+        assertThat(child.getAttachments(), hasSize(1));
+        assertThat(child.getAttachments().get(0).getTitle(), is("attachment"));
+    }
+
+    @Test
+    public void clearStepStorageTest() throws Exception {
+        lifecycle.startStep("cleared", null);
+        lifecycle.startStep("cleared child", null);
+        lifecycle.finishStep(null);
+        lifecycle.fire(new ClearStepStorageEvent());
+
+        lifecycle.startStep("kept", null);
+        lifecycle.finishStep(null);
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        assertThat(testCase.getSteps(), hasSize(1));
+        assertThat(testCase.getSteps().get(0).getName(), is("kept"));
+    }
+
+    @Test
+    public void keepOrderWithChildThreadStepsTest() throws Exception {
+        lifecycle.startStep("first", null);
+        lifecycle.finishStep(null);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    lifecycle.fire(new StepStartedEvent("child thread"));
+                    lifecycle.fire(new StepFinishedEvent());
+                    return null;
+                }
+            }).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        lifecycle.startStep("second", null);
+        lifecycle.finishStep(null);
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        assertThat(testCase.getSteps(), hasSize(3));
+        assertThat(testCase.getSteps().get(0).getName(), is("first"));
+        assertThat(testCase.getSteps().get(1).getName(), is("child thread"));
+        assertThat(testCase.getSteps().get(2).getName(), is("second"));
+    }
+
+    @Test
+    public void captureContextFlushesArenaTest() throws Exception {
+        lifecycle.startStep("parent", null);
+        lifecycle.startStep("before capture", null);
+        lifecycle.finishStep(null);
+        final AllureContext context = lifecycle.captureContext();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(context.wrap(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    lifecycle.fire(new StepStartedEvent("worker"));
+                    lifecycle.fire(new StepFinishedEvent());
+                    return null;
+                }
+            })).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        lifecycle.startStep("after capture", null);
+        lifecycle.finishStep(null);
+        lifecycle.finishStep(null);
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        assertThat(testCase.getSteps(), hasSize(1));
+        Step parent = testCase.getSteps().get(0);
+        assertThat(parent.getName(), is("parent"));
+        assertThat(parent.getSteps(), hasSize(3));
+        assertThat(parent.getSteps().get(0).getName(), is("before capture"));
+        assertThat(parent.getSteps().get(1).getName(), is("worker"));
+        assertThat(parent.getSteps().get(2).getName(), is("after capture"));
+    }
+
+    @Test
+    public void flushFullArenaTest() throws Exception {
+        int count = StepArena.FLUSH_THRESHOLD * 2 + 1;
+        lifecycle.startStep("parent", null);
+        for (int i = 0; i < count; i++) {
+            lifecycle.startStep("child", null);
+            lifecycle.finishStep(null);
+        }
+        lifecycle.finishStep(null);
+        lifecycle.fire(new TestCaseFinishedEvent());
+
+        assertThat(testCase.getSteps(), hasSize(1));
+        assertThat(testCase.getSteps().get(0).getSteps(), hasSize(count));
+    }
+
+    @After
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+    }
+}
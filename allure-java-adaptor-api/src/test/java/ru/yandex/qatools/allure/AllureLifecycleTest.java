@@ -36,6 +36,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
@@ -220,6 +221,53 @@ public class AllureLifecycleTest {
         assertThat(lifecycle.getTestSuiteStorage().get(uid).getTestCases(), hasSize(threads * testCases));
     }
 
+    @Test
+    public void contextPropagationToPooledThreads() throws Exception {
+        final int threads = 4;
+        final int stepsCount = 100;
+
+        final Allure lifecycle = Allure.LIFECYCLE;
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
+        pool.prestartAllCoreThreads();
+        ExecutorService service = lifecycle.wrap(pool);
+
+        String suiteUid = UUID.randomUUID().toString();
+        fireTestSuiteStart(suiteUid);
+        TestCaseResult testCase = fireTestCaseStart(suiteUid);
+        Step parentStep = fireStepStart();
+
+        final List<Callable<TestCaseResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(new Callable<TestCaseResult>() {
+                @Override
+                public TestCaseResult call() throws Exception {
+                    for (int i = 0; i < stepsCount; i++) {
+                        lifecycle.fire(new StepStartedEvent("worker-step"));
+                        lifecycle.fire(new StepFinishedEvent());
+                    }
+                    return lifecycle.getTestCaseStorage().get();
+                }
+            });
+        }
+
+        for (Future<TestCaseResult> future : service.invokeAll(tasks)) {
+            assertTrue(testCase == future.get());
+        }
+        fireStepFinished();
+
+        assertThat(parentStep.getSteps(), hasSize(threads * stepsCount));
+
+        Future<Step> afterScope = pool.submit(new Callable<Step>() {
+            @Override
+            public Step call() throws Exception {
+                return lifecycle.getStepStorage().getLast();
+            }
+        });
+        assertFalse(parentStep == afterScope.get());
+        pool.shutdown();
+    }
+
     private void checkTestCaseIsNew(TestCaseResult testCaseResult) {
         assertNull(testCaseResult.getName());
         assertNull(testCaseResult.getTitle());
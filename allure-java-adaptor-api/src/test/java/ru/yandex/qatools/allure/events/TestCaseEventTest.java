@@ -8,6 +8,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -136,11 +139,27 @@ public class TestCaseEventTest {
         doReturn(parameters).when(testCase).getParameters();
         new AddParameterEvent("some-name", "some-value").process(testCase);
         verify(testCase).getParameters();
+        verify(parameters).size();
         verify(parameters).add(any(Parameter.class));
         verifyNoMoreInteractions(parameters);
         verifyNoMoreInteractions(testCase);
     }
 
+    @Test
+    public void testCaseAddSameParameterTest() throws Exception {
+        TestCaseResult result = new TestCaseResult();
+        new AddParameterEvent("some-name", "some-value").process(result);
+        new AddParameterEvent("other-name", "other-value").process(result);
+        new AddParameterEvent("some-name", "some-value").process(result);
+        new AddParameterEvent("some-name", "new-value").process(result);
+        new AddParameterEvent("some-name", "some-value").process(result);
+
+        List<Parameter> parameters = result.getParameters();
+        assertThat(parameters, hasSize(4));
+        assertThat(parameters.get(2).getValue(), is("new-value"));
+        assertThat(parameters.get(3).getValue(), is("some-value"));
+    }
+
     @Test
     public void testCasePendingEventTest() throws Exception {
         Throwable throwable = new Exception("atata");
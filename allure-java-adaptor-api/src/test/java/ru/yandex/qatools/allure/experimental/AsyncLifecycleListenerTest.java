@@ -0,0 +1,126 @@
+package ru.yandex.qatools.allure.experimental;
+
+import org.junit.Test;
+import ru.yandex.qatools.allure.events.StepFinishedEvent;
+import ru.yandex.qatools.allure.events.StepStartedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLifecycleListenerTest {
+
+    @Test
+    public void shouldKeepEventsOrderTest() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        AsyncLifecycleListener async = new AsyncLifecycleListener(listener, 4, OverflowPolicy.BLOCK, 1);
+
+        for (int i = 0; i < 100; i++) {
+            async.fire(new StepStartedEvent(String.valueOf(i)));
+        }
+
+        assertTrue(async.shutdown(10, TimeUnit.SECONDS));
+        assertThat(listener.names, hasSize(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(listener.names.get(i), is(String.valueOf(i)));
+        }
+        assertThat(async.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void shouldDropEventsIfBufferIsFullTest() throws Exception {
+        BlockedListener listener = new BlockedListener();
+        AsyncLifecycleListener async = new AsyncLifecycleListener(listener, 1, OverflowPolicy.DROP, 1);
+
+        async.fire(new StepStartedEvent("first"));
+        listener.started.await(10, TimeUnit.SECONDS);
+        async.fire(new StepStartedEvent("second"));
+        async.fire(new StepStartedEvent("third"));
+        listener.release.countDown();
+
+        assertTrue(async.shutdown(10, TimeUnit.SECONDS));
+        assertThat(listener.names, contains("first", "second"));
+        assertThat(async.getDroppedCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotLoseEventsFiredDuringShutdownTest() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        final AsyncLifecycleListener async = new AsyncLifecycleListener(listener, 4, OverflowPolicy.BLOCK, 1);
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    async.fire(new StepStartedEvent(String.valueOf(i)));
+                }
+            }
+        });
+        producer.start();
+        assertTrue(async.shutdown(10, TimeUnit.SECONDS));
+        producer.join();
+
+        assertThat(listener.names, hasSize(10000));
+    }
+
+    @Test
+    public void shouldNotifyOnlySubscribedListenersTest() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        ListenersNotifier notifier = new ListenersNotifier();
+        notifier.addListener(listener);
+
+        notifier.fire(new StepStartedEvent("step"));
+        notifier.fire(new StepFinishedEvent());
+
+        assertThat(listener.names, contains("step"));
+        assertThat(listener.finished, is(0));
+    }
+
+    public static class RecordingListener extends LifecycleListener {
+
+        protected final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+
+        protected int finished;
+
+        @Override
+        public boolean isSubscribed(Class<?> eventType) {
+            return StepStartedEvent.class.isAssignableFrom(eventType);
+        }
+
+        @Override
+        public void fire(StepStartedEvent event) {
+            names.add(event.getName());
+        }
+
+        @Override
+        public void fire(StepFinishedEvent event) {
+            finished++;
+        }
+    }
+
+    public static class BlockedListener extends RecordingListener {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void fire(StepStartedEvent event) {
+            super.fire(event);
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.qatools.allure.journal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.listTestSuiteFiles;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshalSuites;
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestCasesFragmentFileName;
+
+public class EventJournalRecoveryTest {
+
+    private static final String SUITE_UID = "suite-uid";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resultsDirectory;
+
+    private EventJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        resultsDirectory = folder.newFolder();
+        journal = new EventJournal(resultsDirectory, 1024);
+    }
+
+    @Test
+    public void recoverUnfinishedSuiteTest() throws Exception {
+        journal.testSuiteChanged(SUITE_UID, new TestSuiteResult().withName("suite").withStart(1L));
+
+        TestCaseResult finished = new TestCaseResult().withName("finished").withStart(2L);
+        journal.testCaseStarted(SUITE_UID, finished);
+        finished.setStatus(Status.PASSED);
+        finished.setStop(3L);
+        journal.testCaseFinished(SUITE_UID, finished);
+
+        journal.testCaseStarted(SUITE_UID, new TestCaseResult().withName("interrupted").withStart(4L));
+        Step step = new Step().withName("step").withStart(5L);
+        journal.stepStarted(SUITE_UID, step);
+        step.setStatus(Status.PASSED);
+        step.setStop(6L);
+        journal.stepFinished(SUITE_UID, step);
+
+        journal.abandon();
+
+        assertThat(EventJournalRecovery.recover(resultsDirectory), is(1));
+
+        List<TestSuiteResult> testSuites = unmarshalSuites(resultsDirectory);
+        assertThat(testSuites, hasSize(1));
+        List<TestCaseResult> testCases = testSuites.get(0).getTestCases();
+        assertThat(testCases, hasSize(3));
+        assertThat(testCases.get(0).getName(), is("finished"));
+        assertThat(testCases.get(0).getStatus(), is(Status.PASSED));
+        assertThat(testCases.get(1).getName(), is("interrupted"));
+        assertThat(testCases.get(1).getStatus(), is(Status.BROKEN));
+        assertThat(testCases.get(1).getSteps().get(0).getName(), is("step"));
+        assertThat(journalFiles(), is(0));
+    }
+
+    @Test
+    public void removeTestCasesFragmentOfRecoveredSuiteTest() throws Exception {
+        journal.testSuiteChanged(SUITE_UID, new TestSuiteResult().withName("suite"));
+        TestCaseResult testCase = new TestCaseResult().withName("moved").withStatus(Status.PASSED);
+        journal.testCaseStarted(SUITE_UID, testCase);
+        journal.testCaseFinished(SUITE_UID, testCase);
+
+        File fragment = new File(resultsDirectory, generateTestCasesFragmentFileName());
+        journal.testCasesFragmentCreated(SUITE_UID, fragment.getName());
+        assertTrue(fragment.createNewFile());
+        journal.abandon();
+
+        assertThat(EventJournalRecovery.recover(resultsDirectory), is(1));
+
+        assertFalse(fragment.exists());
+        List<TestSuiteResult> testSuites = unmarshalSuites(resultsDirectory);
+        assertThat(testSuites, hasSize(1));
+        //moved test case and the fake one with warning
+        assertThat(testSuites.get(0).getTestCases(), hasSize(2));
+        assertThat(testSuites.get(0).getTestCases().get(0).getName(), is("moved"));
+    }
+
+    @Test
+    public void skipFinishedSuiteTest() throws Exception {
+        journal.testSuiteChanged(SUITE_UID, new TestSuiteResult().withName("suite"));
+        journal.testSuiteFinished(SUITE_UID);
+        journal.abandon();
+
+        assertThat(EventJournalRecovery.recover(resultsDirectory), is(0));
+        assertThat(listTestSuiteFiles(resultsDirectory), hasSize(0));
+    }
+
+    @Test
+    public void skipActiveJournalTest() throws Exception {
+        journal.testSuiteChanged(SUITE_UID, new TestSuiteResult().withName("suite"));
+
+        assertThat(EventJournalRecovery.recover(resultsDirectory), is(0));
+        assertThat(journalFiles(), is(2));
+
+        journal.close();
+        assertThat(journalFiles(), is(0));
+    }
+
+    @Test
+    public void rotateSegmentsTest() throws Exception {
+        journal.testSuiteChanged(SUITE_UID, new TestSuiteResult().withName("suite"));
+        for (int i = 0; i < 100; i++) {
+            TestCaseResult testCase = new TestCaseResult().withName("test" + i).withStatus(Status.PASSED);
+            journal.testCaseStarted(SUITE_UID, testCase);
+            journal.testCaseFinished(SUITE_UID, testCase);
+        }
+        journal.abandon();
+
+        EventJournalRecovery.recover(resultsDirectory);
+
+        List<TestSuiteResult> testSuites = unmarshalSuites(resultsDirectory);
+        assertThat(testSuites, hasSize(1));
+        //all test cases and the fake one with warning
+        assertThat(testSuites.get(0).getTestCases(), hasSize(101));
+    }
+
+    private int journalFiles() {
+        String[] files = resultsDirectory.list();
+        int count = 0;
+        for (String file : files) {
+            if (file.endsWith(EventJournal.SEGMENT_FILE_SUFFIX) || file.endsWith(EventJournal.LOCK_FILE_SUFFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.qatools.allure.storages;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StackTraceStorageTest {
+
+    private StackTraceStorage stackTraceStorage = new StackTraceStorage();
+
+    @Test
+    public void internTest() throws Exception {
+        String first = new String("stack trace");
+        String second = new String("stack trace");
+
+        assertTrue(first == stackTraceStorage.intern("suite", first));
+        assertTrue(first == stackTraceStorage.intern("suite", second));
+        assertTrue(second == stackTraceStorage.intern("other-suite", second));
+    }
+
+    @Test
+    public void removeTest() throws Exception {
+        String first = new String("stack trace");
+        String second = new String("stack trace");
+        stackTraceStorage.intern("suite", first);
+        stackTraceStorage.remove("suite");
+
+        assertFalse(first == stackTraceStorage.intern("suite", second));
+        assertNull(stackTraceStorage.intern("suite", null));
+    }
+}
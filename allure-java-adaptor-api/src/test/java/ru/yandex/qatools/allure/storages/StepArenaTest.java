@@ -0,0 +1,139 @@
+package ru.yandex.qatools.allure.storages;
+
+import org.junit.Before;
+import org.junit.Test;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StepArenaTest {
+
+    private StepArena arena;
+
+    @Before
+    public void setUp() throws Exception {
+        arena = new StepArena(2);
+    }
+
+    @Test
+    public void flushNestedStepsTest() throws Exception {
+        StepStorage stepStorage = new StepStorage();
+        Step root = stepStorage.getLast();
+
+        arena.start("first", null);
+        arena.start("child", "child title");
+        arena.finish(null);
+        arena.finish("first title");
+        arena.start("second", null);
+        arena.finish(null);
+        assertThat(arena.size(), is(3));
+
+        arena.flush(stepStorage);
+
+        assertTrue(arena.isEmpty());
+        assertTrue(root == stepStorage.getLast());
+        assertThat(root.getSteps(), hasSize(2));
+        Step first = root.getSteps().get(0);
+        assertThat(first.getName(), is("first"));
+        assertThat(first.getTitle(), is("first title"));
+        assertThat(first.getStatus(), is(Status.PASSED));
+        assertTrue(first.getStop() >= first.getStart());
+        assertThat(first.getSteps(), hasSize(1));
+        assertThat(first.getSteps().get(0).getTitle(), is("child title"));
+        assertThat(root.getSteps().get(1).getName(), is("second"));
+    }
+
+    @Test
+    public void flushOpenStepsTest() throws Exception {
+        StepStorage stepStorage = new StepStorage();
+        Step root = stepStorage.getLast();
+
+        arena.start("open", null);
+        arena.start("finished", null);
+        arena.finish(null);
+        arena.start("open child", null);
+
+        arena.flush(stepStorage);
+
+        assertFalse(arena.hasOpenStep());
+        assertThat(stepStorage.get(), hasSize(3));
+        assertThat(stepStorage.getLast().getName(), is("open child"));
+        stepStorage.adopt();
+        Step open = stepStorage.adopt();
+        assertThat(open.getName(), is("open"));
+        assertThat(open.getSteps(), hasSize(2));
+        assertThat(root.getSteps(), hasSize(1));
+    }
+
+    @Test
+    public void flushWithLimitsAndCoalescingTest() throws Exception {
+        StepStorage stepStorage = new StepStorage(0, 0, 3, true);
+        Step root = stepStorage.getLast();
+
+        for (int i = 0; i < 5; i++) {
+            arena.start("step", null);
+            arena.finish(null);
+        }
+        arena.flush(stepStorage);
+        stepStorage.summarize();
+
+        assertThat(root.getSteps(), hasSize(2));
+        assertThat(root.getSteps().get(0).getRepeat(), is(3));
+        assertThat(root.getSteps().get(1).getTitle(), startsWith("2 steps were not recorded"));
+    }
+
+    @Test
+    public void detailTest() throws Exception {
+        StepStorage stepStorage = new StepStorage();
+        Step root = stepStorage.getLast();
+        Attachment attachment = new Attachment().withTitle("attachment");
+
+        arena.start("failed", null);
+        Step detail = arena.getDetail();
+        assertThat(detail.getName(), is("failed"));
+        detail.setStatus(Status.FAILED);
+        detail.getAttachments().add(attachment);
+        arena.finish("title");
+        arena.flush(stepStorage);
+
+        Step step = root.getSteps().get(0);
+        assertThat(step.getStatus(), is(Status.FAILED));
+        assertThat(step.getTitle(), is("title"));
+        assertTrue(step.getAttachments().get(0) == attachment);
+    }
+
+    @Test
+    public void internNamesTest() throws Exception {
+        StepStorage stepStorage = new StepStorage();
+        Step root = stepStorage.getLast();
+
+        arena.start(new String("step"), null);
+        arena.finish(null);
+        arena.start(new String("step"), null);
+        arena.finish(null);
+        arena.flush(stepStorage);
+
+        assertTrue(root.getSteps().get(0).getName() == root.getSteps().get(1).getName());
+    }
+
+    @Test
+    public void clearTest() throws Exception {
+        StepStorage stepStorage = new StepStorage();
+        Step root = stepStorage.getLast();
+
+        arena.start("step", null);
+        arena.clear();
+        arena.flush(stepStorage);
+
+        assertFalse(arena.hasOpenStep());
+        assertThat(root.getSteps(), hasSize(0));
+        assertThat(stepStorage.get(), hasSize(1));
+    }
+}
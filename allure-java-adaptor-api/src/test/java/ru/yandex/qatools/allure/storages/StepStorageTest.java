@@ -2,9 +2,17 @@ package ru.yandex.qatools.allure.storages;
 
 import org.junit.Before;
 import org.junit.Test;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Status;
 import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.utils.AttachmentsStaging;
 
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 
 /**
@@ -67,4 +75,211 @@ public class StepStorageTest {
         thread.start();
         thread.join();
     }
+
+    @Test
+    public void childThreadsAdoptToSharedRootTest() throws Exception {
+        final Step root = stepStorage.getLast();
+        final int threadsCount = 8;
+        final int stepsCount = 1000;
+        Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < stepsCount; j++) {
+                        stepStorage.put(new Step());
+                        stepStorage.put(new Step());
+                        stepStorage.adopt();
+                        stepStorage.adopt();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(root.getSteps(), hasSize(threadsCount * stepsCount));
+    }
+
+    @Test
+    public void maxChildrenTest() throws Exception {
+        stepStorage = new StepStorage(0, 2, 0);
+        Step root = stepStorage.getLast();
+        for (int i = 0; i < 5; i++) {
+            startStep("step" + i);
+            if (i == 3) {
+                StepStorage.setFailure(stepStorage.getLast(), new AssertionError("expected"));
+            }
+            finishStep(i == 3 ? Status.FAILED : Status.PASSED);
+        }
+        stepStorage.summarize();
+
+        assertThat(root.getSteps(), hasSize(3));
+        Step summary = root.getSteps().get(2);
+        assertThat(summary.getStatus(), is(Status.FAILED));
+        assertThat(summary.getTitle(), containsString("3 steps were not recorded"));
+        assertThat(summary.getTitle(), containsString("1 failed, 2 passed"));
+        assertThat(summary.getTitle(), containsString("first failed: step3 (AssertionError: expected)"));
+    }
+
+    @Test
+    public void maxDepthTest() throws Exception {
+        stepStorage = new StepStorage(2, 0, 0);
+        Step root = stepStorage.getLast();
+        startStep("first");
+        startStep("second");
+        startStep("third");
+        startStep("fourth");
+        stepStorage.getLast().getAttachments().add(new Attachment().withSource("attachment"));
+        finishStep(Status.PASSED);
+        finishStep(Status.PASSED);
+        finishStep(Status.PASSED);
+        startStep("after");
+        finishStep(Status.PASSED);
+        finishStep(Status.PASSED);
+
+        assertThat(root.getSteps(), hasSize(1));
+        Step first = root.getSteps().get(0);
+        assertThat(first.getSteps(), hasSize(2));
+        assertThat(first.getSteps().get(1).getName(), is("after"));
+        Step second = first.getSteps().get(0);
+        assertThat(second.getSteps(), hasSize(1));
+        Step summary = second.getSteps().get(0);
+        assertThat(summary.getTitle(), containsString("2 steps were not recorded"));
+        assertThat(summary.getSteps(), hasSize(0));
+        assertThat(summary.getAttachments(), hasSize(1));
+    }
+
+    @Test
+    public void maxCountTest() throws Exception {
+        stepStorage = new StepStorage(0, 0, 3);
+        Step root = stepStorage.getLast();
+        for (int i = 0; i < 100; i++) {
+            startStep("step" + i);
+            finishStep(Status.PASSED);
+        }
+        stepStorage.summarize();
+
+        assertThat(root.getSteps(), hasSize(4));
+        assertThat(root.getSteps().get(3).getTitle(), containsString("97 steps were not recorded"));
+    }
+
+    @Test
+    public void coalescingTest() throws Exception {
+        stepStorage = new StepStorage(0, 0, 0, true);
+        Step root = stepStorage.getLast();
+        for (int i = 0; i < 10; i++) {
+            startStep("poll");
+            finishStep(Status.PASSED);
+        }
+        startStep("poll");
+        finishStep(Status.FAILED);
+        startStep("poll");
+        stepStorage.getLast().getAttachments().add(new Attachment().withSource("attachment"));
+        finishStep(Status.FAILED);
+        startStep("poll");
+        finishStep(Status.FAILED);
+
+        assertThat(root.getSteps(), hasSize(4));
+        Step first = root.getSteps().get(0);
+        assertThat(first.getRepeat(), is(10));
+        assertThat(first.getStop() >= first.getStart(), is(true));
+        assertThat(first.getDuration() <= first.getStop() - first.getStart(), is(true));
+        assertNull(root.getSteps().get(1).getRepeat());
+        assertNull(root.getSteps().get(2).getRepeat());
+        assertNull(root.getSteps().get(3).getRepeat());
+    }
+
+    @Test
+    public void coalescingDisabledTest() throws Exception {
+        Step root = stepStorage.getLast();
+        for (int i = 0; i < 10; i++) {
+            startStep("poll");
+            finishStep(Status.PASSED);
+        }
+
+        assertThat(root.getSteps(), hasSize(10));
+    }
+
+    @Test
+    public void releaseTest() throws Exception {
+        final Step root = stepStorage.getLast();
+        startStep("step");
+        finishStep(Status.PASSED);
+        final Step[] childRoots = new Step[2];
+        final CountDownLatch released = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                childRoots[0] = stepStorage.getLast();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                childRoots[1] = stepStorage.getLast();
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        stepStorage.release();
+        released.countDown();
+        thread.join();
+
+        assertTrue(childRoots[0] == root);
+        assertFalse(childRoots[1] == root);
+        assertThat(root.getSteps(), hasSize(0));
+        assertFalse(root == stepStorage.getLast());
+    }
+
+    @Test
+    public void clearDiscardsStagedAttachmentsTest() throws Exception {
+        byte[] content = "content".getBytes("UTF-8");
+        Step root = stepStorage.getLast();
+        root.getAttachments().add(AttachmentsStaging.stage(content, "root", "text/plain"));
+        startStep("open");
+        Attachment open = AttachmentsStaging.stage(content, "open", "text/plain");
+        stepStorage.getLast().getAttachments().add(open);
+
+        stepStorage.clear();
+
+        assertThat(root.getAttachments(), hasSize(0));
+        assertFalse(AttachmentsStaging.isStaged(open));
+        assertThat(AttachmentsStaging.getStagedCount(), is(0));
+    }
+
+    @Test
+    public void leakDetectorTest() throws Exception {
+        StepsLeakDetector leakDetector = new StepsLeakDetector();
+        stepStorage = new StepStorage(0, 0, 0, false, leakDetector);
+        startStep("first");
+        finishStep(Status.PASSED);
+        startStep("second");
+
+        Map<String, Integer> retained = leakDetector.getRetainedSteps();
+        assertThat(retained.get(Thread.currentThread().getName()), is(2));
+
+        stepStorage.release();
+        stepStorage.get();
+        assertNull(leakDetector.getRetainedSteps().get(Thread.currentThread().getName()));
+    }
+
+    private void startStep(String name) {
+        Step step = stepStorage.createStep();
+        step.setName(name);
+        step.setStatus(Status.PASSED);
+        step.setStart(System.currentTimeMillis());
+        stepStorage.put(step);
+    }
+
+    private void finishStep(Status status) {
+        Step step = stepStorage.getLast();
+        step.setStatus(status);
+        step.setStop(System.currentTimeMillis());
+        stepStorage.adopt();
+    }
 }
@@ -3,7 +3,7 @@ package ru.yandex.qatools.allure.storages;
 import org.junit.Test;
 import ru.yandex.qatools.allure.model.TestCaseResult;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -18,4 +18,41 @@ public class TestCaseStorageTest {
         TestCaseResult testCase = storage.get();
         assertTrue(testCase == storage.get());
     }
+
+    @Test
+    public void removeInChildThreadsTest() throws Exception {
+        final TestCaseStorage storage = new TestCaseStorage();
+        final TestCaseResult testCase = storage.get();
+        final TestCaseResult[] childTestCases = new TestCaseResult[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                childTestCases[0] = storage.get();
+            }
+        });
+        storage.remove();
+        thread.start();
+        thread.join();
+
+        assertFalse(testCase == childTestCases[0]);
+    }
+
+    @Test
+    public void removeOnlyInChildThreadTest() throws Exception {
+        final TestCaseStorage storage = new TestCaseStorage();
+        final TestCaseResult testCase = storage.get();
+        final TestCaseResult[] childTestCases = new TestCaseResult[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                childTestCases[0] = storage.get();
+                storage.remove();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(testCase == childTestCases[0]);
+        assertTrue(testCase == storage.get());
+    }
 }
@@ -2,6 +2,7 @@ package ru.yandex.qatools.allure.storages;
 
 import org.junit.Before;
 import org.junit.Test;
+import ru.yandex.qatools.allure.model.TestCaseResult;
 import ru.yandex.qatools.allure.model.TestSuiteResult;
 
 import static org.junit.Assert.*;
@@ -33,4 +34,32 @@ public class TestSuiteStorageTest {
         testSuiteStorage.remove("a");
         assertNotSame(testSuite, testSuiteStorage.get("a"));
     }
+
+    @Test
+    public void concurrentGetTest() throws Exception {
+        final int threadsCount = 8;
+        final int testCasesCount = 1000;
+        final TestSuiteResult[] testSuites = new TestSuiteResult[threadsCount];
+        Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    testSuites[index] = testSuiteStorage.get("a");
+                    for (int j = 0; j < testCasesCount; j++) {
+                        testSuiteStorage.get("a").getTestCases().add(new TestCaseResult());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (TestSuiteResult testSuite : testSuites) {
+            assertSame(testSuiteStorage.get("a"), testSuite);
+        }
+        assertEquals(threadsCount * testCasesCount, testSuiteStorage.get("a").getTestCases().size());
+    }
 }
@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -45,4 +46,15 @@ public class AllureResultsUtilsTest {
     public void getExtensionByInvalidMimeTypeTest() throws Exception {
         assertThat(AllureResultsUtils.getExtensionByMimeType("text/plai"), is(""));
     }
+
+    @Test
+    public void cutOnCharBoundaryTest() throws Exception {
+        byte[] content = "a\u0436\u20acb".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(AllureResultsUtils.toCharBoundary(content, 1), is(1));
+        assertThat(AllureResultsUtils.toCharBoundary(content, 2), is(1));
+        assertThat(AllureResultsUtils.toCharBoundary(content, 4), is(3));
+        assertThat(AllureResultsUtils.toCharBoundary(content, 5), is(3));
+        assertThat(AllureResultsUtils.toCharBoundary(content, 6), is(6));
+    }
 }
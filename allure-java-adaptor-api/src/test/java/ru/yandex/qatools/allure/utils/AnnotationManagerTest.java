@@ -17,6 +17,7 @@ import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 import static ru.yandex.qatools.allure.config.AllureModelUtils.*;
@@ -189,5 +190,56 @@ public class AnnotationManagerTest {
                 createIssueLabel("initial.issue")
         ));
     }
-    
+
+    @Test
+    public void testForMethodIsCached() throws Exception {
+        AnnotationManager first = AnnotationManager.forMethod(SimpleClass.class.getMethod("combinedMethod"), SimpleClass.class);
+        AnnotationManager second = AnnotationManager.forMethod(SimpleClass.class.getMethod("combinedMethod"), SimpleClass.class);
+        assertThat(first, sameInstance(second));
+
+        TestCaseStartedEvent event = new TestCaseStartedEvent("some.uid", "some.name");
+        first.update(event);
+        assertThat(event.getLabels(), hasItems(
+                createStoryLabel("default.story"),
+                createFeatureLabel("default.feature"),
+                createSeverityLabel(SeverityLevel.CRITICAL),
+                createIssueLabel("initial.issue")
+        ));
+    }
+
+    @Test
+    public void testEventsDontShareLabels() throws Exception {
+        AnnotationManager manager = AnnotationManager.forMethod(SimpleClass.class.getMethod("combinedMethod"), SimpleClass.class);
+
+        TestCaseStartedEvent first = new TestCaseStartedEvent("some.uid", "some.name");
+        TestCaseStartedEvent second = new TestCaseStartedEvent("some.uid", "some.name");
+        manager.update(first);
+        manager.update(second);
+
+        assertThat(first.getLabels(), is(second.getLabels()));
+        for (int i = 0; i < first.getLabels().size(); i++) {
+            assertThat(first.getLabels().get(i), not(sameInstance(second.getLabels().get(i))));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSharedManagerCantBeChanged() throws Exception {
+        AnnotationManager.forMethod(SimpleClass.class.getMethod("simpleMethod"), null)
+                .setDefaults(SimpleClass.class.getAnnotations());
+    }
+
+    @Test
+    public void testLabelsAreRebuiltAfterSetDefaults() throws Exception {
+        AnnotationManager annotationManager = new AnnotationManager(
+                SimpleClass.class.getMethod("defaultMethod").getAnnotations()
+        );
+        assertThat(annotationManager.getTestCaseLabels(), hasSize(0));
+
+        annotationManager.setDefaults(SimpleClass.class.getAnnotations());
+        assertThat(annotationManager.getTestCaseLabels(), hasItems(
+                createStoryLabel("default.story"),
+                createFeatureLabel("default.feature"),
+                createIssueLabel("default.issue")
+        ));
+    }
 }
@@ -0,0 +1,61 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.listTestSuiteFiles;
+
+public class AsyncTestSuiteResultWriterTest {
+
+    private static final int SUITES_COUNT = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resultsDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        resultsDirectory = folder.newFolder();
+        AllureResultsUtils.setResultsDirectory(resultsDirectory);
+    }
+
+    @Test
+    public void shouldWriteAllSuitesOnShutdownTest() throws Exception {
+        AsyncTestSuiteResultWriter writer = new AsyncTestSuiteResultWriter(2, 1);
+        for (int i = 0; i < SUITES_COUNT; i++) {
+            writer.write(new TestSuiteResult().withName("suite" + i));
+        }
+
+        assertTrue(writer.shutdown(10, TimeUnit.SECONDS));
+        assertThat(writer.getQueueDepth(), is(0));
+        assertThat(writer.getWrittenCount(), is((long) SUITES_COUNT));
+        assertThat(listTestSuiteFiles(resultsDirectory), hasSize(SUITES_COUNT));
+    }
+
+    @Test
+    public void shouldWriteInCallerThreadAfterShutdownTest() throws Exception {
+        AsyncTestSuiteResultWriter writer = new AsyncTestSuiteResultWriter(1, 1);
+        assertTrue(writer.shutdown(10, TimeUnit.SECONDS));
+
+        writer.write(new TestSuiteResult().withName("suite"));
+
+        assertThat(listTestSuiteFiles(resultsDirectory), hasSize(1));
+    }
+
+    @After
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+    }
+}
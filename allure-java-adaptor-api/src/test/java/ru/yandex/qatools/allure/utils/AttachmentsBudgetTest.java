@@ -0,0 +1,109 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class AttachmentsBudgetTest {
+
+    @Before
+    public void setUp() {
+        AttachmentsBudget.reset();
+    }
+
+    @Test
+    public void shouldNotLimitByDefaultTest() {
+        assertThat(AttachmentsBudget.acquire(100, 0, 0, 0), is(100L));
+    }
+
+    @Test
+    public void shouldLimitAttachmentSizeTest() {
+        assertThat(AttachmentsBudget.acquire(100, 10, 0, 0), is(10L));
+        assertThat(AttachmentsBudget.acquire(5, 10, 0, 0), is(5L));
+    }
+
+    @Test
+    public void shouldLimitTestCaseSizeTest() {
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 0), is(60L));
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 0), is(40L));
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 0), is(0L));
+
+        AttachmentsBudget.finishTestCase();
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 0), is(60L));
+    }
+
+    @Test
+    public void shouldShareTestCaseSizeWithChildThreadsTest() throws Exception {
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 0), is(60L));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long allowed = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return AttachmentsBudget.acquire(60, 0, 100, 0);
+                }
+            }).get();
+            assertThat(allowed, is(40L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCountToFinishedTestCaseInChildThreadsTest() throws Exception {
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(100, 0, 100, 0), is(100L));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Callable<Long> acquire = new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return AttachmentsBudget.acquire(60, 0, 100, 0);
+            }
+        };
+        try {
+            assertThat(executor.submit(acquire).get(), is(0L));
+
+            AttachmentsBudget.finishTestCase();
+            assertThat(executor.submit(acquire).get(), is(60L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldLimitRunSizeTest() {
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 70), is(60L));
+        assertThat(AttachmentsBudget.acquire(30, 0, 100, 70), is(10L));
+
+        AttachmentsBudget.finishTestCase();
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(30, 0, 100, 70), is(0L));
+    }
+
+    @Test
+    public void shouldReturnReleasedBudgetTest() {
+        AttachmentsBudget.startTestCase();
+        assertThat(AttachmentsBudget.acquire(60, 0, 100, 70), is(60L));
+        AttachmentsBudget.release(60, 100, 70);
+
+        assertThat(AttachmentsBudget.acquire(70, 0, 100, 70), is(70L));
+    }
+
+    @After
+    public void tearDown() {
+        AttachmentsBudget.reset();
+    }
+}
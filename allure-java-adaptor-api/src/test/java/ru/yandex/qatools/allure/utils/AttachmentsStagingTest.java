@@ -0,0 +1,154 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.events.RemoveAttachmentsEvent;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.listAttachmentFiles;
+import static ru.yandex.qatools.allure.utils.DirectoryMatcher.contains;
+
+public class AttachmentsStagingTest {
+
+    private static final byte[] CONTENT = "staged attachment content".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resultsDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        resultsDirectory = folder.newFolder();
+        AllureResultsUtils.setResultsDirectory(resultsDirectory);
+    }
+
+    @Test
+    public void shouldNotWriteStagedAttachmentTest() throws Exception {
+        Attachment attachment = AttachmentsStaging.stage(CONTENT, "title", "text/plain");
+
+        assertTrue(AttachmentsStaging.isStaged(attachment));
+        assertThat(attachment.getType(), is("text/plain"));
+        assertThat(AttachmentsStaging.getStagedMemory(), is((long) CONTENT.length));
+        assertThat(listAttachmentFiles(resultsDirectory), empty());
+
+        assertTrue(AttachmentsStaging.discard(attachment));
+    }
+
+    @Test
+    public void shouldCommitAttachmentsOfTestCaseTest() throws Exception {
+        Step step = new Step().withName("step");
+        step.getAttachments().add(AttachmentsStaging.stage(CONTENT, "step", "text/plain"));
+        TestCaseResult testCase = new TestCaseResult().withName("testCase");
+        testCase.getSteps().add(step);
+        testCase.getAttachments().add(AttachmentsStaging.stage(
+                new ByteArrayInputStream(CONTENT), "stream", "text/plain"));
+
+        AttachmentsStaging.commit(testCase);
+
+        assertThat(listAttachmentFiles(resultsDirectory), hasSize(2));
+        Attachment committed = step.getAttachments().get(0);
+        assertThat(resultsDirectory, contains(committed.getSource()));
+        assertArrayEquals(CONTENT, Files.readAllBytes(new File(resultsDirectory, committed.getSource()).toPath()));
+        assertFalse(AttachmentsStaging.isStaged(committed));
+        assertThat(AttachmentsStaging.getStagedMemory(), is(0L));
+    }
+
+    @Test
+    public void shouldDiscardRemovedAttachmentsTest() throws Exception {
+        Step root = new Step().withName("root");
+        root.getAttachments().add(AttachmentsStaging.stage(CONTENT, "removed", "text/plain"));
+
+        new RemoveAttachmentsEvent(".*").process(root);
+        AttachmentsStaging.commit(root);
+
+        assertThat(root.getAttachments(), empty());
+        assertThat(AttachmentsStaging.getStagedCount(), is(0));
+        assertThat(AttachmentsStaging.getStagedMemory(), is(0L));
+        assertThat(resultsDirectory.list().length, is(0));
+    }
+
+    @Test
+    public void shouldSpillOverMemoryBudgetTest() throws Exception {
+        Attachment inMemory = AttachmentsStaging.stage(CONTENT, "first", "text/plain", CONTENT.length);
+        Attachment spilled = AttachmentsStaging.stage(CONTENT, "second", "text/plain", CONTENT.length);
+
+        assertThat(AttachmentsStaging.getStagedMemory(), is((long) CONTENT.length));
+        assertThat(resultsDirectory.list().length, is(1));
+
+        Step step = new Step().withName("step");
+        step.getAttachments().add(inMemory);
+        step.getAttachments().add(spilled);
+        AttachmentsStaging.commit(step);
+
+        assertThat(listAttachmentFiles(resultsDirectory), hasSize(2));
+        assertThat(resultsDirectory.list().length, is(2));
+        assertArrayEquals(CONTENT, Files.readAllBytes(new File(resultsDirectory, spilled.getSource()).toPath()));
+    }
+
+    @Test
+    public void shouldDiscardAttachmentsOfDroppedStepsTest() throws Exception {
+        Step child = new Step().withName("child");
+        child.getAttachments().add(AttachmentsStaging.stage(CONTENT, "spilled", "text/plain", 0));
+        Step root = new Step().withName("root");
+        root.getSteps().add(child);
+        root.getAttachments().add(AttachmentsStaging.stage(CONTENT, "inMemory", "text/plain"));
+
+        AttachmentsStaging.discard(root);
+
+        assertThat(AttachmentsStaging.getStagedCount(), is(0));
+        assertThat(AttachmentsStaging.getStagedMemory(), is(0L));
+        assertThat(resultsDirectory.list().length, is(0));
+    }
+
+    @Test
+    public void shouldDiscardAllStagedAttachmentsTest() throws Exception {
+        AttachmentsStaging.stage(CONTENT, "inMemory", "text/plain");
+        AttachmentsStaging.stage(new ByteArrayInputStream(CONTENT), "spilled", "text/plain");
+
+        AttachmentsStaging.discardAll();
+
+        assertThat(AttachmentsStaging.getStagedCount(), is(0));
+        assertThat(AttachmentsStaging.getStagedMemory(), is(0L));
+        assertThat(resultsDirectory.list().length, is(0));
+    }
+
+    @Test
+    public void shouldStageFileAttachmentTest() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), CONTENT);
+        Attachment attachment = AttachmentsStaging.stage(file, "file", "text/plain");
+        Files.write(file.toPath(), new byte[0]);
+
+        assertTrue(AttachmentsStaging.isStaged(attachment));
+        assertThat(listAttachmentFiles(resultsDirectory), empty());
+
+        Step step = new Step().withName("step");
+        step.getAttachments().add(attachment);
+        AttachmentsStaging.commit(step);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(new File(resultsDirectory, attachment.getSource()).toPath()));
+    }
+
+    @After
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class MimeTypeDetectorTest {
+
+    @Test
+    public void gifTest() throws Exception {
+        assertThat(detect("GIF89a\u0001\u0000"), is("image/gif"));
+    }
+
+    @Test
+    public void jsonArrayTest() throws Exception {
+        assertThat(detect("  [{\"a\": 1}]"), is("application/json"));
+    }
+
+    @Test
+    public void logLineIsNotJsonTest() throws Exception {
+        assertThat(detect("[INFO] some message"), is("text/plain"));
+    }
+
+    @Test
+    public void unicodeTextTest() throws Exception {
+        assertThat(detect("привет"), is("text/plain"));
+    }
+
+    @Test
+    public void rtfTest() throws Exception {
+        assertThat(detect("{\\rtf1\\ansi Hello}"), is("application/rtf"));
+    }
+
+    @Test
+    public void postScriptTest() throws Exception {
+        assertThat(detect("%!PS-Adobe-3.0\n%%Pages: 1\n"), is("application/postscript"));
+    }
+
+    @Test
+    public void shellScriptTest() throws Exception {
+        assertThat(detect("#!/bin/sh\necho hello\n"), is("application/x-sh"));
+    }
+
+    @Test
+    public void svgTest() throws Exception {
+        assertThat(detect("<?xml version=\"1.0\"?>\n<svg:svg xmlns:svg=\"http://www.w3.org/2000/svg\"/>"),
+                is("image/svg+xml"));
+    }
+
+    @Test
+    public void truncatedXmlTest() throws Exception {
+        byte[] content = "<?xml version=\"1.0\"?><root><child/></root>".getBytes(StandardCharsets.UTF_8);
+        assertThat(MimeTypeDetector.detect(content, 25), is("application/xml"));
+    }
+
+    @Test
+    public void binaryContentTest() throws Exception {
+        assertThat(MimeTypeDetector.detect(new byte[]{0, 1, 2, 3}), is(MimeTypeDetector.OCTET_STREAM));
+    }
+
+    private static String detect(String content) {
+        return MimeTypeDetector.detect(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
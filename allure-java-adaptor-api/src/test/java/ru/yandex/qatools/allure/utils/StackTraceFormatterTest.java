@@ -0,0 +1,97 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class StackTraceFormatterTest {
+
+    @Test
+    public void noFiltersTest() throws Exception {
+        Throwable throwable = new RuntimeException("message", new IllegalStateException("cause"));
+
+        StringWriter expected = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(expected, true));
+
+        assertThat(new StackTraceFormatter("", 0).format(throwable), is(expected.toString()));
+    }
+
+    @Test
+    public void filterFramesTest() throws Exception {
+        Throwable throwable = createThrowable(
+                frame("com.example.Test"),
+                frame("sun.reflect.NativeMethodAccessorImpl"),
+                frame("java.lang.reflect.Method"),
+                frame("org.testng.TestRunner"),
+                frame("com.example.Main")
+        );
+
+        String stackTrace = new StackTraceFormatter("sun.reflect., java.lang.reflect.,org.testng.*", 0).format(throwable);
+
+        assertThat(stackTrace, containsString("com.example.Test"));
+        assertThat(stackTrace, containsString("\t... 3 filtered"));
+        assertThat(stackTrace, containsString("com.example.Main"));
+        assertThat(stackTrace, not(containsString("org.testng")));
+    }
+
+    @Test
+    public void keepFirstFrameTest() throws Exception {
+        Throwable throwable = createThrowable(frame("org.testng.Assert"), frame("com.example.Test"));
+
+        String stackTrace = new StackTraceFormatter("org.testng.", 0).format(throwable);
+
+        assertThat(stackTrace, containsString("org.testng.Assert"));
+    }
+
+    @Test
+    public void maxDepthTest() throws Exception {
+        Throwable throwable = createThrowable(
+                frame("com.example.First"),
+                frame("com.example.Second"),
+                frame("com.example.Third"),
+                frame("com.example.Fourth")
+        );
+
+        String stackTrace = new StackTraceFormatter("", 2).format(throwable);
+
+        assertThat(stackTrace, containsString("com.example.Second"));
+        assertThat(stackTrace, not(containsString("com.example.Third")));
+        assertThat(stackTrace, containsString("\t... 2 truncated"));
+        assertThat(stackTrace, not(containsString("more")));
+    }
+
+    @Test
+    public void causeTest() throws Exception {
+        Throwable cause = createThrowable(frame("com.example.Cause"), frame("com.example.Main"));
+        Throwable throwable = createThrowable(frame("com.example.Wrapper"), frame("com.example.Main"));
+        throwable.initCause(cause);
+
+        String stackTrace = new StackTraceFormatter("", 10).format(throwable);
+
+        assertThat(stackTrace, containsString("Caused by: " + cause));
+        assertThat(stackTrace, containsString("\tat com.example.Cause"));
+        assertThat(stackTrace, containsString("\t... 1 more"));
+    }
+
+    @Test
+    public void configuredFormatterIsReusedTest() throws Exception {
+        assertThat(StackTraceFormatter.getInstance(), sameInstance(StackTraceFormatter.getInstance()));
+    }
+
+    private static Throwable createThrowable(StackTraceElement... frames) {
+        Throwable throwable = new RuntimeException("message");
+        throwable.setStackTrace(frames);
+        return throwable;
+    }
+
+    private static StackTraceElement frame(String className) {
+        return new StackTraceElement(className, "method", className + ".java", 1);
+    }
+}
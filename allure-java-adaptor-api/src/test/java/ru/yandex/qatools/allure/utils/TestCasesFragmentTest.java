@@ -0,0 +1,102 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.listTestCasesFragmentFiles;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshal;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshalTestCasesFragment;
+
+public class TestCasesFragmentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resultsDirectory;
+
+    private TestCasesFragment fragment;
+
+    private TestCaseResult first;
+
+    private TestCaseResult second;
+
+    @Before
+    public void setUp() throws Exception {
+        resultsDirectory = folder.newFolder();
+        AllureResultsUtils.setResultsDirectory(resultsDirectory);
+
+        first = new TestCaseResult().withName("first").withStatus(Status.PASSED).withStart(10L).withStop(20L);
+        second = new TestCaseResult().withName("second").withStatus(Status.FAILED).withStart(15L).withStop(30L);
+
+        fragment = new TestCasesFragment();
+    }
+
+    @Test
+    public void shouldCreateFileOnFirstAppendTest() throws Exception {
+        assertTrue(fragment.isEmpty());
+        assertThat(listTestCasesFragmentFiles(resultsDirectory), hasSize(0));
+
+        assertTrue(fragment.append(first));
+
+        assertFalse(fragment.isEmpty());
+        assertThat(listTestCasesFragmentFiles(resultsDirectory), hasSize(1));
+    }
+
+    @Test
+    public void shouldNotAppendAfterCloseTest() throws Exception {
+        fragment.close();
+        assertFalse(fragment.append(first));
+    }
+
+    @Test
+    public void shouldReadUnfinishedFragmentTest() throws Exception {
+        fragment.append(first);
+        fragment.append(second);
+
+        TestSuiteResult testSuite = unmarshalTestCasesFragment(fragment.getFile());
+        assertThat(testSuite.getTestCases(), hasSize(2));
+        assertThat(testSuite.getTestCases().get(0).getName(), is("first"));
+        assertThat(testSuite.getTestCases().get(1).getName(), is("second"));
+        assertThat(testSuite.getStart(), is(10L));
+        assertThat(testSuite.getStop(), is(30L));
+    }
+
+    @Test
+    public void shouldAssembleTestSuiteTest() throws Exception {
+        fragment.append(first);
+        fragment.close();
+
+        TestCaseResult inProgress = new TestCaseResult().withName("in-progress").withStatus(Status.BROKEN);
+        TestSuiteResult testSuite = new TestSuiteResult().withName("suite").withTestCases(inProgress);
+
+        File resultFile = new File(resultsDirectory, "suite-testsuite.xml");
+        AllureResultsUtils.writeTestSuiteResult(testSuite, resultFile, fragment);
+
+        AllureModelUtils.getAllureSchemaValidator().validate(new StreamSource(resultFile));
+        TestSuiteResult result = unmarshal(resultFile);
+        assertThat(result.getTestCases(), hasSize(2));
+        assertThat(result.getTestCases().get(0).getName(), is("first"));
+        assertThat(result.getTestCases().get(1).getName(), is("in-progress"));
+        assertThat(listTestCasesFragmentFiles(resultsDirectory), hasSize(0));
+    }
+
+    @After
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+    }
+}
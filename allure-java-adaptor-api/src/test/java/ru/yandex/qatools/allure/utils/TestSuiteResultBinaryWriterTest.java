@@ -0,0 +1,174 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.commons.ResultsCodec;
+import ru.yandex.qatools.allure.model.Attachment;
+import ru.yandex.qatools.allure.model.Description;
+import ru.yandex.qatools.allure.model.DescriptionType;
+import ru.yandex.qatools.allure.model.Failure;
+import ru.yandex.qatools.allure.model.Label;
+import ru.yandex.qatools.allure.model.Parameter;
+import ru.yandex.qatools.allure.model.ParameterKind;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.isBinaryTestSuiteFile;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.readBinaryTestSuite;
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateBinaryTestSuiteFileName;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeBinaryTestSuiteResult;
+
+public class TestSuiteResultBinaryWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadWrittenTestSuiteTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(3);
+        File file = new File(folder.newFolder(), generateBinaryTestSuiteFileName());
+
+        writeBinaryTestSuiteResult(testSuite, file);
+
+        assertThat(isBinaryTestSuiteFile(file), is(true));
+        assertThat(readBinaryTestSuite(file), is(testSuite));
+    }
+
+    @Test
+    public void shouldSkipIncompleteTestCaseTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(2);
+        File file = new File(folder.newFolder(), generateBinaryTestSuiteFileName());
+        writeBinaryTestSuiteResult(testSuite, file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        TestSuiteResult read = readBinaryTestSuite(file);
+        assertThat(read.getName(), is(testSuite.getName()));
+        assertThat(read.getTestCases(), hasSize(1));
+        assertThat(read.getTestCases().get(0), is(testSuite.getTestCases().get(0)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotDecodeRecordPastItsLengthTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(1);
+        File file = new File(folder.newFolder(), generateBinaryTestSuiteFileName());
+
+        ByteArrayOutputStream suite = new ByteArrayOutputStream();
+        ResultsCodec.writeTestSuite(new DataOutputStream(suite), testSuite);
+        ByteArrayOutputStream testCase = new ByteArrayOutputStream();
+        ResultsCodec.writeTestCase(new DataOutputStream(testCase), testSuite.getTestCases().get(0));
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            ResultsCodec.writeHeader(out);
+            out.writeInt(suite.size());
+            out.writeByte(ResultsCodec.TEST_SUITE_RECORD);
+            suite.writeTo(out);
+            //length is shorter than the encoded test case
+            out.writeInt(testCase.size() - 4);
+            out.writeByte(ResultsCodec.TEST_CASE_RECORD);
+            testCase.writeTo(out);
+        }
+
+        readBinaryTestSuite(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotDecodeNegativeStringLengthTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(1);
+        byte[] testCase = encodeTestCase(testSuite.getTestCases().get(0));
+        //name length
+        ByteBuffer.wrap(testCase).putInt(0, -5);
+
+        readBinaryTestSuite(writeRecords(encodeTestSuite(testSuite), testCase));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotDecodeHugeStringLengthTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(1);
+        byte[] testCase = encodeTestCase(testSuite.getTestCases().get(0));
+        ByteBuffer.wrap(testCase).putInt(0, Integer.MAX_VALUE);
+
+        readBinaryTestSuite(writeRecords(encodeTestSuite(testSuite), testCase));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotDecodeUnknownEnumTest() throws Exception {
+        TestSuiteResult testSuite = createTestSuite(1);
+        byte[] testCase = new String(encodeTestCase(testSuite.getTestCases().get(0)), StandardCharsets.ISO_8859_1)
+                .replace("FAILED", "FAILEX")
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        readBinaryTestSuite(writeRecords(encodeTestSuite(testSuite), testCase));
+    }
+
+    private File writeRecords(byte[] suite, byte[] testCase) throws IOException {
+        File file = new File(folder.newFolder(), generateBinaryTestSuiteFileName());
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            ResultsCodec.writeHeader(out);
+            out.writeInt(suite.length);
+            out.writeByte(ResultsCodec.TEST_SUITE_RECORD);
+            out.write(suite);
+            out.writeInt(testCase.length);
+            out.writeByte(ResultsCodec.TEST_CASE_RECORD);
+            out.write(testCase);
+        }
+        return file;
+    }
+
+    private static byte[] encodeTestSuite(TestSuiteResult testSuite) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ResultsCodec.writeTestSuite(new DataOutputStream(bytes), testSuite);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeTestCase(TestCaseResult testCase) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ResultsCodec.writeTestCase(new DataOutputStream(bytes), testCase);
+        return bytes.toByteArray();
+    }
+
+    private static TestSuiteResult createTestSuite(int testCasesCount) {
+        TestSuiteResult testSuite = new TestSuiteResult()
+                .withName("suite")
+                .withTitle("Suite")
+                .withVersion("1.0")
+                .withStart(1)
+                .withStop(100)
+                .withDescription(new Description().withValue("**suite**").withType(DescriptionType.MARKDOWN))
+                .withLabels(new Label().withName("feature").withValue("binary"));
+        for (int i = 0; i < testCasesCount; i++) {
+            Step step = new Step().withName("step").withTitle("Step").withStatus(Status.PASSED)
+                    .withStart(10).withStop(20)
+                    .withAttachments(new Attachment().withTitle("log").withSource("a-attachment.txt")
+                            .withType("text/plain"));
+            step.setRepeat(3);
+            step.setDuration(7L);
+            testSuite.getTestCases().add(new TestCaseResult()
+                    .withName("test" + i)
+                    .withStatus(Status.FAILED)
+                    .withStart(5)
+                    .withStop(50)
+                    .withFailure(new Failure().withMessage("message").withStackTrace("trace"))
+                    .withLabels(new Label().withName("story").withValue("read"))
+                    .withParameters(new Parameter().withName("p").withValue("v").withKind(ParameterKind.ARGUMENT))
+                    .withSteps(step.withSteps(new Step().withName("child").withStatus(Status.PASSED))));
+        }
+        return testSuite;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.model.Description;
+import ru.yandex.qatools.allure.model.Failure;
+import ru.yandex.qatools.allure.model.Status;
+import ru.yandex.qatools.allure.model.Step;
+import ru.yandex.qatools.allure.model.TestCaseResult;
+import ru.yandex.qatools.allure.model.TestSuiteResult;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshal;
+
+public class TestSuiteResultStreamWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteValidTestSuiteTest() throws Exception {
+        TestSuiteResult testSuite = new TestSuiteResult()
+                .withName("suite")
+                .withTitle("suite title " + String.valueOf(Character.toChars(0x0)))
+                .withStart(1L)
+                .withStop(2L)
+                .withVersion("1.0")
+                .withDescription(new Description().withValue("description"))
+                .withLabels(AllureModelUtils.createFeatureLabel("feature"))
+                .withTestCases(
+                        new TestCaseResult().withName("first").withStatus(Status.PASSED)
+                                .withSteps(new Step().withName("step").withStatus(Status.PASSED)),
+                        new TestCaseResult().withName("second").withStatus(Status.FAILED)
+                                .withFailure(new Failure().withMessage("message").withStackTrace("trace"))
+                );
+
+        File file = folder.newFile();
+        try (BadXmlCharacterFilterWriter writer = new BadXmlCharacterFilterWriter(file)) {
+            new TestSuiteResultStreamWriter(writer).write(testSuite);
+        }
+
+        AllureModelUtils.getAllureSchemaValidator().validate(new StreamSource(file));
+
+        TestSuiteResult result = unmarshal(file);
+        assertThat(result.getName(), is("suite"));
+        assertThat(result.getVersion(), is("1.0"));
+        assertThat(result.getDescription(), is(testSuite.getDescription()));
+        assertThat(result.getLabels(), is(testSuite.getLabels()));
+        assertThat(result.getTestCases(), hasSize(2));
+        assertThat(result.getTestCases().get(0).getSteps().get(0).getName(), is("step"));
+        assertThat(result.getTestCases().get(1).getFailure().getStackTrace(), is("trace"));
+    }
+
+    @Test
+    public void shouldWriteEmptyTestSuiteTest() throws Exception {
+        File file = folder.newFile();
+        try (BadXmlCharacterFilterWriter writer = new BadXmlCharacterFilterWriter(file)) {
+            new TestSuiteResultStreamWriter(writer).write(new TestSuiteResult().withName("empty"));
+        }
+
+        assertThat(unmarshal(file).getName(), is("empty"));
+    }
+}
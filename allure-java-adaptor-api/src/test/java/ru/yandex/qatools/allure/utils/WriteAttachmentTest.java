@@ -9,9 +9,11 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import ru.yandex.qatools.allure.model.Attachment;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -48,8 +50,7 @@ public class WriteAttachmentTest {
         return Arrays.asList(
                 new Object[]{"a.html", "text/html"},
                 new Object[]{"a.jpeg", "image/jpeg"},
-                //JSON doesn't have metadata about content type in first bytes
-                new Object[]{"a.json", "text/plain"},
+                new Object[]{"a.json", "application/json"},
                 new Object[]{"a.png", "image/png"},
                 new Object[]{"a.txt", "text/plain"},
                 new Object[]{"a.xml", "application/xml"}
@@ -69,4 +70,28 @@ public class WriteAttachmentTest {
         assertThat(resultsDirectory, contains(attachment.getSource()));
         assertThat(attachment.getType(), is(type));
     }
+
+    @Test
+    public void streamTypeTest() throws Exception {
+        Attachment attachment = AllureResultsUtils.writeAttachment(new ByteArrayInputStream(bytes), TITLE, null);
+        assertThat(attachment.getTitle(), is(TITLE));
+        assertThat(attachment.getType(), is(type));
+        assertThat(readAttachment(attachment), is(bytes));
+    }
+
+    @Test
+    public void fileTypeTest() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes);
+
+        Attachment attachment = AllureResultsUtils.writeAttachment(file, TITLE, "");
+        assertThat(attachment.getTitle(), is(TITLE));
+        assertThat(attachment.getType(), is(type));
+        assertThat(readAttachment(attachment), is(bytes));
+    }
+
+    private byte[] readAttachment(Attachment attachment) throws IOException {
+        assertThat(resultsDirectory, contains(attachment.getSource()));
+        return Files.readAllBytes(new File(resultsDirectory, attachment.getSource()).toPath());
+    }
 }
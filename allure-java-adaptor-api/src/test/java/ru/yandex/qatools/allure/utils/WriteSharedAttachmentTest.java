@@ -0,0 +1,87 @@
+package ru.yandex.qatools.allure.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.yandex.qatools.allure.model.Attachment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.listAttachmentFiles;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.deleteSharedAttachment;
+import static ru.yandex.qatools.allure.utils.AllureResultsUtils.writeSharedAttachment;
+import static ru.yandex.qatools.allure.utils.DirectoryMatcher.contains;
+import static ru.yandex.qatools.allure.utils.DirectoryMatcher.notContains;
+
+public class WriteSharedAttachmentTest {
+
+    private static final byte[] CONTENT = "shared attachment content".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resultsDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        resultsDirectory = folder.newFolder();
+        AllureResultsUtils.setResultsDirectory(resultsDirectory);
+    }
+
+    @Test
+    public void shouldWriteSameContentOnceTest() throws Exception {
+        Attachment first = writeSharedAttachment(CONTENT, "first", "text/plain");
+        Attachment second = writeSharedAttachment(CONTENT, "second", "text/plain");
+
+        assertThat(first.getSource(), is(second.getSource()));
+        assertThat(first.getTitle(), is("first"));
+        assertThat(resultsDirectory, contains(first.getSource()));
+        assertThat(listAttachmentFiles(resultsDirectory), hasSize(1));
+    }
+
+    @Test
+    public void shouldWriteDifferentContentTest() throws Exception {
+        Attachment first = writeSharedAttachment(CONTENT, "first", "text/plain");
+        Attachment second = writeSharedAttachment("other".getBytes(StandardCharsets.UTF_8), "second", "text/plain");
+
+        assertThat(first.getSource(), not(second.getSource()));
+        assertThat(listAttachmentFiles(resultsDirectory), hasSize(2));
+    }
+
+    @Test
+    public void shouldDeleteFileWithLastReferenceTest() throws Exception {
+        Attachment first = writeSharedAttachment(CONTENT, "first", "text/plain");
+        Attachment second = writeSharedAttachment(CONTENT, "second", "text/plain");
+
+        assertFalse(deleteSharedAttachment(first));
+        assertThat(resultsDirectory, contains(second.getSource()));
+
+        assertTrue(deleteSharedAttachment(second));
+        assertThat(resultsDirectory, notContains(second.getSource()));
+    }
+
+    @Test
+    public void shouldWriteAgainAfterLastReferenceReleasedTest() throws Exception {
+        Attachment first = writeSharedAttachment(CONTENT, "first", "text/plain");
+        assertTrue(deleteSharedAttachment(first));
+        assertFalse(deleteSharedAttachment(first));
+
+        Attachment second = writeSharedAttachment(CONTENT, "second", "text/plain");
+        assertThat(resultsDirectory, contains(second.getSource()));
+        assertTrue(deleteSharedAttachment(second));
+    }
+
+    @After
+    public void tearDown() {
+        AllureResultsUtils.setResultsDirectory(null);
+    }
+}
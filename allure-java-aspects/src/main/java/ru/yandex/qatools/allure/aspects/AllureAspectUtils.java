@@ -3,8 +3,12 @@ package ru.yandex.qatools.allure.aspects;
 import ru.yandex.qatools.allure.config.AllureConfig;
 
 import java.lang.reflect.Array;
-import java.text.MessageFormat;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Some utils that help process steps and attachments names and titles.
@@ -14,6 +18,25 @@ import java.util.Arrays;
  */
 public final class AllureAspectUtils {
 
+    /**
+     * True for collections and maps converted to string element by element the same way as their
+     * {@code toString()} does: JDK ones and the ones which don't override it.
+     */
+    private static final ClassValue<Boolean> STANDARD_TO_STRING = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (type.getName().startsWith("java.util.")) {
+                return true;
+            }
+            try {
+                Class<?> declaring = type.getMethod("toString").getDeclaringClass();
+                return declaring == AbstractCollection.class || declaring == AbstractMap.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     /**
      * Don't instance this class
      */
@@ -25,7 +48,7 @@ public final class AllureAspectUtils {
      * name is it over {@link ru.yandex.qatools.allure.config.AllureConfig#maxTitleLength}
      */
     public static String getName(String methodName, Object[] parameters) {
-        int maxLength = AllureConfig.newInstance().getMaxTitleLength();
+        int maxLength = AllureConfig.getInstance().getMaxTitleLength();
         if (methodName.length() > maxLength) {
             return cutBegin(methodName, maxLength);
         } else {
@@ -34,7 +57,8 @@ public final class AllureAspectUtils {
     }
 
     /**
-     * Convert array of given parameters to sting.
+     * Convert array of given parameters to sting. Conversion stops as soon as maxLength
+     * characters are produced, so huge parameters are never converted to string completely.
      */
     public static String getParametersAsString(Object[] parameters, int maxLength) {
         if (parameters == null || parameters.length == 0) {
@@ -42,8 +66,8 @@ public final class AllureAspectUtils {
         }
         StringBuilder builder = new StringBuilder();
         builder.append("[");
-        for (int i = 0; i < parameters.length; i++) {
-            builder.append(arrayToString(parameters[i]));
+        for (int i = 0; i < parameters.length && builder.length() <= maxLength; i++) {
+            appendArgument(builder, parameters[i], Math.max(maxLength, 0));
             if (i < parameters.length - 1) {
                 builder.append(", ");
             }
@@ -54,18 +78,11 @@ public final class AllureAspectUtils {
     /**
      * Generate title using name pattern. First step all "{method}" substrings will be replaced
      * with given method name. Then replace all "{i}" substrings with i-th parameter.
+     *
+     * @see TitleTemplate
      */
     public static String getTitle(String namePattern, String methodName, Object instance, Object[] parameters) {
-        String finalPattern = namePattern
-                .replaceAll("\\{method\\}", methodName)
-                .replaceAll("\\{this\\}", String.valueOf(instance));
-        int paramsCount = parameters == null ? 0 : parameters.length;
-        Object[] results = new Object[paramsCount];
-        for (int i = 0; i < paramsCount; i++) {
-            results[i] = arrayToString(parameters[i]);
-        }
-
-        return cutEnd(MessageFormat.format(finalPattern, results), AllureConfig.newInstance().getMaxTitleLength());
+        return TitleTemplate.compile(namePattern, methodName).render(instance, parameters);
     }
 
     /**
@@ -84,6 +101,62 @@ public final class AllureAspectUtils {
         }
     }
 
+    /**
+     * Append string representation of given argument, the same as {@link #arrayToString(Object)} gives.
+     * Arrays, collections and maps are converted element by element until the budget is exhausted.
+     * Collections and maps with custom {@code toString()}, as well as any other objects, are converted
+     * with {@code toString()} as is, so the conversion itself can't be bounded for them. Appended value
+     * is cut to the budget, so it's never longer than budget + 3 characters.
+     *
+     * @param builder  to append to
+     * @param argument to convert
+     * @param budget   max count of characters to append
+     */
+    static void appendArgument(StringBuilder builder, Object argument, int budget) {
+        int start = builder.length();
+        if (argument != null && argument.getClass().isArray()) {
+            int len = Array.getLength(argument);
+            builder.append('[');
+            for (int i = 0; i < len && builder.length() - start <= budget; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(String.valueOf(Array.get(argument, i)));
+            }
+            builder.append(']');
+        } else if (argument instanceof Collection && STANDARD_TO_STRING.get(argument.getClass())) {
+            Iterator<?> iterator = ((Collection<?>) argument).iterator();
+            builder.append('[');
+            while (iterator.hasNext() && builder.length() - start <= budget) {
+                Object element = iterator.next();
+                builder.append(element == argument ? "(this Collection)" : String.valueOf(element));
+                if (iterator.hasNext()) {
+                    builder.append(", ");
+                }
+            }
+            builder.append(']');
+        } else if (argument instanceof Map && STANDARD_TO_STRING.get(argument.getClass())) {
+            Iterator<? extends Map.Entry<?, ?>> iterator = ((Map<?, ?>) argument).entrySet().iterator();
+            builder.append('{');
+            while (iterator.hasNext() && builder.length() - start <= budget) {
+                Map.Entry<?, ?> entry = iterator.next();
+                builder.append(entry.getKey() == argument ? "(this Map)" : String.valueOf(entry.getKey()));
+                builder.append('=');
+                builder.append(entry.getValue() == argument ? "(this Map)" : String.valueOf(entry.getValue()));
+                if (iterator.hasNext()) {
+                    builder.append(", ");
+                }
+            }
+            builder.append('}');
+        } else {
+            builder.append(String.valueOf(argument));
+        }
+        if (builder.length() - start > budget) {
+            builder.setLength(start + budget);
+            builder.append("...");
+        }
+    }
+
     /**
      * Cut all characters from maxLength and replace it with "..."
      */
@@ -9,8 +9,18 @@ import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.annotations.Attachment;
 import ru.yandex.qatools.allure.config.AllureConfig;
 import ru.yandex.qatools.allure.events.MakeAttachmentEvent;
+import ru.yandex.qatools.allure.events.MakeFileAttachmentEvent;
+import ru.yandex.qatools.allure.events.MakeStreamAttachmentEvent;
+import ru.yandex.qatools.allure.events.StepEvent;
 
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Aspects (AspectJ) for handling {@link ru.yandex.qatools.allure.annotations.Attachment}.
@@ -20,6 +30,8 @@ import java.nio.charset.Charset;
 @Aspect
 public class AllureAttachAspects {
 
+    private static final ConcurrentMap<Method, TitleTemplate> TITLES = new ConcurrentHashMap<>();
+
     private static Allure ALLURE = Allure.LIFECYCLE;
 
     /**
@@ -40,6 +52,8 @@ public class AllureAttachAspects {
 
     /**
      * Process data returned from method annotated with {@link ru.yandex.qatools.allure.annotations.Attachment}
+     * If returned data is an {@link java.io.InputStream}, {@link java.nio.channels.ReadableByteChannel},
+     * {@link java.io.File} or {@link java.nio.file.Path} its content is streamed to the results directory.
      * If returned data is not a byte array, then use toString() method, and get bytes from it using
      * {@link ru.yandex.qatools.allure.config.AllureConfig#attachmentsEncoding}
      *
@@ -49,17 +63,38 @@ public class AllureAttachAspects {
     @AfterReturning(pointcut = "anyMethod() && withAttachmentAnnotation()", returning = "result")
     public void attachment(JoinPoint joinPoint, Object result) {
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-        Attachment attachment = methodSignature.getMethod().getAnnotation(Attachment.class);
-        String attachTitle = AllureAspectUtils.getTitle(
-                attachment.value(),
-                methodSignature.getName(),
-                joinPoint.getThis(),
-                joinPoint.getArgs()
-        );
+        Method method = methodSignature.getMethod();
+        Attachment attachment = method.getAnnotation(Attachment.class);
+        TitleTemplate template = TITLES.get(method);
+        if (template == null) {
+            template = TitleTemplate.compile(attachment.value(), methodSignature.getName());
+            TITLES.putIfAbsent(method, template);
+        }
+        String attachTitle = template.render(joinPoint.getThis(), joinPoint.getArgs());
+
+        ALLURE.fire(createAttachmentEvent(result, attachTitle, attachment.type()));
+    }
 
-        Charset charset = AllureConfig.newInstance().getAttachmentsEncoding();
+    /**
+     * Streams, channels and files are written to the results directory without loading
+     * to memory, other results are converted to byte array.
+     */
+    private static StepEvent createAttachmentEvent(Object result, String title, String type) {
+        if (result instanceof InputStream) {
+            return new MakeStreamAttachmentEvent((InputStream) result, title, type);
+        }
+        if (result instanceof ReadableByteChannel) {
+            return new MakeStreamAttachmentEvent((ReadableByteChannel) result, title, type);
+        }
+        if (result instanceof File) {
+            return new MakeFileAttachmentEvent((File) result, title, type);
+        }
+        if (result instanceof Path) {
+            return new MakeFileAttachmentEvent((Path) result, title, type);
+        }
+        Charset charset = AllureConfig.getInstance().getAttachmentsEncoding();
         byte[] bytes = (result instanceof byte[]) ? (byte[]) result : result.toString().getBytes(charset);
-        ALLURE.fire(new MakeAttachmentEvent(bytes, attachTitle, attachment.type()));
+        return new MakeAttachmentEvent(bytes, title, type);
     }
 
     /**
@@ -4,37 +4,44 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.After;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
-import org.aspectj.lang.reflect.FieldSignature;
 import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.annotations.Parameter;
 import ru.yandex.qatools.allure.events.AddParameterEvent;
 
 /**
+ * Aspects (AspectJ) for handling fields annotated with {@link ru.yandex.qatools.allure.annotations.Parameter}.
+ * Only writes to annotated fields are woven. Annotation and new value are bound by the pointcut
+ * and only the static part of join point is used, so no reflection is done on field write.
+ *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 19.06.14
  */
 @Aspect
 public class AllureParametersAspects {
 
-    @Pointcut("@annotation(ru.yandex.qatools.allure.annotations.Parameter)")
-    public void withParameterAnnotation() {
-        //pointcut body, should be empty
-    }
+    private static Allure ALLURE = Allure.LIFECYCLE;
 
-    @Pointcut("set(* *)")
-    public void setValueToAnyField() {
+    @Pointcut("set(@ru.yandex.qatools.allure.annotations.Parameter * *)")
+    public void setValueToParameterField() {
         //pointcut body, should be empty
     }
 
-    @After("setValueToAnyField() && withParameterAnnotation()")
-    public void parameterValueChanged(JoinPoint joinPoint) {
+    @After("setValueToParameterField() && @annotation(parameter) && args(value)")
+    public void parameterValueChanged(JoinPoint.StaticPart staticPart, Parameter parameter, Object value) {
+        if (value == null) {
+            return;
+        }
         try {
-            FieldSignature fieldSignature = (FieldSignature) joinPoint.getSignature();
-            Parameter parameter = fieldSignature.getField().getAnnotation(Parameter.class);
-            String name = parameter.value().isEmpty() ? fieldSignature.getName() : parameter.value();
-            Allure.LIFECYCLE.fire(new AddParameterEvent(name, joinPoint.getArgs()[0].toString()));
+            String name = parameter.value().isEmpty() ? staticPart.getSignature().getName() : parameter.value();
+            ALLURE.fire(new AddParameterEvent(name, value.toString()));
         } catch (Exception ignored) {
         }
     }
 
+    /**
+     * For tests only
+     */
+    static void setAllure(Allure allure) {
+        AllureParametersAspects.ALLURE = allure;
+    }
 }
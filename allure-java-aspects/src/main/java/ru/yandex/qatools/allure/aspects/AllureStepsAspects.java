@@ -1,10 +1,9 @@
 package ru.yandex.qatools.allure.aspects;
 
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
-import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import ru.yandex.qatools.allure.Allure;
@@ -13,10 +12,19 @@ import ru.yandex.qatools.allure.events.StepFailureEvent;
 import ru.yandex.qatools.allure.events.StepFinishedEvent;
 import ru.yandex.qatools.allure.events.StepStartedEvent;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static ru.yandex.qatools.allure.aspects.AllureAspectUtils.getName;
-import static ru.yandex.qatools.allure.aspects.AllureAspectUtils.getTitle;
 
 /**
+ * Aspects (AspectJ) for handling {@link ru.yandex.qatools.allure.annotations.Step}.
+ * Step titles are compiled once per method and rendered when the step is started, so
+ * {@link StepStartedEvent} listeners get the title as before.
+ * If compact steps are enabled steps are started and finished without creating events,
+ * see {@link Allure#startStep(String, String)}.
+ *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 24.10.13
  */
@@ -24,6 +32,8 @@ import static ru.yandex.qatools.allure.aspects.AllureAspectUtils.getTitle;
 @Aspect
 public class AllureStepsAspects {
 
+    private static final ConcurrentMap<Method, TitleTemplate> TITLES = new ConcurrentHashMap<>();
+
     private static Allure ALLURE = Allure.LIFECYCLE;
 
     @Pointcut("@annotation(ru.yandex.qatools.allure.annotations.Step)")
@@ -36,37 +46,69 @@ public class AllureStepsAspects {
         //pointcut body, should be empty
     }
 
-    @Before("anyMethod() && withStepAnnotation()")
-    public void stepStart(JoinPoint joinPoint) {
-        String stepTitle = createTitle(joinPoint);
-
+    @Around("anyMethod() && withStepAnnotation()")
+    public Object step(ProceedingJoinPoint joinPoint) throws Throwable {
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-        StepStartedEvent startedEvent = new StepStartedEvent(
-                getName(methodSignature.getName(), joinPoint.getArgs())
-        );
-
-        if (!stepTitle.isEmpty()) {
-            startedEvent.setTitle(stepTitle);
+        Object[] args = joinPoint.getArgs();
+        String name = getName(methodSignature.getName(), args);
+        String title = renderTitle(joinPoint, args);
+        boolean compact = ALLURE.isCompactStepsEnabled();
+        if (compact) {
+            ALLURE.startStep(name, title);
+        } else {
+            ALLURE.fire(new StepStartedEvent(name).withTitle(title));
         }
 
-        ALLURE.fire(startedEvent);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            ALLURE.fire(new StepFailureEvent().withThrowable(e));
+            finishStep(compact);
+            throw e;
+        }
+        finishStep(compact);
+        return result;
     }
 
-    @AfterThrowing(pointcut = "anyMethod() && withStepAnnotation()", throwing = "e")
-    public void stepFailed(JoinPoint joinPoint, Throwable e) {
-        ALLURE.fire(new StepFailureEvent().withThrowable(e));
-        ALLURE.fire(new StepFinishedEvent());
+    private void finishStep(boolean compact) {
+        if (compact) {
+            ALLURE.finishStep(null);
+        } else {
+            ALLURE.fire(new StepFinishedEvent());
+        }
     }
 
-    @AfterReturning(pointcut = "anyMethod() && withStepAnnotation()", returning = "result")
-    public void stepStop(JoinPoint joinPoint, Object result) {
-        ALLURE.fire(new StepFinishedEvent());
+    /**
+     * Renders title of the step from {@link Step#value()}.
+     *
+     * @param args arguments of the step
+     * @return rendered title or null if it's not specified
+     */
+    private static String renderTitle(JoinPoint joinPoint, Object[] args) {
+        TitleTemplate template = getTitleTemplate((MethodSignature) joinPoint.getSignature());
+        if (template == null || template.isEmpty()) {
+            return null;
+        }
+        String stepTitle = template.render(joinPoint.getThis(), args);
+        return stepTitle.isEmpty() ? null : stepTitle;
     }
 
-    public String createTitle(JoinPoint joinPoint) {
-        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-        Step step = methodSignature.getMethod().getAnnotation(Step.class);
-        return step == null ? "" : getTitle(step.value(), methodSignature.getName(), joinPoint.getThis(), joinPoint.getArgs());
+    /**
+     * Returns compiled title of the step method, or null if the method isn't annotated.
+     */
+    private static TitleTemplate getTitleTemplate(MethodSignature methodSignature) {
+        Method method = methodSignature.getMethod();
+        TitleTemplate template = TITLES.get(method);
+        if (template == null) {
+            Step step = method.getAnnotation(Step.class);
+            if (step == null) {
+                return null;
+            }
+            template = TitleTemplate.compile(step.value(), methodSignature.getName());
+            TITLES.putIfAbsent(method, template);
+        }
+        return template;
     }
 
     /**
@@ -0,0 +1,186 @@
+package ru.yandex.qatools.allure.aspects;
+
+import ru.yandex.qatools.allure.config.AllureConfig;
+
+import java.text.DateFormat;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static ru.yandex.qatools.allure.aspects.AllureAspectUtils.appendArgument;
+import static ru.yandex.qatools.allure.aspects.AllureAspectUtils.cutEnd;
+
+/**
+ * Compiled step or attachment title pattern. Pattern is parsed once: "{method}" is replaced
+ * with the method name, "{this}" and "{i}" are kept as placeholders which are rendered
+ * by {@link #render(Object, Object[])}. Quotes are processed the same way as
+ * {@link MessageFormat} does, arguments are formatted the same way as well.
+ * <p/>
+ * Patterns with placeholders not supported here (such as "{0,number,#}") are rendered
+ * by {@link MessageFormat} on each call.
+ *
+ * @see AllureAspectUtils#getTitle(String, String, Object, Object[])
+ */
+public final class TitleTemplate {
+
+    private static final int THIS = -1;
+
+    /**
+     * Literal strings and placeholders, placeholders are stored as Integer
+     */
+    private final List<Object> parts;
+
+    private final String pattern;
+
+    private TitleTemplate(List<Object> parts, String pattern) {
+        this.parts = parts;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compile given title pattern.
+     *
+     * @param namePattern pattern from {@link ru.yandex.qatools.allure.annotations.Step}
+     *                    or {@link ru.yandex.qatools.allure.annotations.Attachment}
+     * @param methodName  name of the annotated method
+     * @return compiled template
+     */
+    public static TitleTemplate compile(String namePattern, String methodName) {
+        List<Object> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean inQuote = false;
+        int length = namePattern.length();
+        for (int i = 0; i < length; i++) {
+            char ch = namePattern.charAt(i);
+            if (ch == '\'') {
+                if (i + 1 < length && namePattern.charAt(i + 1) == '\'') {
+                    literal.append(ch);
+                    i++;
+                } else {
+                    inQuote = !inQuote;
+                }
+            } else if (ch == '{') {
+                int end = namePattern.indexOf('}', i);
+                Object placeholder = end < 0 ? null : parsePlaceholder(namePattern.substring(i + 1, end), methodName);
+                //"{method}" and "{this}" are replaced even in quoted text
+                if (inQuote && (placeholder == null || placeholder instanceof Integer && (Integer) placeholder != THIS)) {
+                    literal.append(ch);
+                    continue;
+                }
+                if (placeholder == null) {
+                    return new TitleTemplate(null, namePattern.replace("{method}", methodName));
+                }
+                if (placeholder instanceof String) {
+                    literal.append(placeholder);
+                } else {
+                    addLiteral(parts, literal);
+                    parts.add(placeholder);
+                }
+                i = end;
+            } else {
+                literal.append(ch);
+            }
+        }
+        addLiteral(parts, literal);
+        return new TitleTemplate(parts, null);
+    }
+
+    /**
+     * Returns true if the template is always rendered to an empty string.
+     */
+    public boolean isEmpty() {
+        return parts != null && parts.isEmpty();
+    }
+
+    /**
+     * Render the title for given method call. Title is cut if it's over
+     * {@link ru.yandex.qatools.allure.config.AllureConfig#getMaxTitleLength()}
+     *
+     * @param instance   the object method is called on, can be null
+     * @param parameters method arguments, can be null
+     * @return rendered title
+     */
+    public String render(Object instance, Object[] parameters) {
+        int maxLength = AllureConfig.getInstance().getMaxTitleLength();
+        if (parts == null) {
+            return renderByMessageFormat(instance, parameters, maxLength);
+        }
+
+        int paramsCount = parameters == null ? 0 : parameters.length;
+        StringBuilder builder = new StringBuilder();
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        for (Object part : parts) {
+            if (builder.length() > maxLength) {
+                break;
+            }
+            if (part instanceof String) {
+                builder.append((String) part);
+                continue;
+            }
+            int index = (Integer) part;
+            if (index == THIS) {
+                appendArgument(builder, instance, maxLength);
+            } else if (index < paramsCount) {
+                appendFormatted(builder, parameters[index], locale, maxLength);
+            } else {
+                builder.append('{').append(index).append('}');
+            }
+        }
+        return cutEnd(builder.toString(), maxLength);
+    }
+
+    private String renderByMessageFormat(Object instance, Object[] parameters, int maxLength) {
+        String finalPattern = pattern.replace("{this}", String.valueOf(instance));
+        int paramsCount = parameters == null ? 0 : parameters.length;
+        Object[] results = new Object[paramsCount];
+        for (int i = 0; i < paramsCount; i++) {
+            results[i] = AllureAspectUtils.arrayToString(parameters[i]);
+        }
+        return cutEnd(MessageFormat.format(finalPattern, results), maxLength);
+    }
+
+    /**
+     * Append argument formatted as {@link MessageFormat} formats arguments without explicit format.
+     */
+    private static void appendFormatted(StringBuilder builder, Object argument, Locale locale, int maxLength) {
+        if (argument instanceof Number) {
+            builder.append(NumberFormat.getInstance(locale).format(argument));
+        } else if (argument instanceof Date) {
+            builder.append(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale).format(argument));
+        } else {
+            appendArgument(builder, argument, maxLength);
+        }
+    }
+
+    /**
+     * @return literal string for "{method}", placeholder index for "{this}" and "{i}",
+     * or null if the placeholder is not supported
+     */
+    private static Object parsePlaceholder(String placeholder, String methodName) {
+        if ("method".equals(placeholder)) {
+            return methodName;
+        }
+        if ("this".equals(placeholder)) {
+            return THIS;
+        }
+        if (placeholder.isEmpty() || placeholder.length() > 9) {
+            return null;
+        }
+        for (int i = 0; i < placeholder.length(); i++) {
+            if (!Character.isDigit(placeholder.charAt(i))) {
+                return null;
+            }
+        }
+        return Integer.parseInt(placeholder);
+    }
+
+    private static void addLiteral(List<Object> parts, StringBuilder literal) {
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+}
@@ -4,7 +4,11 @@ import org.junit.Test;
 import ru.yandex.qatools.allure.config.AllureConfig;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -210,4 +214,58 @@ public class AllureAspectUtilsTest {
                 equalTo("getSomethingNew[this name pattern is too long, over 150 symbols! Guys, what are you " +
                         "thinking for when you made so long t...]"));
     }
+
+    @Test
+    public void getTitleWithQuotes() {
+        String title = getTitle("{method} ''{0}'' '{1}'", METHOD_NAME, null, new Object[]{"first", "second"});
+        assertThat("Quotes are processed incorrectly", title,
+                equalTo(MessageFormat.format(METHOD_NAME + " ''{0}'' '{1}'", "first", "second")));
+    }
+
+    @Test
+    public void getTitleWithCustomFormat() {
+        String title = getTitle("{method} {0,number,#}", METHOD_NAME, null, new Object[]{1234567});
+        assertThat("Argument with format is processed incorrectly", title,
+                equalTo(METHOD_NAME + " 1234567"));
+    }
+
+    @Test
+    public void getTitleWithMissingParam() {
+        String title = getTitle(NAME_PATTERN_WITH_TWO_ARGS, METHOD_NAME, null, new Object[]{"first"});
+        assertThat("Missing argument is processed incorrectly", title,
+                equalTo(METHOD_NAME + " (first arg:first, second arg:{1})"));
+    }
+
+    @Test
+    public void getTitleWithHugeCollection() {
+        List<Integer> firstArg = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            firstArg.add(i);
+        }
+        int maxLength = AllureConfig.newInstance().getMaxTitleLength();
+        String title = getTitle(NAME_PATTERN_WITH_ONE_ARG, METHOD_NAME, null, new Object[]{firstArg});
+        assertThat("Huge collection argument is processed incorrectly", title,
+                equalTo(cutEnd(MessageFormat.format(TITLE_STRING_WITH_ONE_ARG, METHOD_NAME, firstArg.toString()), maxLength)));
+    }
+
+    @Test
+    public void getTitleWithHugeMap() {
+        Map<Integer, String> firstArg = new LinkedHashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            firstArg.put(i, "value" + i);
+        }
+        int maxLength = AllureConfig.newInstance().getMaxTitleLength();
+        String title = getTitle(NAME_PATTERN_WITH_ONE_ARG, METHOD_NAME, null, new Object[]{firstArg});
+        assertThat("Huge map argument is processed incorrectly", title,
+                equalTo(cutEnd(MessageFormat.format(TITLE_STRING_WITH_ONE_ARG, METHOD_NAME, firstArg.toString()), maxLength)));
+    }
+
+    @Test
+    public void getNameWithHugeArray() {
+        int[] firstArg = new int[100000];
+        String name = getName(METHOD_NAME, new Object[]{firstArg});
+        int maxLength = AllureConfig.newInstance().getMaxTitleLength();
+        assertThat("Huge array argument is processed incorrectly", name,
+                equalTo(METHOD_NAME + cutEnd("[" + Arrays.toString(firstArg), maxLength - METHOD_NAME.length()) + "]"));
+    }
 }
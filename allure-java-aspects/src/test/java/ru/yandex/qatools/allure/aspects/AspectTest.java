@@ -3,15 +3,23 @@ package ru.yandex.qatools.allure.aspects;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.aspects.testdata.MySteps;
 import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.events.AddParameterEvent;
 import ru.yandex.qatools.allure.events.MakeAttachmentEvent;
+import ru.yandex.qatools.allure.events.MakeFileAttachmentEvent;
+import ru.yandex.qatools.allure.events.MakeStreamAttachmentEvent;
 import ru.yandex.qatools.allure.events.StepFailureEvent;
 import ru.yandex.qatools.allure.events.StepFinishedEvent;
 import ru.yandex.qatools.allure.events.StepStartedEvent;
 
+import java.io.File;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -32,6 +40,7 @@ public class AspectTest {
     public void setUp() throws Exception {
         AllureStepsAspects.setAllure(allure);
         AllureAttachAspects.setAllure(allure);
+        AllureParametersAspects.setAllure(allure);
     }
 
     @Test
@@ -98,4 +107,34 @@ public class AspectTest {
         verify(allure).fire(eq(new MakeAttachmentEvent(bytes, "stringAttachment: message", "")));
         verifyNoMoreInteractions(allure);
     }
+
+    @Test
+    public void sampleStreamAttachmentTest() throws Exception {
+        steps.streamAttachment("ata".getBytes(AllureConfig.newInstance().getAttachmentsEncoding()));
+        ArgumentCaptor<MakeStreamAttachmentEvent> captor = ArgumentCaptor.forClass(MakeStreamAttachmentEvent.class);
+        verify(allure).fire(captor.capture());
+        assertThat(captor.getValue().getTitle(), is("stream"));
+        assertThat(captor.getValue().getType(), is(""));
+        verifyNoMoreInteractions(allure);
+    }
+
+    @Test
+    public void sampleFileAttachmentTest() throws Exception {
+        File file = new File("some-file.txt");
+        steps.fileAttachment(file);
+        ArgumentCaptor<MakeFileAttachmentEvent> captor = ArgumentCaptor.forClass(MakeFileAttachmentEvent.class);
+        verify(allure).fire(captor.capture());
+        assertThat(captor.getValue().getAttachment(), is(file));
+        assertThat(captor.getValue().getType(), is("text/plain"));
+        verifyNoMoreInteractions(allure);
+    }
+
+    @Test
+    public void parameterFieldTest() throws Exception {
+        steps.setParameter("value");
+        steps.setParameter(null);
+        steps.setNotParameter("value");
+        verify(allure).fire(eq(new AddParameterEvent("my-parameter", "value")));
+        verifyNoMoreInteractions(allure);
+    }
 }
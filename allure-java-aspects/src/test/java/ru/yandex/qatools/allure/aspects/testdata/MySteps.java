@@ -1,14 +1,32 @@
 package ru.yandex.qatools.allure.aspects.testdata;
 
 import ru.yandex.qatools.allure.annotations.Attachment;
+import ru.yandex.qatools.allure.annotations.Parameter;
 import ru.yandex.qatools.allure.annotations.Step;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+
 /**
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 08.12.14
  */
 public class MySteps {
 
+    @Parameter("my-parameter")
+    private String parameter;
+
+    private String notParameter;
+
+    public void setParameter(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public void setNotParameter(String notParameter) {
+        this.notParameter = notParameter;
+    }
+
     @Step
     public void sampleStep() {
     }
@@ -36,6 +54,16 @@ public class MySteps {
         return attachment;
     }
 
+    @Attachment("stream")
+    public InputStream streamAttachment(byte[] attachment) {
+        return new ByteArrayInputStream(attachment);
+    }
+
+    @Attachment(value = "file", type = "text/plain")
+    public File fileAttachment(File attachment) {
+        return attachment;
+    }
+
     @Attachment("{method}: {0}")
     public String stringAttachment(String message, String attachment) {
         return attachment;
@@ -8,6 +8,7 @@ import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.config.UidGenerator;
 import ru.yandex.qatools.allure.events.ClearStepStorageEvent;
 import ru.yandex.qatools.allure.events.TestCaseCanceledEvent;
 import ru.yandex.qatools.allure.events.TestCaseFailureEvent;
@@ -20,7 +21,8 @@ import ru.yandex.qatools.allure.utils.AnnotationManager;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Dmitry Baev charlie@yandex-team.ru
@@ -32,13 +34,16 @@ public class AllureRunListener extends RunListener {
 
     private final Map<String, String> suites = new HashMap<>();
 
+    private final ConcurrentMap<Description, AnnotationManager> annotationManagers = new ConcurrentHashMap<>();
+
     public void testSuiteStarted(Description description) {
         String uid = generateSuiteUid(description.getClassName());
 
         TestSuiteStartedEvent event = new TestSuiteStartedEvent(uid, description.getClassName());
-        AnnotationManager am = new AnnotationManager(description.getAnnotations());
+        AnnotationManager am = getAnnotationManager(description);
 
         am.update(event);
+        removeAnnotationManager(description);
 
         event.withLabels(AllureModelUtils.createTestFrameworkLabel("JUnit"));
 
@@ -48,7 +53,7 @@ public class AllureRunListener extends RunListener {
     @Override
     public void testStarted(Description description) {
         TestCaseStartedEvent event = new TestCaseStartedEvent(getSuiteUid(description), description.getMethodName());
-        AnnotationManager am = new AnnotationManager(description.getAnnotations());
+        AnnotationManager am = getAnnotationManager(description);
 
         am.update(event);
 
@@ -64,6 +69,7 @@ public class AllureRunListener extends RunListener {
             startFakeTestCase(failure.getDescription());
             fireTestCaseFailure(failure.getException());
             finishFakeTestCase();
+            removeAnnotationManager(failure.getDescription());
         }
     }
 
@@ -77,11 +83,13 @@ public class AllureRunListener extends RunListener {
         startFakeTestCase(description);
         getLifecycle().fire(new TestCasePendingEvent().withMessage(getIgnoredMessage(description)));
         finishFakeTestCase();
+        removeAnnotationManager(description);
     }
 
     @Override
     public void testFinished(Description description) {
         getLifecycle().fire(new TestCaseFinishedEvent());
+        removeAnnotationManager(description);
     }
 
 
@@ -97,7 +105,7 @@ public class AllureRunListener extends RunListener {
     }
 
     public String generateSuiteUid(String suiteName) {
-        String uid = UUID.randomUUID().toString();
+        String uid = UidGenerator.generateUid();
         synchronized (getSuites()) {
             getSuites().put(suiteName, uid);
         }
@@ -123,7 +131,7 @@ public class AllureRunListener extends RunListener {
 
         String name = description.isTest() ? description.getMethodName() : description.getClassName();
         TestCaseStartedEvent event = new TestCaseStartedEvent(uid, name);
-        AnnotationManager am = new AnnotationManager(description.getAnnotations());
+        AnnotationManager am = getAnnotationManager(description);
         am.update(event);
 
         fireClearStepStorage();
@@ -142,6 +150,29 @@ public class AllureRunListener extends RunListener {
         }
     }
 
+    /**
+     * Returns annotation manager for given description. Managers are cached per
+     * description while the test is running, so labels for each test are built
+     * only once, see {@link #removeAnnotationManager(Description)}.
+     */
+    public AnnotationManager getAnnotationManager(Description description) {
+        AnnotationManager am = annotationManagers.get(description);
+        if (am != null) {
+            return am;
+        }
+        AnnotationManager created = new AnnotationManager(description.getAnnotations());
+        am = annotationManagers.putIfAbsent(description, created);
+        return am == null ? created : am;
+    }
+
+    /**
+     * Remove cached annotation manager of given description. Called when the test
+     * is finished, so the cache doesn't grow for the whole run.
+     */
+    public void removeAnnotationManager(Description description) {
+        annotationManagers.remove(description);
+    }
+
     public void fireClearStepStorage() {
         getLifecycle().fire(new ClearStepStorageEvent());
     }
@@ -7,6 +7,7 @@ import ru.yandex.qatools.properties.annotations.Resource;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
 /**
  * @author Artem Eroshenko eroshenkoam@yandex-team.ru
@@ -18,6 +19,7 @@ public class AllureConfig {
 
     protected static final File DEFAULT_RESULTS_DIRECTORY = new File("target/allure-results");
     public static final int DEFAULT_MAX_TITLE_LENGTH = 120;
+    public static final long DEFAULT_ATTACHMENTS_STAGING_MEMORY_BUDGET = 64L * 1024 * 1024;
 
     @Property("allure.model.schema.file.name")
     protected String schemaFileName = "allure.xsd";
@@ -34,12 +36,38 @@ public class AllureConfig {
     @Property("allure.results.testsuite.file.extension")
     protected String testSuiteFileExtension = "xml";
 
+    @Property("allure.results.testsuite.binary.file.regex")
+    protected String binaryTestSuiteFileRegex = ".*-testsuite\\.alrb";
+
+    @Property("allure.results.testsuite.binary.file.extension")
+    protected String binaryTestSuiteFileExtension = "alrb";
+
+    /**
+     * Format of test suite files written by the adaptor: "xml" or "binary". Binary files are
+     * faster to write and to read, the report generator reads both formats from one directory.
+     */
+    @Property("allure.results.format")
+    protected String resultsFormat = "xml";
+
+    @Property("allure.results.testcases.fragment.file.regex")
+    protected String testCasesFragmentFileRegex = ".*-testcases\\.xml";
+
+    @Property("allure.results.testcases.fragment.file.suffix")
+    protected String testCasesFragmentFileSuffix = "testcases";
+
     @Property("allure.results.attachment.file.regex")
     protected String attachmentFileRegex = ".+-attachment(\\..+)?";
 
     @Property("allure.results.attachment.file.suffix")
     protected String attachmentFileSuffix = "-attachment";
 
+    /**
+     * Suffix appended to names of attachment files compressed with gzip. Compressed attachment
+     * keeps its source, the report generator decompresses it.
+     */
+    @Property("allure.results.attachment.compressed.file.suffix")
+    protected String compressedAttachmentFileSuffix = ".gz";
+
     @Property("allure.results.environment.xml.file.name")
     protected String environmentXmlFileRegex = ".*environment\\.xml";
 
@@ -52,6 +80,61 @@ public class AllureConfig {
     @Property("allure.attachments.encoding")
     protected Charset attachmentsEncoding = StandardCharsets.UTF_8;
 
+    /**
+     * If enabled attachments are named by SHA-1 of their content, so identical attachments
+     * are written only once and shared between all tests.
+     */
+    @Property("allure.attachments.deduplication.enabled")
+    protected boolean attachmentsDeduplicationEnabled = false;
+
+    /**
+     * If enabled file attachments are hard linked to the results directory instead of copying
+     * when possible. Note that changes made to the source file after attaching will be visible
+     * in the report.
+     */
+    @Property("allure.attachments.hard.links.enabled")
+    protected boolean attachmentsHardLinksEnabled = false;
+
+    /**
+     * If enabled attachments of running test cases are kept out of the results directory until
+     * the test case is finished, so attachments removed from passed test cases are never written.
+     */
+    @Property("allure.attachments.staging.enabled")
+    protected boolean attachmentsStagingEnabled = false;
+
+    /**
+     * Max total size in bytes of staged attachments kept in memory. Attachments over the budget
+     * are staged in temp files.
+     */
+    @Property("allure.attachments.staging.memory.budget")
+    protected long attachmentsStagingMemoryBudget = DEFAULT_ATTACHMENTS_STAGING_MEMORY_BUDGET;
+
+    /**
+     * Max size in bytes of one attachment, 0 means no limit. Text attachments over the limit
+     * are truncated, other attachments are replaced with a text note.
+     */
+    @Property("allure.attachments.max.size")
+    protected long attachmentsMaxSize = 0;
+
+    /**
+     * Max total size in bytes of attachments of one test case, 0 means no limit.
+     */
+    @Property("allure.attachments.max.test.case.size")
+    protected long attachmentsMaxTestCaseSize = 0;
+
+    /**
+     * Max total size in bytes of attachments written by the process, 0 means no limit.
+     */
+    @Property("allure.attachments.max.run.size")
+    protected long attachmentsMaxRunSize = 0;
+
+    /**
+     * Text attachments of this size in bytes and bigger are compressed with gzip, 0 disables
+     * compression.
+     */
+    @Property("allure.attachments.compression.threshold")
+    protected long attachmentsCompressionThreshold = 0;
+
     @Property("allure.max.title.length")
     protected int maxTitleLength = DEFAULT_MAX_TITLE_LENGTH;
 
@@ -73,16 +156,178 @@ public class AllureConfig {
     @Property("allure.testng.parameters.enabled")
     protected boolean testNgParametersEnabled = true;
 
+    /**
+     * Max depth of the step tree. Deeper steps are not recorded, they are summarised
+     * by one synthetic step instead. Zero means no limit.
+     */
+    @Property("allure.steps.max.depth")
+    protected int maxStepsDepth = 0;
+
+    /**
+     * Max count of children of one step. Zero means no limit.
+     */
+    @Property("allure.steps.max.children")
+    protected int maxStepChildren = 0;
+
+    /**
+     * Max count of steps in one test case. Zero means no limit.
+     */
+    @Property("allure.steps.max.count")
+    protected int maxStepsCount = 0;
+
+    /**
+     * If enabled consecutive sibling steps with the same name, title and status and without
+     * children and attachments are merged into one step with repeat count.
+     */
+    @Property("allure.steps.coalescing.enabled")
+    protected boolean stepsCoalescingEnabled = false;
+
+    /**
+     * If enabled steps of the test case thread are recorded to a compact per-thread arena
+     * and converted to the step tree when its top level step is finished. Ignored if the results
+     * journal is enabled.
+     */
+    @Property("allure.steps.compact.enabled")
+    protected boolean compactStepsEnabled = false;
+
+    /**
+     * Debug option. If enabled step stacks of all threads are tracked, and count of steps retained
+     * by each thread is logged when a test suite is finished.
+     */
+    @Property("allure.debug.steps.leak.detector.enabled")
+    protected boolean stepsLeakDetectorEnabled = false;
+
+    /**
+     * Comma separated class name prefixes, such as "org.testng.,sun.reflect.". Frames of these
+     * classes are skipped in failure stack traces.
+     */
+    @Property("allure.failure.stacktrace.filters")
+    protected String stackTraceFilters = "";
+
+    /**
+     * Max count of printed frames of each exception in failure stack traces. Zero means no limit.
+     */
+    @Property("allure.failure.stacktrace.max.depth")
+    protected int stackTraceMaxDepth = 0;
+
+    /**
+     * If enabled test suite results will be marshalled by background writer threads
+     * instead of the thread that finishes the suite.
+     */
+    @Property("allure.results.async.writer.enabled")
+    protected boolean asyncWriterEnabled = false;
+
+    /**
+     * Max count of finished test suites waiting to be written. When the queue is full the thread
+     * that finishes the suite will wait for a free slot.
+     */
+    @Property("allure.results.async.writer.queue.size")
+    protected int asyncWriterQueueSize = 64;
+
+    @Property("allure.results.async.writer.threads")
+    protected int asyncWriterThreads = 1;
+
+    /**
+     * If enabled test suite results will be written by streaming StAX writer, test case by test case.
+     */
+    @Property("allure.results.stax.writer.enabled")
+    protected boolean staxWriterEnabled = false;
+
+    /**
+     * If enabled each finished test case will be appended to the test cases fragment file of its suite
+     * and removed from memory. Fragments are assembled to test suite file when the suite is finished.
+     */
+    @Property("allure.results.testcases.fragments.enabled")
+    protected boolean testCasesFragmentsEnabled = false;
+
+    /**
+     * If enabled each processed event is appended to crash-safe journal in the results directory.
+     * Journal left by crashed test run is converted to test suite files by the next run.
+     */
+    @Property("allure.results.journal.enabled")
+    protected boolean journalEnabled = false;
+
+    /**
+     * Size of one journal segment file in bytes.
+     */
+    @Property("allure.results.journal.segment.size")
+    protected int journalSegmentSize = 16 * 1024 * 1024;
+
+    /**
+     * If enabled each lifecycle listener will be notified by its own thread, so slow
+     * listeners don't slow down tests.
+     */
+    @Property("allure.listeners.async.enabled")
+    protected boolean asyncListenersEnabled = false;
+
+    /**
+     * Max count of events waiting to be processed by one async listener.
+     */
+    @Property("allure.listeners.async.buffer.size")
+    protected int asyncListenersBufferSize = 1024;
+
+    /**
+     * What to do when async listener buffer is full: block (wait for a free slot),
+     * drop (skip the event) or sample (wait for every n-th event, skip others).
+     */
+    @Property("allure.listeners.async.overflow.policy")
+    protected String asyncListenersOverflowPolicy = "block";
+
+    /**
+     * Every n-th overflowed event is kept if sample overflow policy is used.
+     */
+    @Property("allure.listeners.async.sample.rate")
+    protected int asyncListenersSampleRate = 10;
+
     protected String version = getClass().getPackage().getImplementationVersion();
 
+    private static volatile AllureConfig instance;
+
+    private volatile Pattern removeAttachmentsPattern;
+
     public AllureConfig() {
         PropertyLoader.populate(this);
     }
 
+    /**
+     * Creates a new config and loads all properties. Use {@link #getInstance()}
+     * on hot paths instead.
+     */
     public static AllureConfig newInstance() { // NOSONAR
         return new AllureConfig();
     }
 
+    /**
+     * Returns process-wide config snapshot. Properties are loaded once on the first call,
+     * use {@link #reload()} to pick up changed properties. Returned instance is shared between
+     * all callers, so don't change it, use {@link #newInstance()} to get a config of your own.
+     * Properties are populated by reflection, so fields can't be final: only
+     * {@link #setResultsDirectory(File)} checks that the shared instance isn't changed.
+     */
+    public static AllureConfig getInstance() {
+        AllureConfig config = instance;
+        if (config == null) {
+            synchronized (AllureConfig.class) {
+                if (instance == null) {
+                    instance = new AllureConfig();
+                }
+                config = instance;
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Load properties again and replace process-wide config snapshot.
+     *
+     * @return new config snapshot
+     */
+    public static AllureConfig reload() {
+        AllureConfig config = new AllureConfig();
+        instance = config;
+        return config;
+    }
+
     public String getSchemaFileName() {
         return schemaFileName;
     }
@@ -91,6 +336,18 @@ public class AllureConfig {
         return removeAttachments;
     }
 
+    /**
+     * Returns pattern compiled from {@link #getRemoveAttachments()}. Pattern is compiled once per config.
+     */
+    public Pattern getRemoveAttachmentsPattern() {
+        Pattern pattern = removeAttachmentsPattern;
+        if (pattern == null) {
+            pattern = Pattern.compile(removeAttachments);
+            removeAttachmentsPattern = pattern;
+        }
+        return pattern;
+    }
+
     public String getTestSuiteFileRegex() {
         return testSuiteFileRegex;
     }
@@ -103,6 +360,30 @@ public class AllureConfig {
         return testSuiteFileExtension;
     }
 
+    public String getBinaryTestSuiteFileRegex() {
+        return binaryTestSuiteFileRegex;
+    }
+
+    public String getBinaryTestSuiteFileExtension() {
+        return binaryTestSuiteFileExtension;
+    }
+
+    public String getResultsFormat() {
+        return resultsFormat;
+    }
+
+    public boolean isBinaryResultsFormat() {
+        return "binary".equalsIgnoreCase(resultsFormat);
+    }
+
+    public String getTestCasesFragmentFileRegex() {
+        return testCasesFragmentFileRegex;
+    }
+
+    public String getTestCasesFragmentFileSuffix() {
+        return testCasesFragmentFileSuffix;
+    }
+
     public String getAttachmentFileRegex() {
         return attachmentFileRegex;
     }
@@ -111,6 +392,10 @@ public class AllureConfig {
         return attachmentFileSuffix;
     }
 
+    public String getCompressedAttachmentFileSuffix() {
+        return compressedAttachmentFileSuffix;
+    }
+
     public String getEnvironmentXmlFileRegex() {
         return environmentXmlFileRegex;
     }
@@ -127,6 +412,38 @@ public class AllureConfig {
         return attachmentsEncoding;
     }
 
+    public boolean isAttachmentsDeduplicationEnabled() {
+        return attachmentsDeduplicationEnabled;
+    }
+
+    public boolean isAttachmentsHardLinksEnabled() {
+        return attachmentsHardLinksEnabled;
+    }
+
+    public boolean isAttachmentsStagingEnabled() {
+        return attachmentsStagingEnabled;
+    }
+
+    public long getAttachmentsStagingMemoryBudget() {
+        return attachmentsStagingMemoryBudget;
+    }
+
+    public long getAttachmentsMaxSize() {
+        return attachmentsMaxSize;
+    }
+
+    public long getAttachmentsMaxTestCaseSize() {
+        return attachmentsMaxTestCaseSize;
+    }
+
+    public long getAttachmentsMaxRunSize() {
+        return attachmentsMaxRunSize;
+    }
+
+    public long getAttachmentsCompressionThreshold() {
+        return attachmentsCompressionThreshold;
+    }
+
     public int getMaxTitleLength() {
         return maxTitleLength;
     }
@@ -143,14 +460,93 @@ public class AllureConfig {
         return testNgParametersEnabled;
     }
 
+    public int getMaxStepsDepth() {
+        return maxStepsDepth;
+    }
+
+    public int getMaxStepChildren() {
+        return maxStepChildren;
+    }
+
+    public int getMaxStepsCount() {
+        return maxStepsCount;
+    }
+
+    public boolean isStepsCoalescingEnabled() {
+        return stepsCoalescingEnabled;
+    }
+
+    public boolean isCompactStepsEnabled() {
+        return compactStepsEnabled;
+    }
+
+    public boolean isStepsLeakDetectorEnabled() {
+        return stepsLeakDetectorEnabled;
+    }
+
+    public String getStackTraceFilters() {
+        return stackTraceFilters;
+    }
+
+    public int getStackTraceMaxDepth() {
+        return stackTraceMaxDepth;
+    }
+
+    public boolean isAsyncWriterEnabled() {
+        return asyncWriterEnabled;
+    }
+
+    public int getAsyncWriterQueueSize() {
+        return asyncWriterQueueSize;
+    }
+
+    public int getAsyncWriterThreads() {
+        return asyncWriterThreads;
+    }
+
+    public boolean isStaxWriterEnabled() {
+        return staxWriterEnabled;
+    }
+
+    public boolean isTestCasesFragmentsEnabled() {
+        return testCasesFragmentsEnabled;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public int getJournalSegmentSize() {
+        return journalSegmentSize;
+    }
+
+    public boolean isAsyncListenersEnabled() {
+        return asyncListenersEnabled;
+    }
+
+    public int getAsyncListenersBufferSize() {
+        return asyncListenersBufferSize;
+    }
+
+    public String getAsyncListenersOverflowPolicy() {
+        return asyncListenersOverflowPolicy;
+    }
+
+    public int getAsyncListenersSampleRate() {
+        return asyncListenersSampleRate;
+    }
+
     public String getVersion() {
         return version;
     }
 
     /**
-     * For tests only
+     * For tests only. Can't be used for shared config snapshot.
      */
     public void setResultsDirectory(File resultsDirectory) {
+        if (this == instance) {
+            throw new IllegalStateException("Shared config snapshot can't be changed, use newInstance()");
+        }
         this.resultsDirectory = resultsDirectory;
     }
 
@@ -1,7 +1,5 @@
 package ru.yandex.qatools.allure.config;
 
-import java.util.UUID;
-
 /**
  * @author Artem Eroshenko eroshenkoam@yandex-team.ru
  *         Date: 12/24/13
@@ -24,7 +22,7 @@ public final class AllureNamingUtils {
      * @return file name \"{name}-testsuite.xml\"
      */
     public static String generateTestSuiteFileName(String name) {
-        AllureConfig config = AllureConfig.newInstance();
+        AllureConfig config = AllureConfig.getInstance();
         return String.format(FILE_NAME_PATTERN,
                 name,
                 config.getTestSuiteFileSuffix(),
@@ -37,7 +35,33 @@ public final class AllureNamingUtils {
      * @return test suite file name
      */
     public static String generateTestSuiteFileName() {
-        return generateTestSuiteFileName(UUID.randomUUID().toString());
+        return generateTestSuiteFileName(UidGenerator.generateUid());
+    }
+
+    /**
+     * Generate binary suite file name \"{randomUid}-testsuite.alrb\"
+     *
+     * @return binary test suite file name
+     */
+    public static String generateBinaryTestSuiteFileName() {
+        AllureConfig config = AllureConfig.getInstance();
+        return String.format(FILE_NAME_PATTERN,
+                UidGenerator.generateUid(),
+                config.getTestSuiteFileSuffix(),
+                config.getBinaryTestSuiteFileExtension());
+    }
+
+    /**
+     * Generate test cases fragment file name \"{randomUid}-testcases.xml\"
+     *
+     * @return test cases fragment file name
+     */
+    public static String generateTestCasesFragmentFileName() {
+        AllureConfig config = AllureConfig.getInstance();
+        return String.format(FILE_NAME_PATTERN,
+                UidGenerator.generateUid(),
+                config.getTestCasesFragmentFileSuffix(),
+                config.getTestSuiteFileExtension());
     }
 
     /**
@@ -0,0 +1,54 @@
+package ru.yandex.qatools.allure.config;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared generator of unique ids for result files, attachments and report entities.
+ * Each id is a per-process random prefix followed by a value of a process-wide counter,
+ * so ids are unique across processes, and generating an id never blocks on the entropy
+ * pool: {@link SecureRandom} is used only once to create the prefix.
+ * <p/>
+ * Ids are unique, but not unpredictable, so don't use them as secrets.
+ *
+ * @see AllureNamingUtils
+ */
+public final class UidGenerator {
+
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    UidGenerator() {
+        throw new IllegalStateException("Don't instance UidGenerator");
+    }
+
+    /**
+     * Generate unique id in {@link UUID} format: the most significant 64 bits are
+     * the process prefix, the least significant ones are the counter value.
+     *
+     * @return generated id
+     */
+    public static String generateUid() {
+        return new UUID(Prefix.BITS, COUNTER.incrementAndGet()).toString();
+    }
+
+    /**
+     * Generate short unique id: hex process prefix followed by hex counter value.
+     * Use it for ids which are not stored outside of the process, such as report entities.
+     *
+     * @return generated id
+     */
+    public static String generateShortUid() {
+        return Prefix.SHORT + Long.toHexString(COUNTER.incrementAndGet());
+    }
+
+    /**
+     * Process prefix is created on first use.
+     */
+    private static class Prefix {
+
+        private static final long BITS = new SecureRandom().nextLong();
+
+        private static final String SHORT = String.format("%08x", (int) (BITS >>> 32));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.qatools.allure.config;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class AllureConfigTest {
+
+    @Test
+    public void shouldReturnSameSnapshotTest() throws Exception {
+        assertThat(AllureConfig.getInstance(), sameInstance(AllureConfig.getInstance()));
+    }
+
+    @Test
+    public void shouldReplaceSnapshotOnReloadTest() throws Exception {
+        AllureConfig before = AllureConfig.getInstance();
+        AllureConfig reloaded = AllureConfig.reload();
+
+        assertThat(reloaded, not(sameInstance(before)));
+        assertThat(AllureConfig.getInstance(), sameInstance(reloaded));
+    }
+
+    @Test
+    public void shouldCompileRemoveAttachmentsPatternOnceTest() throws Exception {
+        AllureConfig config = AllureConfig.newInstance();
+
+        assertThat(config.getRemoveAttachmentsPattern().pattern(), is(config.getRemoveAttachments()));
+        assertThat(config.getRemoveAttachmentsPattern(), sameInstance(config.getRemoveAttachmentsPattern()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotChangeSnapshotTest() throws Exception {
+        AllureConfig.getInstance().setResultsDirectory(new File("other"));
+    }
+}
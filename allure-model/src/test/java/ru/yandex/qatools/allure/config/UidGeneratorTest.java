@@ -0,0 +1,33 @@
+package ru.yandex.qatools.allure.config;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UidGeneratorTest {
+
+    @Test(expected = IllegalStateException.class)
+    public void initTest() throws Exception {
+        new UidGenerator();
+    }
+
+    @Test
+    public void shouldGenerateUniqueUids() throws Exception {
+        Set<String> uids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(uids.add(UidGenerator.generateUid()));
+            assertTrue(uids.add(UidGenerator.generateShortUid()));
+        }
+    }
+
+    @Test
+    public void shouldGenerateUidInUuidFormat() throws Exception {
+        String uid = UidGenerator.generateUid();
+        assertEquals(uid, UUID.fromString(uid).toString());
+    }
+}
@@ -96,6 +96,7 @@ class DefaultTestCaseConverter implements TestCaseConverter {
                 result.title = result.title ?: TextUtils.humanize(result.name);
 
                 result.time = source.time;
+                result.repeat = source.repeat;
 
                 result.summary = result.steps.summary.sum(new Summary(steps: 0, attachments: 0)) as Summary
                 result.summary.steps += result.steps.size();
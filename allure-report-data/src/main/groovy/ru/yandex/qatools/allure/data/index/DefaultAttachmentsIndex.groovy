@@ -8,12 +8,15 @@ import ru.yandex.qatools.allure.data.io.ResultDirectories
 import ru.yandex.qatools.allure.data.plugins.AttachmentsIndex
 
 import static java.util.Collections.unmodifiableList
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.getAttachmentSource
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.isCompressedAttachmentFile
 import static ru.yandex.qatools.allure.commons.AllureFileUtils.listAttachmentFiles
 import static ru.yandex.qatools.allure.data.utils.TextUtils.generateUid
 
 /**
  * The default implementation of {@link AttachmentsIndex}.
- * There is two different indexes: by id and by source.
+ * There is two different indexes: by id and by source. Attachments
+ * compressed by the adaptor are indexed by their original source.
  *
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 10.07.15
@@ -35,18 +38,40 @@ class DefaultAttachmentsIndex implements AttachmentsIndex {
     public DefaultAttachmentsIndex(@ResultDirectories File... directories) {
         for (def file : listAttachmentFiles(directories)) {
             def uid = generateUid()
-            def source = file.name
+            def source = getAttachmentSource(file)
+            def compressed = isCompressedAttachmentFile(file)
             def attachment = new AttachmentInfo(
                     uid: uid,
                     source: source,
-                    size: file.length(),
-                    path: file.absolutePath
+                    size: compressed ? getUncompressedSize(file) : file.length(),
+                    path: file.absolutePath,
+                    compressed: compressed
             )
             byUid[uid] = attachment
             bySource[source] = attachment
         }
     }
 
+    /**
+     * Returns size of content of given gzip file stored in the gzip trailer. Size is stored
+     * modulo 2^32, so it's wrong for content over 4GB.
+     */
+    protected static long getUncompressedSize(File file) {
+        try {
+            new RandomAccessFile(file, "r").withCloseable { RandomAccessFile gzip ->
+                if (gzip.length() < 4) {
+                    return file.length()
+                }
+                gzip.seek(gzip.length() - 4)
+                def trailer = new byte[4]
+                gzip.readFully(trailer)
+                (trailer[0] & 0xFFL) | (trailer[1] & 0xFFL) << 8 | (trailer[2] & 0xFFL) << 16 | (trailer[3] & 0xFFL) << 24
+            }
+        } catch (IOException ignored) {
+            file.length()
+        }
+    }
+
     /**
      * @inheritDoc
      */
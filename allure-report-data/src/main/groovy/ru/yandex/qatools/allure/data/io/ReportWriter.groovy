@@ -12,6 +12,8 @@ import ru.yandex.qatools.allure.data.ReportGenerationException
 import ru.yandex.qatools.allure.data.plugins.PluginData
 import ru.yandex.qatools.commons.model.Environment
 
+import java.util.zip.GZIPInputStream
+
 import static ru.yandex.qatools.allure.data.utils.AllureReportUtils.createDirectory
 import static ru.yandex.qatools.allure.data.utils.AllureReportUtils.serialize
 
@@ -83,13 +85,22 @@ class ReportWriter {
         serializeToData(data.name, data.data);
     }
 
+    /**
+     * Copy attachment to data directory. Attachments compressed by the adaptor
+     * are decompressed.
+     */
     void write(AttachmentInfo attachmentInfo) {
         Objects.requireNonNull(attachmentInfo)
         try {
             File from = new File(attachmentInfo.path);
             InputStream is = new FileInputStream(from)
-            getStreamToDataDirectory(attachmentInfo.source).withCloseable { output ->
-                IOUtils.copy(is, output)
+            if (attachmentInfo.isCompressed()) {
+                is = new GZIPInputStream(is)
+            }
+            is.withCloseable {
+                getStreamToDataDirectory(attachmentInfo.source).withCloseable { output ->
+                    IOUtils.copy(is, output)
+                }
             }
         } catch (IOException e) {
             log.error("Can't copy attachment $attachmentInfo.source from $attachmentInfo.path", e)
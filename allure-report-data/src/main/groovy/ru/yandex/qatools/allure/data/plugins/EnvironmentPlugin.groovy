@@ -1,5 +1,6 @@
 package ru.yandex.qatools.allure.data.plugins
 
+import ru.yandex.qatools.allure.config.UidGenerator
 import ru.yandex.qatools.allure.data.KeyValueWidgetItem
 import ru.yandex.qatools.commons.model.Environment
 
@@ -13,7 +14,7 @@ class EnvironmentPlugin extends AbstractPlugin implements ProcessPlugin<Environm
 
     @Plugin.Data
     Environment environment = new Environment(
-            id: UUID.randomUUID().toString(), name: "Allure Test Pack");
+            id: UidGenerator.generateUid(), name: "Allure Test Pack");
 
     @Override
     void process(Environment data) {
@@ -38,7 +38,8 @@ final class PluginUtils {
 //    Step
 
     static def getTime(Step step) {
-        new Time(start: step.start, stop: step.stop, duration: step.stop - step.start);
+        def duration = step.duration != null ? step.duration : step.stop - step.start;
+        new Time(start: step.start, stop: step.stop, duration: duration);
     }
 
 //    TestCaseResult
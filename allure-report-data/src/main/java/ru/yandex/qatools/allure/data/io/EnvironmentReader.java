@@ -31,7 +31,7 @@ public class EnvironmentReader implements Reader<Environment> {
 
     @Inject
     public EnvironmentReader(@ResultDirectories File... inputDirectories) {
-        AllureConfig config = AllureConfig.newInstance();
+        AllureConfig config = AllureConfig.getInstance();
         xmlIterator = listFilesByRegex(
                 config.getEnvironmentXmlFileRegex(),
                 inputDirectories
@@ -8,9 +8,15 @@ import ru.yandex.qatools.allure.model.TestSuiteResult;
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.isBinaryTestSuiteFile;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.isTestCasesFragmentFile;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.readBinaryTestSuite;
 import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshal;
+import static ru.yandex.qatools.allure.commons.AllureFileUtils.unmarshalTestCasesFragment;
 
 /**
  * eroshenkoam
@@ -22,9 +28,16 @@ public class TestSuiteReader implements Reader<TestSuiteResult> {
 
     private final Iterator<File> testSuiteResultFiles;
 
+    /**
+     * Reads test suite files, binary test suite files and test cases fragments left by
+     * unfinished suites. Format of each file is detected by its name.
+     */
     @Inject
     public TestSuiteReader(@ResultDirectories File... resultDirectories) {
-        testSuiteResultFiles = AllureFileUtils.listTestSuiteFiles(resultDirectories).iterator();
+        List<File> files = new ArrayList<>(AllureFileUtils.listTestSuiteFiles(resultDirectories));
+        files.addAll(AllureFileUtils.listBinaryTestSuiteFiles(resultDirectories));
+        files.addAll(AllureFileUtils.listTestCasesFragmentFiles(resultDirectories));
+        testSuiteResultFiles = files.iterator();
     }
 
     @Override
@@ -45,13 +58,20 @@ public class TestSuiteReader implements Reader<TestSuiteResult> {
             }
             File next = testSuiteResultFiles.next();
             try {
-                return unmarshal(next);
+                return read(next);
             } catch (IOException e) {
                 LOGGER.warn(String.format("Could not read <%s> file", next.getAbsoluteFile()), e);
                 return next();
             }
         }
 
+        private TestSuiteResult read(File file) throws IOException {
+            if (isBinaryTestSuiteFile(file)) {
+                return readBinaryTestSuite(file);
+            }
+            return isTestCasesFragmentFile(file) ? unmarshalTestCasesFragment(file) : unmarshal(file);
+        }
+
         @Override
         public void remove() {
             throw new UnsupportedOperationException();
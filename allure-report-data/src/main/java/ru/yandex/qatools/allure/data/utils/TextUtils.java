@@ -3,9 +3,8 @@ package ru.yandex.qatools.allure.data.utils;
 import org.pegdown.Extensions;
 import org.pegdown.PegDownProcessor;
 import ru.yandex.qatools.allure.config.AllureConfig;
+import ru.yandex.qatools.allure.config.UidGenerator;
 
-import java.math.BigInteger;
-import java.security.SecureRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,17 +14,16 @@ import java.util.regex.Pattern;
  */
 public final class TextUtils {
 
-    private static final Integer RADIX = 16;
-    public static final int UID_RANDOM_BYTES_COUNT = 8;
-
     private TextUtils() {
     }
 
+    /**
+     * Generate unique id for report entity.
+     *
+     * @see UidGenerator#generateShortUid()
+     */
     public static String generateUid() {
-        SecureRandom rand = new SecureRandom();
-        byte[] randomBytes = new byte[UID_RANDOM_BYTES_COUNT];
-        rand.nextBytes(randomBytes);
-        return new BigInteger(1, randomBytes).toString(RADIX);
+        return UidGenerator.generateShortUid();
     }
 
     public static String humanize(String text) {
@@ -94,11 +92,11 @@ public final class TextUtils {
     }
     
     public static String getIssueUrl(String name){
-        return String.format(AllureConfig.newInstance().getIssueTrackerPattern(), name);
+        return String.format(AllureConfig.getInstance().getIssueTrackerPattern(), name);
     }
 
     public static String getTestUrl(String name){
-        return String.format(AllureConfig.newInstance().getTmsPattern(), name);
+        return String.format(AllureConfig.getInstance().getTmsPattern(), name);
     }
 
     public static String processMarkdown(String rawText) {
@@ -294,6 +294,20 @@ class DefaultTestCaseConverterTest {
         assert modify.steps[0].time.duration == 15
     }
 
+    @Test
+    void shouldConvertCoalescedSteps() {
+        def origin = new TestCaseResult(
+                name: "name",
+                steps: [new Step(name: "poll", start: 1, stop: 100, duration: 30, repeat: 10)]
+        )
+        def modify = converter.convert(origin)
+
+        assert modify.steps[0].repeat == 10
+        assert modify.steps[0].time.start == 1
+        assert modify.steps[0].time.stop == 100
+        assert modify.steps[0].time.duration == 30
+    }
+
     @Test
     void shouldConvertAttachments() {
         def origin = new TestCaseResult(
@@ -6,6 +6,8 @@ import org.junit.Test
 import org.junit.rules.TemporaryFolder
 import ru.yandex.qatools.allure.data.index.DefaultAttachmentsIndex
 
+import java.util.zip.GZIPOutputStream
+
 /**
  * @author Dmitry Baev charlie@yandex-team.ru
  *         Date: 10.02.15
@@ -32,6 +34,23 @@ class AttachmentReaderTest {
         assert next.path
     }
 
+    @Test
+    void shouldReadCompressedAttachments() {
+        def dir = folder.newFolder();
+        new GZIPOutputStream(new FileOutputStream(new File(dir, "some-attachment.txt.gz"))).withCloseable {
+            it.write("test-content".bytes)
+        }
+
+        def attachment = new AttachmentReader(index: new DefaultAttachmentsIndex(dir)).iterator().next()
+        assert attachment.source == "some-attachment.txt"
+        assert attachment.isCompressed()
+        assert attachment.size == "test-content".bytes.length
+
+        def output = folder.newFolder()
+        new ReportWriter(output).write(attachment)
+        assert new File(output, "data/some-attachment.txt").text == "test-content"
+    }
+
     def getReader(List<String> attachmentNames) {
         def dir = folder.newFolder();
 
@@ -4,11 +4,15 @@ import org.apache.commons.io.FileUtils
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
+import ru.yandex.qatools.allure.commons.ResultsCodec
 import ru.yandex.qatools.allure.model.ObjectFactory
+import ru.yandex.qatools.allure.model.Status
+import ru.yandex.qatools.allure.model.TestCaseResult
 import ru.yandex.qatools.allure.model.TestSuiteResult
 
 import javax.xml.bind.JAXB
 
+import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateBinaryTestSuiteFileName
 import static ru.yandex.qatools.allure.config.AllureNamingUtils.generateTestSuiteFileName
 
 /**
@@ -60,6 +64,34 @@ class TestSuiteReaderTest {
         assert !reader.iterator().hasNext()
     }
 
+    @Test
+    void shouldReadXmlAndBinaryFiles() {
+        def dir = folder.newFolder();
+        def xml = new TestSuiteResult(name: "xml")
+        JAXB.marshal(new ObjectFactory().createTestSuite(xml), new File(dir, generateTestSuiteFileName()))
+
+        def binary = new TestSuiteResult(name: "binary", start: 1, stop: 2)
+        binary.testCases.add(new TestCaseResult(name: "test", status: Status.PASSED))
+        new DataOutputStream(new FileOutputStream(new File(dir, generateBinaryTestSuiteFileName()))).withCloseable {
+            ResultsCodec.writeHeader(it)
+            writeRecord(it, ResultsCodec.TEST_SUITE_RECORD) { ResultsCodec.writeTestSuite(it, binary) }
+            writeRecord(it, ResultsCodec.TEST_CASE_RECORD) { ResultsCodec.writeTestCase(it, binary.testCases[0]) }
+        }
+
+        def suites = new TestSuiteReader(dir).collect()
+        assert suites.size() == 2
+        assert suites.contains(xml)
+        assert suites.contains(binary)
+    }
+
+    static void writeRecord(DataOutputStream out, byte type, Closure payload) {
+        def bytes = new ByteArrayOutputStream()
+        new DataOutputStream(bytes).withCloseable { payload(it) }
+        out.writeInt(bytes.size())
+        out.writeByte(type)
+        bytes.writeTo(out)
+    }
+
     def getReader(List<TestSuiteResult> results) {
         def dir = folder.newFolder();
         for (def result : results) {
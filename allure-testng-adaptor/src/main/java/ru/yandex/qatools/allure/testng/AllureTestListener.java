@@ -12,6 +12,7 @@ import ru.yandex.qatools.allure.Allure;
 import ru.yandex.qatools.allure.annotations.Parameter;
 import ru.yandex.qatools.allure.config.AllureConfig;
 import ru.yandex.qatools.allure.config.AllureModelUtils;
+import ru.yandex.qatools.allure.config.UidGenerator;
 import ru.yandex.qatools.allure.events.AddParameterEvent;
 import ru.yandex.qatools.allure.events.TestCaseCanceledEvent;
 import ru.yandex.qatools.allure.events.TestCaseFailureEvent;
@@ -31,7 +32,6 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -144,13 +144,11 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         if (description.getValue() != null) {
             event.setDescription(description);
         }
-        AnnotationManager am = new AnnotationManager(getMethodAnnotations(iTestResult));
-        am.setDefaults(getClassAnnotations(iTestResult));
-        am.update(event);
+        getAnnotationManager(iTestResult).update(event);
 
         getLifecycle().fire(event);
 
-        if (AllureConfig.newInstance().areTestNgParametersEnabled()) {
+        if (AllureConfig.getInstance().areTestNgParametersEnabled()) {
             fireAddParameterEvents(iTestResult);
         }
     }
@@ -184,6 +182,21 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         fireFinishTest();
     }
 
+    /**
+     * Returns cached annotation manager for test method of given result with annotations
+     * of the test class as defaults.
+     */
+    public AnnotationManager getAnnotationManager(ITestResult iTestResult) {
+        Method method = iTestResult.getMethod().getConstructorOrMethod().getMethod();
+        if (method == null) {
+            AnnotationManager am = new AnnotationManager(getMethodAnnotations(iTestResult));
+            am.setDefaults(getClassAnnotations(iTestResult));
+            return am;
+        }
+        Object instance = iTestResult.getInstance();
+        return AnnotationManager.forMethod(method, instance == null ? null : instance.getClass());
+    }
+
     public Annotation[] getMethodAnnotations(ITestResult iTestResult) {
         return iTestResult.getMethod().getConstructorOrMethod().getMethod().getAnnotations();
     }
@@ -213,7 +226,7 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         if (iTestContext.getAttribute(SUITE_UID) != null) {
             uid = (String) iTestContext.getAttribute(SUITE_UID);
         } else {
-            uid = UUID.randomUUID().toString();
+            uid = UidGenerator.generateUid();
             iTestContext.setAttribute(SUITE_UID, uid);
         }
         return uid;
@@ -225,7 +238,7 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         String params = "";
 
         if (!iTestContext.getCurrentXmlTest().getLocalParameters().isEmpty() &&
-                AllureConfig.newInstance().areTestNgParametersEnabled()) {
+                AllureConfig.getInstance().areTestNgParametersEnabled()) {
             params = iTestContext.getCurrentXmlTest().getLocalParameters()
                     .toString().replace("{", "[").replace("}", "]");
         }
@@ -238,7 +251,7 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         StringBuilder sb = new StringBuilder(suitePrefix);
         sb.append(iTestResult.getName());
 
-        if (AllureConfig.newInstance().areTestNgParametersEnabled()) {
+        if (AllureConfig.getInstance().areTestNgParametersEnabled()) {
             Object[] parameters = iTestResult.getParameters();
             if (parameters != null && parameters.length > 0) {
                 sb.append("[");
@@ -265,10 +278,8 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
                 if (description.getValue() != null) {
                     event.setDescription(description);
                 }
-                Annotation[] annotations = method.getConstructorOrMethod().getMethod().getAnnotations();
-                AnnotationManager am = new AnnotationManager(annotations);
-                am.setDefaults(method.getInstance().getClass().getAnnotations());
-                am.update(event);
+                AnnotationManager.forMethod(method.getConstructorOrMethod().getMethod(),
+                        method.getInstance().getClass()).update(event);
                 getLifecycle().fire(event);
                 getLifecycle().fire(new TestCasePendingEvent());
                 fireFinishTest();
@@ -359,9 +370,7 @@ public class AllureTestListener implements IResultListener, ISuiteListener {
         String suiteUid = getSuiteUid(iTestResult.getTestContext());
         TestCaseStartedEvent event = new TestCaseStartedEvent(suiteUid, iTestResult.getName());
         event.setDescription(new Description().withValue(description));
-        AnnotationManager am = new AnnotationManager(getMethodAnnotations(iTestResult));
-        am.setDefaults(getClassAnnotations(iTestResult));
-        am.update(event);
+        getAnnotationManager(iTestResult).update(event);
         getLifecycle().fire(event);
     }
 